@@ -0,0 +1,76 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Catálogo H2 en memoria para los benchmarks (igual que ProductDaoTest,
+ * pero con el esquema completo y {@code size} productos generados).
+ */
+final class BenchData {
+
+    static final String[] WORDS = {
+            "Figura", "Carta", "Póster", "Llavero", "Funko", "Cómic", "Edición", "Limitada",
+            "Goku", "Pikachu", "Sofía", "Vegeta", "Charizard", "Mewtwo", "Naruto", "Holo"
+    };
+
+    private BenchData() {}
+
+    /** Abre una BD nueva, crea el esquema y carga el catálogo. La BD vive mientras la conexión siga abierta. */
+    static Connection catalog(int size) throws SQLException {
+        return catalog("jdbc:h2:mem:bench" + System.nanoTime() + ";MODE=PostgreSQL", size);
+    }
+
+    /** Igual que {@link #catalog(int)} sobre una URL dada (p.ej. una BD con nombre que comparte el servidor). */
+    static Connection catalog(String url, int size) throws SQLException {
+        Connection conn = DriverManager.getConnection(url, "sa", "");
+        Migrations.migrate(conn); // esquema completo + semillas p1/p2
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO products(id,name,descr,image_url,price_cents,stock) VALUES (?,?,?,?,?,?)");
+             PreparedStatement offer = conn.prepareStatement(
+                     "INSERT INTO product_offers(product_id,promo_price_cents,valid_until) VALUES (?,?,?)")) {
+            String until = LocalDate.now().plusDays(30).toString();
+            for (int i = 0; i < size; i++) {
+                String id = "b" + i;
+                ps.setString(1, id);
+                ps.setString(2, WORDS[i % WORDS.length] + " " + WORDS[(i / 7) % WORDS.length] + " #" + i);
+                ps.setString(3, "Coleccionable " + WORDS[(i / 3) % WORDS.length] + " serie " + (i % 97));
+                ps.setString(4, null);
+                ps.setLong(5, (100 + i % 900) * 100L);
+                ps.setInt(6, i % 20);
+                ps.addBatch();
+                if (i % 5 == 0) {
+                    offer.setString(1, id);
+                    offer.setLong(2, (90 + i % 800) * 100L);
+                    offer.setDate(3, java.sql.Date.valueOf(until));
+                    offer.addBatch();
+                }
+                if (i % 1000 == 999) {
+                    ps.executeBatch();
+                    offer.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            offer.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        return conn;
+    }
+
+    /** Crea una orden con {@code items} líneas sobre los primeros productos y devuelve su id. */
+    static long order(Connection conn, int items) {
+        SingleConnectionDataSource ds = new SingleConnectionDataSource(conn);
+        long orderId = new OrderDao(ds).create("1", 0);
+        OrderItemDao itemDao = new OrderItemDao(ds);
+        for (int i = 0; i < items; i++) {
+            itemDao.create(orderId, "b" + i, 1 + i % 3, (100 + i) * 100L);
+        }
+        return orderId;
+    }
+}
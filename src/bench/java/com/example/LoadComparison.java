@@ -0,0 +1,67 @@
+package com.example;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carga de lazo cerrado contra un servidor ya levantado, para comparar el modo
+ * con hilos de plataforma y el de hilos virtuales (-Dserver.virtualThreads=true).
+ * Mantiene {@code concurrency} peticiones en vuelo hasta completar {@code requests}.
+ *
+ * <pre>
+ * java -cp ... com.example.LoadComparison http://localhost:4567/api/products 500 20000
+ * </pre>
+ */
+public class LoadComparison {
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:4567/api/products";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET().build();
+
+        // calentamiento: JIT, caché del catálogo y statements preparados
+        run(client, req, Math.min(concurrency, 50), Math.min(requests, 2_000), new LatencyHistogram());
+
+        LatencyHistogram h = new LatencyHistogram();
+        long t0 = System.nanoTime();
+        long errors = run(client, req, concurrency, requests, h);
+        double secs = (System.nanoTime() - t0) / 1e9;
+
+        System.out.printf("url=%s concurrency=%d requests=%d%n", url, concurrency, requests);
+        System.out.printf("throughput=%.0f req/s errors=%d%n", requests / secs, errors);
+        System.out.printf("p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus%n",
+                h.percentileMicros(0.50), h.percentileMicros(0.90), h.percentileMicros(0.99),
+                h.percentileMicros(0.999), h.maxMicros());
+    }
+
+    private static long run(HttpClient client, HttpRequest req, int concurrency, int requests,
+                            LatencyHistogram h) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(requests);
+        AtomicLong errors = new AtomicLong();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            long start = System.nanoTime();
+            client.sendAsync(req, HttpResponse.BodyHandlers.discarding()).whenComplete((res, ex) -> {
+                h.recordNanos(System.nanoTime() - start);
+                if (ex != null || res.statusCode() >= 500) errors.incrementAndGet();
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        return errors.get();
+    }
+}
@@ -0,0 +1,346 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import spark.Spark;
+
+/**
+ * Arnés de carga de lazo abierto: levanta {@link App} en un puerto libre sobre un catálogo
+ * H2 en memoria de {@code load.catalogSize} productos y le manda una mezcla de operaciones
+ * a {@code load.rate} peticiones por segundo, sin esperar respuestas.
+ *
+ * <p>La latencia se mide desde el instante en que la petición <i>debía</i> salir según la
+ * tasa, no desde que salió: si el servidor (o el propio generador) se atrasa, la espera
+ * cuenta (corrección de omisión coordinada). También se informa la latencia sin corregir.
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:exec@load -Dload.profile=mixed -Dload.rate=500 -Dload.durationSec=30
+ * </pre>
+ *
+ * La semilla ({@code load.seed}) fija la secuencia de operaciones, búsquedas e ids.
+ */
+public class LoadHarness {
+
+    enum Op { BROWSE, SEARCH, UPSERT, DELETE }
+
+    /** Mezclas predefinidas; {@code load.mix} las reemplaza (p.ej. "browse:70,search:30"). */
+    static final Map<String, String> PROFILES = Map.of(
+            "browse", "browse:100",
+            "read", "browse:60,search:40",
+            "mixed", "browse:60,search:30,upsert:8,delete:2",
+            "writes", "browse:20,search:10,upsert:50,delete:20");
+
+    /** Parámetros; se leen de propiedades de sistema "load.*". */
+    static final class Config {
+        int catalogSize = 10_000;
+        double rate = 200;
+        int durationSec = 30;
+        int warmupSec = 5;
+        String profile = "mixed";
+        String mix;
+        long seed = 42;
+        /** "clave=valor,..." que se fijan como propiedades antes de levantar el servidor. */
+        String serverProps = "";
+        /** Archivo JSON con el resultado; null para no escribirlo. */
+        String result;
+
+        static Config fromSystemProperties() {
+            Config c = new Config();
+            c.catalogSize = Integer.getInteger("load.catalogSize", c.catalogSize);
+            c.rate = Double.parseDouble(System.getProperty("load.rate", String.valueOf(c.rate)));
+            c.durationSec = Integer.getInteger("load.durationSec", c.durationSec);
+            c.warmupSec = Integer.getInteger("load.warmupSec", c.warmupSec);
+            c.profile = System.getProperty("load.profile", c.profile);
+            c.mix = blankToNull(System.getProperty("load.mix"));
+            c.seed = Long.getLong("load.seed", c.seed);
+            c.serverProps = System.getProperty("load.serverProps", c.serverProps);
+            c.result = blankToNull(System.getProperty("load.result"));
+            return c;
+        }
+
+        String mixSpec() {
+            if (mix != null) return mix;
+            String spec = PROFILES.get(profile);
+            if (spec == null) throw new IllegalArgumentException("Perfil desconocido: " + profile + " (" + PROFILES.keySet() + ")");
+            return spec;
+        }
+    }
+
+    /** Mezcla ponderada de operaciones. */
+    static final class Mix {
+        final Op[] ops;
+        final int[] cumulative;
+        final int total;
+
+        private Mix(Op[] ops, int[] cumulative) {
+            this.ops = ops;
+            this.cumulative = cumulative;
+            this.total = cumulative[cumulative.length - 1];
+        }
+
+        static Mix parse(String spec) {
+            List<Op> ops = new ArrayList<>();
+            List<Integer> cum = new ArrayList<>();
+            int sum = 0;
+            for (String part : spec.split(",")) {
+                String[] kv = part.trim().split(":");
+                if (kv.length != 2) throw new IllegalArgumentException("Mezcla inválida: " + spec);
+                int w = Integer.parseInt(kv[1].trim());
+                if (w < 0) throw new IllegalArgumentException("Peso negativo en la mezcla: " + part);
+                if (w == 0) continue;
+                ops.add(Op.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)));
+                cum.add(sum += w);
+            }
+            if (ops.isEmpty()) throw new IllegalArgumentException("Mezcla vacía: " + spec);
+            return new Mix(ops.toArray(new Op[0]), cum.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        Op pick(Random rnd) {
+            int r = rnd.nextInt(total);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (r < cumulative[i]) return ops[i];
+            }
+            return ops[ops.length - 1];
+        }
+    }
+
+    /** Resultados de una operación. */
+    static final class OpStats {
+        final LatencyHistogram corrected = new LatencyHistogram();
+        final LatencyHistogram raw = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+    }
+
+    private final Config config;
+    private final Mix mix;
+    private final String base;
+    private final int catalogSize;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    /** Resultados de la fase medida (para el informe). */
+    private long sent;
+    private long completed;
+    private double elapsedSec;
+
+    LoadHarness(Config config, String base) {
+        this.config = config;
+        this.mix = Mix.parse(config.mixSpec());
+        this.base = base;
+        this.catalogSize = config.catalogSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.fromSystemProperties();
+        int port = freePort();
+        String dbUrl = "jdbc:h2:mem:load" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+        long t0 = System.nanoTime();
+        // Con DB_CLOSE_DELAY=-1 la BD en memoria sigue viva sin conexiones abiertas
+        BenchData.catalog(dbUrl, config.catalogSize).close();
+        System.out.printf("catalog=%d products generated in %d ms%n",
+                config.catalogSize, (System.nanoTime() - t0) / 1_000_000);
+        try {
+            // Todas las peticiones salen de una IP: sin límites salvo que load.serverProps los pida
+            System.setProperty("admission.enabled", "false");
+            for (String kv : config.serverProps.split(",")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) System.setProperty(kv.substring(0, eq).trim(), kv.substring(eq + 1).trim());
+            }
+            System.setProperty("db.url", dbUrl);
+            System.setProperty("server.port", String.valueOf(port));
+            App.main(new String[0]);
+            Spark.awaitInitialization();
+
+            LoadHarness h = new LoadHarness(config, "http://localhost:" + port);
+            if (config.warmupSec > 0) h.run(config.warmupSec, new Random(config.seed ^ 0x5DEECE66DL));
+            Map<Op, OpStats> stats = h.run(config.durationSec, new Random(config.seed));
+            h.report(stats);
+        } finally {
+            Spark.stop();
+            Spark.awaitStop();
+            Db.shutdown();
+        }
+        // Hilos de Jetty y del programador de ofertas: no esperar a que terminen solos
+        System.exit(0);
+    }
+
+    /** Manda peticiones a la tasa configurada durante {@code seconds}; devuelve estadísticas por operación. */
+    Map<Op, OpStats> run(int seconds, Random rnd) throws InterruptedException {
+        Map<Op, OpStats> stats = new EnumMap<>(Op.class);
+        for (Op op : mix.ops) stats.put(op, new OpStats());
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicLong done = new AtomicLong();
+        AtomicLong lastDone = new AtomicLong();
+
+        double periodNanos = 1e9 / config.rate;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long n = 0;
+        for (long i = 0; ; i++) {
+            // Instante previsto por la tasa: no depende de cuándo respondió la anterior
+            long intended = start + (long) (i * periodNanos);
+            if (intended >= end) break;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            Op op = mix.pick(rnd);
+            OpStats s = stats.get(op);
+            HttpRequest req = request(op, rnd);
+            long sentAt = System.nanoTime();
+            outstanding.incrementAndGet();
+            n++;
+            client.sendAsync(req, HttpResponse.BodyHandlers.discarding()).whenComplete((res, ex) -> {
+                long now = System.nanoTime();
+                s.corrected.recordNanos(now - intended);
+                s.raw.recordNanos(now - sentAt);
+                if (ex != null || res.statusCode() >= 400) s.errors.incrementAndGet();
+                lastDone.accumulateAndGet(now, Math::max);
+                done.incrementAndGet();
+                outstanding.decrementAndGet();
+            });
+        }
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+
+        sent = n;
+        completed = done.get();
+        elapsedSec = (Math.max(lastDone.get(), end) - start) / 1e9;
+        return stats;
+    }
+
+    private HttpRequest request(Op op, Random rnd) {
+        switch (op) {
+            case BROWSE:
+                return get("/");
+            case SEARCH: {
+                String q = BenchData.WORDS[rnd.nextInt(BenchData.WORDS.length)];
+                if (rnd.nextBoolean()) q += " " + BenchData.WORDS[rnd.nextInt(BenchData.WORDS.length)];
+                return get("/?q=" + URLEncoder.encode(q, StandardCharsets.UTF_8));
+            }
+            case UPSERT: {
+                String until = LocalDate.now().plusDays(1 + rnd.nextInt(60)).toString();
+                long cents = (50 + rnd.nextInt(900)) * 100L + rnd.nextInt(100);
+                return post("/offers", "itemId=b" + rnd.nextInt(catalogSize)
+                        + "&promoPrice=" + Money.format(cents) + "&validUntil=" + until);
+            }
+            case DELETE:
+                return post("/offers/delete", "itemId=b" + rnd.nextInt(catalogSize));
+            default:
+                throw new IllegalStateException(op.name());
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest post(String path, String form) {
+        return HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+    }
+
+    private void report(Map<Op, OpStats> stats) throws IOException {
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram allRaw = new LatencyHistogram();
+        long errors = 0;
+        for (OpStats s : stats.values()) {
+            all.add(s.corrected);
+            allRaw.add(s.raw);
+            errors += s.errors.get();
+        }
+        double throughput = completed / elapsedSec;
+
+        System.out.printf("mix=%s catalog=%d target=%.0f req/s duration=%ds seed=%d%n",
+                config.mixSpec(), config.catalogSize, config.rate, config.durationSec, config.seed);
+        System.out.printf("sent=%d completed=%d errors=%d throughput=%.1f req/s%n", sent, completed, errors, throughput);
+        System.out.println("latencia corregida (desde la salida prevista), us:");
+        System.out.printf("%-8s %8s %7s %9s %9s %9s %9s %9s%n", "op", "count", "errors", "p50", "p90", "p99", "p99.9", "max");
+        for (Map.Entry<Op, OpStats> e : stats.entrySet()) {
+            line(e.getKey().name().toLowerCase(Locale.ROOT), e.getValue().corrected, e.getValue().errors.get());
+        }
+        line("all", all, errors);
+        System.out.printf("sin corregir (desde la salida real): p50=%dus p99=%dus p99.9=%dus%n",
+                allRaw.percentileMicros(0.50), allRaw.percentileMicros(0.99), allRaw.percentileMicros(0.999));
+
+        if (config.result != null) {
+            Path out = Path.of(config.result);
+            if (out.getParent() != null) Files.createDirectories(out.getParent());
+            Files.writeString(out, json(stats, all, allRaw, errors, throughput));
+            System.out.println("resultado: " + out);
+        }
+    }
+
+    private static void line(String name, LatencyHistogram h, long errors) {
+        System.out.printf("%-8s %8d %7d %9d %9d %9d %9d %9d%n", name, h.count(), errors,
+                h.percentileMicros(0.50), h.percentileMicros(0.90), h.percentileMicros(0.99),
+                h.percentileMicros(0.999), h.maxMicros());
+    }
+
+    private String json(Map<Op, OpStats> stats, LatencyHistogram all, LatencyHistogram allRaw,
+                        long errors, double throughput) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\n");
+        sb.append("  \"mix\": \"").append(config.mixSpec()).append("\",\n");
+        sb.append("  \"catalogSize\": ").append(config.catalogSize).append(",\n");
+        sb.append("  \"targetRate\": ").append(config.rate).append(",\n");
+        sb.append("  \"durationSec\": ").append(config.durationSec).append(",\n");
+        sb.append("  \"seed\": ").append(config.seed).append(",\n");
+        sb.append("  \"sent\": ").append(sent).append(",\n");
+        sb.append("  \"completed\": ").append(completed).append(",\n");
+        sb.append("  \"errors\": ").append(errors).append(",\n");
+        sb.append(String.format(Locale.ROOT, "  \"throughput\": %.1f,%n", throughput));
+        sb.append("  \"uncorrected\": ").append(percentiles(allRaw)).append(",\n");
+        sb.append("  \"ops\": {\n");
+        for (Map.Entry<Op, OpStats> e : stats.entrySet()) {
+            sb.append("    \"").append(e.getKey().name().toLowerCase(Locale.ROOT)).append("\": ")
+                    .append(percentiles(e.getValue().corrected)).append(",\n");
+        }
+        sb.append("    \"all\": ").append(percentiles(all)).append("\n  }\n}\n");
+        return sb.toString();
+    }
+
+    private static String percentiles(LatencyHistogram h) {
+        return "{\"count\": " + h.count() + ", \"p50\": " + h.percentileMicros(0.50)
+                + ", \"p90\": " + h.percentileMicros(0.90) + ", \"p99\": " + h.percentileMicros(0.99)
+                + ", \"p999\": " + h.percentileMicros(0.999) + ", \"max\": " + h.maxMicros() + "}";
+    }
+
+    private static int freePort() {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+}
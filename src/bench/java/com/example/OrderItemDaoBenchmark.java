@@ -0,0 +1,44 @@
+package com.example;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/** Detalle de orden: OrderItemDao.findByOrder con join a products. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderItemDaoBenchmark {
+
+    @Param({"1000", "10000"})
+    int catalogSize;
+
+    @Param({"5", "50"})
+    int itemsPerOrder;
+
+    Connection conn;
+    OrderItemDao dao;
+    long orderId;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        conn = BenchData.catalog(catalogSize);
+        orderId = BenchData.order(conn, itemsPerOrder);
+        dao = new OrderItemDao(new SingleConnectionDataSource(conn));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Benchmark
+    public List<OrderItem> findByOrder() {
+        return dao.findByOrder(orderId);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Rutas calientes de ProductDao sobre H2 en memoria, por tamaño de catálogo. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductDaoBenchmark {
+
+    @Param({"1000", "10000"})
+    int catalogSize;
+
+    Connection conn;
+    ProductDao dao;
+    String offerUntil;
+    int next;
+    /** Cursor a mitad de los resultados de "coleccionable" (aparece en todos los productos). */
+    String midCursor;
+
+    // para aislar el mapeo fila → Product
+    PreparedStatement scrollPs;
+    ResultSet scrollRs;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        conn = BenchData.catalog(catalogSize);
+        dao = new ProductDao(conn);
+        offerUntil = LocalDate.now().plusDays(10).toString();
+        dao.findAll();
+        dao.findAllFiltered("goku");
+        ProductPage page = dao.findPage("coleccionable", null, ProductPage.MAX_SIZE);
+        for (int seen = page.getItems().size(); seen < catalogSize / 2; seen += page.getItems().size()) {
+            page = dao.findPage("coleccionable", page.getNextCursor(), ProductPage.MAX_SIZE);
+        }
+        midCursor = page.getNextCursor();
+
+        scrollPs = conn.prepareStatement("""
+                SELECT p.id, p.name, p.descr, p.image_url, p.price_cents, p.stock,
+                       o.promo_price_cents, o.valid_until
+                FROM products p
+                LEFT JOIN product_offers o ON o.product_id = p.id
+                """, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        scrollRs = scrollPs.executeQuery();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        scrollRs.close();
+        scrollPs.close();
+        conn.close();
+    }
+
+    private String nextId() {
+        next = (next + 7919) % catalogSize;
+        return "b" + next;
+    }
+
+    @Benchmark
+    public List<Product> findAll() {
+        return dao.findAll();
+    }
+
+    @Benchmark
+    public List<Product> findAllUncached() {
+        dao.catalogStats().invalidate();
+        return dao.findAll();
+    }
+
+    @Benchmark
+    public List<Product> findAllFiltered() {
+        return dao.findAllFiltered("figura goku");
+    }
+
+    /** Todos los aciertos ordenados: lo que costaba antes cada página con q. */
+    @Benchmark
+    public List<Product> findAllFilteredBroad() {
+        return dao.findAllFiltered("coleccionable");
+    }
+
+    @Benchmark
+    public ProductPage findPageSearchFirst() {
+        return dao.findPage("coleccionable", null, ProductPage.DEFAULT_SIZE);
+    }
+
+    @Benchmark
+    public ProductPage findPageSearchMiddle() {
+        return dao.findPage("coleccionable", midCursor, ProductPage.DEFAULT_SIZE);
+    }
+
+    @Benchmark
+    public Optional<Product> findById() {
+        return dao.findById(nextId());
+    }
+
+    @Benchmark
+    public void saveOrUpdateOffer() {
+        dao.saveOrUpdateOffer(nextId(), 4250, offerUntil);
+    }
+
+    @Benchmark
+    public Product mapRow() throws Exception {
+        next = next % catalogSize + 1;
+        scrollRs.absolute(next);
+        return ProductDao.mapRow(scrollRs);
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole bh) {
+        dao.streamAll(500, bh::consume);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example;
+
+import java.io.Writer;
+import java.sql.Connection;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import spark.ModelAndView;
+import spark.template.mustache.MustacheTemplateEngine;
+
+/** Render completo de index.mustache con una página de productos, como hace la ruta "/". */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    @Param({"1000", "10000"})
+    int catalogSize;
+
+    @Param({"24", "100"})
+    int pageSize;
+
+    Connection conn;
+    ProductDao dao;
+    MustacheTemplateEngine engine;
+    Templates templates;
+    ProductCardCache cards;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        conn = BenchData.catalog(catalogSize);
+        dao = new ProductDao(conn);
+        engine = new MustacheTemplateEngine();
+        templates = new Templates();
+        cards = new ProductCardCache(templates, 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Benchmark
+    public String renderIndex() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("year", Calendar.getInstance().get(Calendar.YEAR));
+        model.put("q", "");
+        model.put("products", dao.findPage(null, null, pageSize).getItems());
+        return engine.render(new ModelAndView(model, "index.mustache"));
+    }
+
+    /** Como la ruta "/" original: un MustacheTemplateEngine nuevo por petición. */
+    @Benchmark
+    public String renderIndexNewEngine() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("year", Calendar.getInstance().get(Calendar.YEAR));
+        model.put("q", "");
+        model.put("products", dao.findPage(null, null, pageSize).getItems());
+        return new MustacheTemplateEngine().render(new ModelAndView(model, "index.mustache"));
+    }
+
+    /** Ruta "/" actual: plantilla precompilada, tarjetas cacheadas y salida directa a un Writer. */
+    @Benchmark
+    public void renderIndexPrecompiled(Blackhole bh) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("year", Calendar.getInstance().get(Calendar.YEAR));
+        model.put("q", "");
+        model.put("cards", cards.render(dao.findPage(null, null, pageSize).getItems()));
+        Writer out = Writer.nullWriter();
+        templates.render("index.mustache", model, out);
+        bh.consume(out);
+    }
+}
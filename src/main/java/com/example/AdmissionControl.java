@@ -0,0 +1,349 @@
+package com.example;
+
+import static spark.Spark.afterAfter;
+import static spark.Spark.before;
+import static spark.Spark.halt;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Control de admisión de peticiones (filtro before de Spark), para que una ráfaga de
+ * escrituras de un operador o un script no deje sin conexiones a quien navega.
+ * <ul>
+ *   <li>Cubetas de tokens por IP y globales, con presupuestos separados para lecturas
+ *       (GET/HEAD) y escrituras (el resto). Al agotarse: 429 con Retry-After.</li>
+ *   <li>Escrituras simultáneas acotadas; si la espera reciente por una conexión
+ *       ({@link ConnectionPool#getRecentLatencyMicros()}) pasa el umbral, pasan de a una.
+ *       Las que no entran reciben 503 con Retry-After.</li>
+ * </ul>
+ * Nada toma locks: cada cubeta es un solo AtomicLong (GCRA) y el conteo de escrituras en
+ * curso un AtomicInteger. Con {@code maxClients} IPs se sacan primero las que tienen sus
+ * cubetas llenas de nuevo (olvidarlas no cambia su límite) y, si no alcanza, las más
+ * cercanas a llenarse; nunca se vacía el mapa entero. /ping y /metrics no se limitan.
+ */
+public final class AdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+    /** Parámetros; se leen de propiedades de sistema "admission.*". */
+    public static class Config {
+        /** Lecturas por IP: peticiones por segundo sostenidas y ráfaga. */
+        public double readRatePerClient = 100;
+        public int readBurstPerClient = 200;
+        /** Lecturas de todos los clientes juntos. */
+        public double readRate = 5_000;
+        public int readBurst = 10_000;
+        /** Escrituras por IP (ofertas, compras, API). */
+        public double writeRatePerClient = 5;
+        public int writeBurstPerClient = 20;
+        public double writeRate = 200;
+        public int writeBurst = 400;
+        /** Escrituras en curso a la vez; el resto de las conexiones del pool queda para lecturas. */
+        public int maxConcurrentWrites = 4;
+        /** Latencia reciente de la BD a partir de la cual las escrituras pasan de a una. */
+        public long dbLatencyThresholdMs = 200;
+        /** Retry-After de los 503. */
+        public int retryAfterSeconds = 1;
+        /** IPs con cubeta propia; al llenarse se desalojan las inactivas (ver {@link #evictIdle}). */
+        public int maxClients = 10_000;
+        /** Tomar la IP de X-Forwarded-For (solo detrás de un proxy que la pise). */
+        public boolean trustForwardedFor;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.readRatePerClient = doubleProperty("admission.read.ratePerClient", c.readRatePerClient);
+            c.readBurstPerClient = Integer.getInteger("admission.read.burstPerClient", c.readBurstPerClient);
+            c.readRate = doubleProperty("admission.read.rate", c.readRate);
+            c.readBurst = Integer.getInteger("admission.read.burst", c.readBurst);
+            c.writeRatePerClient = doubleProperty("admission.write.ratePerClient", c.writeRatePerClient);
+            c.writeBurstPerClient = Integer.getInteger("admission.write.burstPerClient", c.writeBurstPerClient);
+            c.writeRate = doubleProperty("admission.write.rate", c.writeRate);
+            c.writeBurst = Integer.getInteger("admission.write.burst", c.writeBurst);
+            c.maxConcurrentWrites = Integer.getInteger("admission.write.maxConcurrent", c.maxConcurrentWrites);
+            c.dbLatencyThresholdMs = Long.getLong("admission.dbLatencyThresholdMs", c.dbLatencyThresholdMs);
+            c.retryAfterSeconds = Integer.getInteger("admission.retryAfterSeconds", c.retryAfterSeconds);
+            c.maxClients = Integer.getInteger("admission.maxClients", c.maxClients);
+            c.trustForwardedFor = Boolean.getBoolean("admission.trustForwardedFor");
+            return c;
+        }
+
+        private static double doubleProperty(String name, double def) {
+            String v = System.getProperty(name);
+            return v == null ? def : Double.parseDouble(v.trim());
+        }
+
+        void validate() {
+            if (readRatePerClient <= 0 || readRate <= 0 || writeRatePerClient <= 0 || writeRate <= 0) {
+                throw new IllegalArgumentException("admission.*.rate debe ser > 0");
+            }
+            if (readBurstPerClient < 1 || readBurst < 1 || writeBurstPerClient < 1 || writeBurst < 1) {
+                throw new IllegalArgumentException("admission.*.burst debe ser >= 1");
+            }
+            if (maxConcurrentWrites < 1) throw new IllegalArgumentException("admission.write.maxConcurrent debe ser >= 1");
+            if (maxClients < 1) throw new IllegalArgumentException("admission.maxClients debe ser >= 1");
+        }
+    }
+
+    /**
+     * Cubeta de tokens como GCRA: guarda solo el instante teórico en que la cubeta vuelve a
+     * estar llena, así tomar un token es un compareAndSet.
+     */
+    static final class TokenBucket {
+        private final long intervalNanos;
+        private final long capacityNanos;
+        private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+        TokenBucket(double ratePerSecond, int burst) {
+            this.intervalNanos = Math.max(1, (long) (1e9 / ratePerSecond));
+            this.capacityNanos = intervalNanos * burst;
+        }
+
+        /** 0 si tomó un token; si no, cuánto falta para el próximo (nanos). */
+        long tryAcquire(long nowNanos) {
+            while (true) {
+                long t = fullAt.get();
+                long next = Math.max(t, nowNanos) + intervalNanos;
+                long wait = next - nowNanos - capacityNanos;
+                if (wait > 0) return wait;
+                if (fullAt.compareAndSet(t, next)) return 0;
+            }
+        }
+
+        /** Instante (nanos) en que la cubeta vuelve a estar llena. */
+        long fullAt() {
+            return fullAt.get();
+        }
+    }
+
+    /** Motivo del rechazo; el orden fija el índice de los contadores. */
+    public enum Reason {
+        CLIENT, GLOBAL, SHED;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    /** Petición rechazada: estado HTTP y segundos para Retry-After. */
+    static final class Rejection {
+        final Reason reason;
+        final int status;
+        final long retryAfterSeconds;
+
+        Rejection(Reason reason, int status, long retryAfterSeconds) {
+            this.reason = reason;
+            this.status = status;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    /** Cubetas de una IP. */
+    private static final class Client {
+        final TokenBucket read;
+        final TokenBucket write;
+
+        Client(Config c) {
+            this.read = new TokenBucket(c.readRatePerClient, c.readBurstPerClient);
+            this.write = new TokenBucket(c.writeRatePerClient, c.writeBurstPerClient);
+        }
+
+        /** Desde cuándo las dos cubetas están llenas: a partir de ahí es igual a una IP nueva. */
+        long idleAt() {
+            return Math.max(read.fullAt(), write.fullAt());
+        }
+    }
+
+    private static final String WRITE_ATTR = "admission.write";
+
+    private final Config config;
+    private final LongSupplier dbLatencyMicros;
+    private final Clock clock;
+    private final long thresholdMicros;
+    private final TokenBucket reads;
+    private final TokenBucket writes;
+    private final ConcurrentHashMap<String, Client> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+    private final AtomicBoolean shedding = new AtomicBoolean();
+    /** Un solo hilo barre el mapa de IPs; los demás siguen sin esperarlo. */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong evictedClients = new AtomicLong();
+    /** Índice = (escritura ? 3 : 0) + motivo. */
+    private final AtomicLongArray rejected = new AtomicLongArray(6);
+
+    /** @param dbLatencyMicros latencia reciente de la BD (p.ej. la del pool) */
+    public AdmissionControl(Config config, LongSupplier dbLatencyMicros) {
+        this(config, dbLatencyMicros, Clock.systemUTC());
+    }
+
+    AdmissionControl(Config config, LongSupplier dbLatencyMicros, Clock clock) {
+        config.validate();
+        this.config = config;
+        this.dbLatencyMicros = dbLatencyMicros;
+        this.clock = clock;
+        this.thresholdMicros = TimeUnit.MILLISECONDS.toMicros(config.dbLatencyThresholdMs);
+        this.reads = new TokenBucket(config.readRate, config.readBurst);
+        this.writes = new TokenBucket(config.writeRate, config.writeBurst);
+    }
+
+    /**
+     * Registra los filtros de Spark. Debe llamarse después de {@link Metrics#install()},
+     * así los rechazos también cuentan en http_requests_total.
+     */
+    public void install() {
+        before((req, res) -> {
+            String path = req.pathInfo();
+            if ("/ping".equals(path) || "/metrics".equals(path)) return;
+            boolean write = isWrite(req.requestMethod());
+            Rejection r = admit(clientIp(req), write);
+            if (r != null) reject(req, res, r);
+            if (write) req.attribute(WRITE_ATTR, Boolean.TRUE);
+        });
+        // afterAfter corre también tras una excepción de la ruta
+        afterAfter((req, res) -> {
+            if (req.attribute(WRITE_ATTR) != null) done();
+        });
+    }
+
+    /**
+     * Decide si entra una petición de {@code ip}; null si entra. Una escritura admitida
+     * ocupa un lugar hasta {@link #done()}.
+     */
+    Rejection admit(String ip, boolean write) {
+        long now = nowNanos();
+        Client client = clients.get(ip);
+        if (client == null) {
+            if (clients.size() >= config.maxClients) evictIdle(now);
+            client = clients.computeIfAbsent(ip, k -> new Client(config));
+        }
+        // Primero la cubeta propia: un cliente ya limitado no gasta el presupuesto global
+        long wait = (write ? client.write : client.read).tryAcquire(now);
+        if (wait > 0) return rejected(write, Reason.CLIENT, 429, seconds(wait));
+        wait = (write ? writes : reads).tryAcquire(now);
+        if (wait > 0) return rejected(write, Reason.GLOBAL, 429, seconds(wait));
+        if (!write) return null;
+
+        boolean slow = dbLatencyMicros.getAsLong() > thresholdMicros;
+        if (slow != shedding.getAndSet(slow)) {
+            if (slow) log.warn("BD lenta (latencia reciente {} ms): escrituras de a una", dbLatencyMicros.getAsLong() / 1_000);
+            else log.info("Latencia de la BD normal: hasta {} escrituras a la vez", config.maxConcurrentWrites);
+        }
+        int limit = slow ? 1 : config.maxConcurrentWrites;
+        while (true) {
+            int n = writesInFlight.get();
+            if (n >= limit) return rejected(true, Reason.SHED, 503, config.retryAfterSeconds);
+            if (writesInFlight.compareAndSet(n, n + 1)) return null;
+        }
+    }
+
+    /**
+     * Con el mapa lleno, saca las IPs inactivas: las que tienen las dos cubetas llenas.
+     * Olvidarlas no cambia nada, porque vuelven con la misma ráfaga que tenían. Si con eso
+     * no se libera un décimo del mapa, saca además las más cercanas a llenarse. Así el
+     * barrido (O(n)) corre a lo sumo una vez cada maxClients/10 IPs nuevas.
+     */
+    private void evictIdle(long now) {
+        if (!evicting.compareAndSet(false, true)) return;
+        try {
+            int target = Math.max(1, config.maxClients / 10);
+            int removed = 0;
+            for (Iterator<Client> it = clients.values().iterator(); it.hasNext(); ) {
+                if (it.next().idleAt() <= now) {
+                    it.remove();
+                    removed++;
+                }
+            }
+            if (removed < target) {
+                // Umbral: el idleAt del target-ésimo más cercano a llenarse (una foto, las cubetas siguen cambiando)
+                long[] idle = clients.values().stream().mapToLong(Client::idleAt).sorted().toArray();
+                if (idle.length > 0) {
+                    long cutoff = idle[Math.min(target - removed, idle.length) - 1];
+                    for (Iterator<Client> it = clients.values().iterator(); it.hasNext() && removed < target; ) {
+                        if (it.next().idleAt() <= cutoff) {
+                            it.remove();
+                            removed++;
+                        }
+                    }
+                }
+            }
+            evictedClients.addAndGet(removed);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /** Libera el lugar de una escritura admitida. */
+    void done() {
+        writesInFlight.decrementAndGet();
+    }
+
+    private Rejection rejected(boolean write, Reason reason, int status, long retryAfterSeconds) {
+        rejected.incrementAndGet((write ? 3 : 0) + reason.ordinal());
+        return new Rejection(reason, status, retryAfterSeconds);
+    }
+
+    private void reject(Request req, Response res, Rejection r) {
+        res.header("Retry-After", String.valueOf(r.retryAfterSeconds));
+        String message = r.status == 503
+                ? "El servidor está ocupado, intenta de nuevo en unos segundos."
+                : "Demasiadas peticiones, intenta de nuevo en unos segundos.";
+        if (req.pathInfo().startsWith("/api/")) {
+            res.type("application/json; charset=utf-8");
+            halt(r.status, JsonAdapters.GSON.toJson(Map.of("error", message)));
+        }
+        res.type("text/plain; charset=utf-8");
+        halt(r.status, "Error: " + message);
+    }
+
+    private String clientIp(Request req) {
+        if (config.trustForwardedFor) {
+            String fwd = req.headers("X-Forwarded-For");
+            if (fwd != null && !fwd.isBlank()) {
+                int comma = fwd.indexOf(',');
+                return (comma < 0 ? fwd : fwd.substring(0, comma)).trim();
+            }
+        }
+        return req.ip();
+    }
+
+    private static boolean isWrite(String method) {
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    private long nowNanos() {
+        Instant t = clock.instant();
+        return t.getEpochSecond() * 1_000_000_000L + t.getNano();
+    }
+
+    private static long seconds(long nanos) {
+        return Math.max(1, (nanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    // ===== métricas =====
+
+    /** Rechazos por tipo de petición y motivo. */
+    public long getRejected(boolean write, Reason reason) {
+        return rejected.get((write ? 3 : 0) + reason.ordinal());
+    }
+
+    public int getWritesInFlight() { return writesInFlight.get(); }
+    public int getClients() { return clients.size(); }
+    /** IPs sacadas del mapa al llenarse. */
+    public long getEvictedClients() { return evictedClients.get(); }
+    public boolean isShedding() { return shedding.get(); }
+    public long getDbLatencyMicros() { return dbLatencyMicros.getAsLong(); }
+}
@@ -0,0 +1,119 @@
+package com.example;
+
+import static spark.Spark.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import com.google.gson.stream.JsonWriter;
+
+import spark.Request;
+
+/**
+ * API JSON de reportes de ventas (/api/analytics/...), sobre los resúmenes de
+ * {@link SalesAnalytics}: ninguna ruta recorre order_items.
+ */
+public class AnalyticsApi {
+
+    private final SalesAnalytics sales;
+    private final ProductRepository products;
+
+    public AnalyticsApi(SalesAnalytics sales, ProductRepository products) {
+        this.sales = sales;
+        this.products = products;
+    }
+
+    /** Registra las rutas /api/analytics/... en Spark. */
+    public void routes() {
+        // ?granularity=day|hour (day por defecto), ?from= y ?to= (yyyy-MM-dd, inclusive).
+        // Sin rango: los últimos 30 días, o el día de hoy por hora.
+        get("/api/analytics/products/:id", ProductApi.json((req, res) -> {
+            String id = req.params(":id");
+            SalesAnalytics.Granularity g = granularity(req.queryParams("granularity"));
+            LocalDate to = date(req, "to", sales::today);
+            LocalDate from = date(req, "from", () -> g == SalesAnalytics.Granularity.DAY ? to.minusDays(29) : to);
+            if (products.findById(id).isEmpty()) return ProductApi.error(res, 404, "El producto no existe: " + id);
+
+            List<SalesAnalytics.Bucket> series = sales.series(id, g, from, to);
+            Optional<SalesAnalytics.Bucket> totals = sales.totals(id);
+            res.header("Cache-Control", "no-cache");
+            return ProductApi.writeJson(res, 200, w -> {
+                w.beginObject();
+                w.name("productId").value(id);
+                w.name("granularity").value(g.name().toLowerCase(Locale.ROOT));
+                w.name("from").value(from.toString());
+                w.name("to").value(to.toString());
+                w.name("totals");
+                if (totals.isPresent()) writeBucket(w, totals.get());
+                else w.nullValue();
+                w.name("series").beginArray();
+                for (SalesAnalytics.Bucket b : series) writeBucket(w, b);
+                w.endArray();
+                w.endObject();
+            });
+        }));
+
+        // Ranking del día: ?day= (hoy por defecto), ?by=revenue|units, ?limit= (1..100, 10 por defecto)
+        get("/api/analytics/top", ProductApi.json((req, res) -> {
+            LocalDate day = date(req, "day", sales::today);
+            String by = req.queryParams("by") == null ? "revenue" : req.queryParams("by").trim();
+            if (!by.equals("revenue") && !by.equals("units")) {
+                throw new IllegalArgumentException("Parámetro inválido: by (revenue o units)");
+            }
+            String limitParam = req.queryParams("limit");
+            int limit = limitParam == null ? 10 : ProductApi.parseInt(limitParam, "limit");
+            List<SalesAnalytics.Bucket> top = sales.top(day, by.equals("units"), limit);
+            res.header("Cache-Control", "no-cache");
+            return ProductApi.writeJson(res, 200, w -> {
+                w.beginObject();
+                w.name("day").value(day.toString());
+                w.name("by").value(by);
+                w.name("items").beginArray();
+                for (SalesAnalytics.Bucket b : top) writeBucket(w, b);
+                w.endArray();
+                w.endObject();
+            });
+        }));
+    }
+
+    private static void writeBucket(JsonWriter w, SalesAnalytics.Bucket b) throws IOException {
+        w.beginObject();
+        w.name("productId").value(b.productId);
+        if (b.start != null) w.name("start").value(b.start);
+        w.name("units").value(b.units);
+        w.name("promoUnits").value(b.promoUnits);
+        w.name("revenue");
+        Money.write(w, b.revenueCents);
+        w.name("listRevenue");
+        Money.write(w, b.listRevenueCents);
+        w.name("discount");
+        Money.write(w, b.discountCents());
+        w.name("minPrice");
+        Money.write(w, b.minPriceCents);
+        w.name("maxPrice");
+        Money.write(w, b.maxPriceCents);
+        w.endObject();
+    }
+
+    private static SalesAnalytics.Granularity granularity(String s) {
+        if (s == null || s.isBlank() || s.trim().equals("day")) return SalesAnalytics.Granularity.DAY;
+        if (s.trim().equals("hour")) return SalesAnalytics.Granularity.HOUR;
+        throw new IllegalArgumentException("Parámetro inválido: granularity (day o hour)");
+    }
+
+    /** Fecha del parámetro, o la de {@code fallback} si no vino. */
+    private static LocalDate date(Request req, String name, Supplier<LocalDate> fallback) {
+        String s = req.queryParams(name);
+        if (s == null || s.isBlank()) return fallback.get();
+        try {
+            return LocalDate.parse(s.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Parámetro inválido: " + name + " (yyyy-MM-dd)");
+        }
+    }
+}
@@ -2,26 +2,28 @@ package com.example;
 
 import static spark.Spark.*;
 
-import java.sql.Connection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import spark.ModelAndView;
-import spark.template.mustache.MustacheTemplateEngine;
-
 public class App {
 
     private static final Logger log = LoggerFactory.getLogger(App.class);
 
     public static void main(String[] args) {
 
-        // Archivos estáticos (src/main/resources/public)
-        staticFiles.location("/public");
+        // Puerto (-Dserver.port, por defecto 4567)
+        port(Integer.getInteger("server.port", 4567));
+
+        // Opcional: peticiones en hilos virtuales (-Dserver.virtualThreads=true, Java 21+)
+        VirtualThreadPool.installIfEnabled();
 
         // Handlers de errores/excepciones
         exception(IllegalArgumentException.class, (ex, req, res) -> {
@@ -40,42 +42,108 @@ public class App {
             return "<h1>500</h1><p>Error interno. Intenta más tarde.</p>";
         });
 
+        // Métricas por ruta (filtros before/afterAfter) + GET /metrics
+        Metrics.install();
+
+        // Límites por IP y globales + escrituras acotadas si la BD se pone lenta
+        // (-Dadmission.enabled=false lo desactiva)
+        if (Boolean.parseBoolean(System.getProperty("admission.enabled", "true"))) {
+            AdmissionControl admission = new AdmissionControl(AdmissionControl.Config.fromSystemProperties(),
+                    () -> Db.pool().getRecentLatencyMicros());
+            admission.install();
+            Metrics.register(admission);
+        }
+
         // Ruta de diagnóstico
         get("/ping", (req, res) -> "pong");
 
-        // ===== Conexión H2 y DAO =====
-        Connection conn = Db.get();
-        ProductDao productDao = new ProductDao(conn);
+        // ===== Pool H2 y DAO =====
+        ProductDao productDao = new ProductDao(Db.dataSource());
+
+        // Opcional: ofertas en segundo plano (-Doffers.writeBehind=true)
+        OfferWriteBehind offerQueue = Boolean.getBoolean("offers.writeBehind")
+                ? productDao.enableWriteBehind(OfferWriteBehind.Config.fromSystemProperties())
+                : null;
+        // Retiro de ofertas vencidas al vencer (-Doffers.expiry=false lo desactiva)
+        OfferExpiryScheduler offerExpiry = Boolean.parseBoolean(System.getProperty("offers.expiry", "true"))
+                ? productDao.enableExpiry(OfferExpiryScheduler.Config.fromSystemProperties())
+                : null;
+        // Varios nodos sobre la misma BD (-Dcatalog.follow=true): lecturas desde una réplica
+        // local que sigue catalog_changes
+        CatalogFollower follower = Boolean.getBoolean("catalog.follow")
+                ? productDao.enableFollower(CatalogFollower.Config.fromSystemProperties())
+                : null;
+        // Un solo hook: primero vaciar la cola de ofertas y después cerrar la BD
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (follower != null) follower.close();
+            if (offerExpiry != null) offerExpiry.close();
+            if (offerQueue != null) offerQueue.close();
+            Db.shutdown();
+        }, "db-shutdown"));
+        Metrics.register(Db.pool(), productDao.catalogStats(), offerQueue);
+        Metrics.register(offerExpiry);
+        Metrics.register(follower);
+
+        // ===== Plantillas compiladas al arrancar + caché de tarjetas =====
+        Templates templates = new Templates();
+        ProductCardCache cards = new ProductCardCache(templates, 10_000);
+        // Páginas del catálogo ya renderizadas (planas + gzip), válidas mientras no cambie el catálogo
+        ResponseCache pages = new ResponseCache(ResponseCache.Config.fromSystemProperties(), productDao::catalogVersion);
+        Metrics.register(pages);
+
+        // ===== Sesiones (mensajes flash): -Dsession.store=cookie|jdbc|jetty =====
+        SessionStore sessions = SessionStore.fromSystemProperties(Db.dataSource());
+
+        // ===== DAOs de usuarios/órdenes y checkout =====
+        UserDao userDao = new UserDao(Db.dataSource());
+        OrderDao orderDao = new OrderDao(Db.dataSource());
+        // Resúmenes de ventas por hora/día/total, sumados en la transacción de cada orden
+        SalesAnalytics sales = new SalesAnalytics(Db.dataSource());
+        OrderItemDao orderItemDao = new OrderItemDao(Db.dataSource(), sales);
+        CheckoutService checkout = new CheckoutService(Db.dataSource(), userDao, orderDao, orderItemDao, productDao);
+
+        // ===== API JSON (/api/products, /api/offers, /api/orders, /api/analytics) =====
+        new ProductApi(productDao, orderDao, checkout).routes();
+        new AnalyticsApi(sales, productDao).routes();
+
+        // ===== Hoja de estilos =====
+        // Las plantillas la enlazan con ?v=<huella>: solo esa URL va como inmutable
+        // Solo se sirve lo que tiene ruta aquí: un archivo nuevo en /public da 404 hasta agregarlo
+        StaticAsset styles = new StaticAsset("/public/styles.css", "text/css; charset=utf-8");
+        get("/styles.css", styles::serve);
 
         // ===== Ruta Home (index) con filtro 'q' =====
         get("/", (req, res) -> {
-            Map<String, Object> model = new HashMap<>();
-            model.put("year", Calendar.getInstance().get(Calendar.YEAR));
+            int year = Calendar.getInstance().get(Calendar.YEAR);
+            String q = ResponseCache.normalizeQuery(req.queryParams("q"));
+            int size = pageSize(req.queryParams("size"));
+            String after = ProductPage.normalizeCursor(req.queryParams("after"));
 
-            // Mensaje flash
-            String flash = req.session().attribute("flash");
+            // Mensaje flash: leerlo no crea sesión, así un visitante anónimo no cuesta estado
+            String flash = sessions.take(req, res, "flash");
             if (flash != null) {
+                Map<String, Object> model = indexModel(year, q, size, after, productDao, cards);
                 model.put("flash", flash);
-                req.session().removeAttribute("flash");
+                return templates.stream(res, "index.mustache", model);
             }
 
-            // Filtro
-            String q = req.queryParams("q");
-            model.put("q", q == null ? "" : q);
-
+            String key = "/|" + year + "|" + size + "|" + (after == null ? "" : after) + "|" + (q == null ? "" : q);
             try {
-                List<Product> products = (q == null || q.isBlank())
-                        ? productDao.findAll()
-                        : productDao.findAllFiltered(q);
-                model.put("products", products);
+                return pages.serve(req, res, key, () -> templates.renderToString("index.mustache",
+                        indexModel(year, q, size, after, productDao, cards)));
+            } catch (IllegalArgumentException e) {
+                throw e;
             } catch (Exception e) {
+                // La página de error no se guarda en el caché
                 log.error("Error consultando productos", e);
-                model.put("products", java.util.List.of());
+                Map<String, Object> model = new HashMap<>();
+                model.put("year", year);
+                model.put("q", q == null ? "" : q);
+                model.put("cards", List.of());
                 model.put("error", "No se pudieron cargar los productos.");
+                return templates.stream(res, "index.mustache", model);
             }
-
-            return new ModelAndView(model, "index.mustache");
-        }, new MustacheTemplateEngine());
+        });
 
         // ===== Formulario de ofertas =====
         post("/offers", (req, res) -> {
@@ -88,11 +156,10 @@ public class App {
                     throw new IllegalArgumentException("Todos los campos son obligatorios.");
                 }
 
-                double promoPrice;
+                long promoCents;
                 try {
-                    promoPrice = Double.parseDouble(promoPriceStr);
-                    if (promoPrice < 0) throw new NumberFormatException();
-                } catch (NumberFormatException nfe) {
+                    promoCents = Money.parse(promoPriceStr);
+                } catch (IllegalArgumentException e) {
                     throw new IllegalArgumentException("Precio promocional inválido.");
                 }
 
@@ -101,15 +168,19 @@ public class App {
                         .orElseThrow(() -> new IllegalArgumentException("El producto no existe: " + itemId));
 
                 // Guarda/actualiza oferta
-                productDao.saveOrUpdateOffer(itemId, promoPrice, validUntil);
+                productDao.saveOrUpdateOffer(itemId, promoCents, validUntil);
 
-                req.session().attribute("flash", "Oferta guardada para " + p.getName());
+                sessions.put(req, res, "flash", "Oferta guardada para " + p.getName());
                 res.redirect("/");
                 return null;
 
             } catch (IllegalArgumentException ex) {
                 res.status(400);
                 return "Error: " + ex.getMessage();
+            } catch (RejectedExecutionException ex) {
+                res.status(503);
+                res.header("Retry-After", "1");
+                return "Error: " + ex.getMessage();
             } catch (Exception e) {
                 log.error("Error al guardar la oferta", e);
                 res.status(500);
@@ -132,13 +203,17 @@ public class App {
                 // Borra la oferta
                 productDao.deleteOffer(itemId);
 
-                req.session().attribute("flash", "Oferta eliminada para " + itemId);
+                sessions.put(req, res, "flash", "Oferta eliminada para " + itemId);
                 res.redirect("/");
                 return null;
 
             } catch (IllegalArgumentException ex) {
                 res.status(400);
                 return "Error: " + ex.getMessage();
+            } catch (RejectedExecutionException ex) {
+                res.status(503);
+                res.header("Retry-After", "1");
+                return "Error: " + ex.getMessage();
             } catch (Exception e) {
                 log.error("Error al eliminar la oferta", e);
                 res.status(500);
@@ -146,9 +221,117 @@ public class App {
             }
         });
 
+        // ===== Listado y detalle de productos =====
+        get("/products", (req, res) -> {
+            int year = Calendar.getInstance().get(Calendar.YEAR);
+            String after = ProductPage.normalizeCursor(req.queryParams("after"));
+            return pages.serve(req, res, "/products|" + year + "|" + (after == null ? "" : after), () -> {
+                Map<String, Object> model = new HashMap<>();
+                model.put("year", year);
+                model.put("products", productDao.findPage(null, after, ProductPage.MAX_SIZE).getItems());
+                return templates.renderToString("products.mustache", model);
+            });
+        });
+
+        get("/products/:id", (req, res) -> {
+            String id = req.params(":id");
+            int year = Calendar.getInstance().get(Calendar.YEAR);
+            return pages.serve(req, res, "/products/:id|" + year + "|" + id, () -> {
+                Product p = productDao.findById(id)
+                        .orElseThrow(() -> new IllegalArgumentException("El producto no existe: " + id));
+                Map<String, Object> model = new HashMap<>();
+                model.put("year", year);
+                model.put("p", p);
+                model.put("noStock", p.getStock() <= 0);
+                return templates.renderToString("product_detail.mustache", model);
+            });
+        });
+
+        // ===== Compra (checkout transaccional) =====
+        post("/purchase", (req, res) -> {
+            try {
+                String productId = value(req.queryParams("productId"));
+                String userId    = value(req.queryParams("userId"));
+                String qtyStr    = value(req.queryParams("qty"));
+                if (productId.isBlank() || userId.isBlank() || qtyStr.isBlank()) {
+                    throw new IllegalArgumentException("Todos los campos son obligatorios.");
+                }
+                int qty;
+                try {
+                    qty = Integer.parseInt(qtyStr);
+                } catch (NumberFormatException nfe) {
+                    throw new IllegalArgumentException("Cantidad inválida.");
+                }
+
+                long orderId = checkout.checkout(userId, List.of(new CheckoutService.Line(productId, qty)));
+                res.redirect("/orders/" + orderId);
+                return null;
+
+            } catch (IllegalArgumentException ex) {
+                res.status(400);
+                return "Error: " + ex.getMessage();
+            } catch (OutOfStockException ex) {
+                res.status(409);
+                return "Error: " + ex.getMessage();
+            } catch (Exception e) {
+                log.error("Error en la compra", e);
+                res.status(500);
+                return "Error interno al procesar la compra.";
+            }
+        });
+
+        get("/orders/:id", (req, res) -> {
+            long id;
+            try {
+                id = Long.parseLong(req.params(":id"));
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException("Id de orden inválido.");
+            }
+            OrderDetail detail = orderDao.findDetail(id)
+                    .orElseThrow(() -> new IllegalArgumentException("La orden no existe: " + id));
+            Map<String, Object> model = new HashMap<>();
+            model.put("year", Calendar.getInstance().get(Calendar.YEAR));
+            model.put("order", detail.getOrder());
+            model.put("items", detail.getItems());
+            return templates.stream(res, "order_detail.mustache", model);
+        });
+
+        // Todas las rutas mapeadas: tabla de patrones para las métricas por ruta
+        Metrics.routesMapped();
+
     } // Fin del método main
 
+    /** Modelo de la home: una página del catálogo filtrada por q (ya normalizado). */
+    private static Map<String, Object> indexModel(int year, String q, int size, String after,
+                                                  ProductRepository products, ProductCardCache cards) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("year", year);
+        model.put("q", q == null ? "" : q);
+        ProductPage page = products.findPage(q, after, size);
+        model.put("cards", cards.render(page.getItems()));
+        if (page.isHasNext()) {
+            model.put("nextUrl", "/?q=" + url(q) + "&size=" + size + "&after=" + page.getNextCursor());
+        }
+        return model;
+    }
+
     private static String value(String s) {
         return (s == null) ? "" : s.trim();
     }
+
+    /** Tamaño de página de ?size= (por defecto 24, máximo 100). */
+    private static int pageSize(String s) {
+        if (s == null || s.isBlank()) return ProductPage.DEFAULT_SIZE;
+        try {
+            int n = Integer.parseInt(s.trim());
+            if (n >= 1 && n <= ProductPage.MAX_SIZE) return n;
+        } catch (NumberFormatException ignored) {
+            // cae al error de abajo
+        }
+        throw new IllegalArgumentException("Tamaño de página inválido (1-" + ProductPage.MAX_SIZE + ").");
+    }
+
+    private static String url(String s) {
+        return s == null ? "" : URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.example;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché read-through del catálogo: una foto inmutable de la lista de productos
+ * más un índice por id. Las escrituras de pocos productos arman una foto nueva con
+ * esas filas ({@link #patch}); las masivas la invalidan. Cuando vence la próxima
+ * oferta (valid_until) la foto se rearma sin esa promoción, sin volver a la BD,
+ * así nunca muestra promociones expiradas.
+ */
+public class CatalogCache {
+
+    /** Foto inmutable del catálogo. */
+    static final class Snapshot {
+        final List<Product> products;
+        final Map<String, Product> byId;
+        final long version;
+        /** Epoch millis en que vence la primera oferta vigente (Long.MAX_VALUE si no hay). */
+        final long expiresAtMillis;
+
+        Snapshot(List<Product> products, Map<String, Product> byId, long version, long expiresAtMillis) {
+            this.products = products;
+            this.byId = byId;
+            this.version = version;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final Supplier<List<Product>> loader;
+    private final Clock clock;
+
+    private volatile Snapshot current;
+    /** Lock y no synchronized: la recarga hace JDBC y no debe fijar un hilo virtual a su portador. */
+    private final ReentrantLock loadLock = new ReentrantLock();
+    /** Se incrementa en cada invalidación; evita instalar una foto cargada antes de una escritura. */
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong versions = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong patches = new AtomicLong();
+
+    CatalogCache(Supplier<List<Product>> loader, Clock clock) {
+        this.loader = loader;
+        this.clock = clock;
+    }
+
+    /** Devuelve la foto vigente, cargándola de la BD si falta o caducó. */
+    Snapshot get() {
+        Snapshot s = current;
+        if (s != null && clock.millis() < s.expiresAtMillis) {
+            hits.incrementAndGet();
+            return s;
+        }
+        loadLock.lock();
+        try {
+            s = current;
+            if (s != null && clock.millis() < s.expiresAtMillis) {
+                hits.incrementAndGet();
+                return s;
+            }
+            if (s != null) {
+                // Venció una oferta: basta con quitarla de la foto (la BD diría lo mismo)
+                expirations.incrementAndGet();
+                long gen = generation.get();
+                Snapshot fresh = build(s.products);
+                if (generation.get() == gen) current = fresh;
+                return fresh;
+            }
+            misses.incrementAndGet();
+            long gen = generation.get();
+            Snapshot fresh = build(loader.get());
+            if (generation.get() == gen) current = fresh;
+            return fresh;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Reemplaza en la foto vigente los productos que devuelve {@code rows} (los nuevos se
+     * agregan), sin releer el catálogo. Las filas se leen con el lock tomado: si dos
+     * escrituras parchean a la vez, la última lectura ve las dos. Sin foto no hace nada
+     * (la próxima lectura carga todo).
+     */
+    void patch(Supplier<List<Product>> rows) {
+        loadLock.lock();
+        try {
+            long gen = generation.get();
+            Snapshot s = current;
+            if (s == null || clock.millis() >= s.expiresAtMillis) return;
+            Map<String, Product> changed = new HashMap<>();
+            for (Product p : rows.get()) changed.put(p.getId(), p);
+            if (changed.isEmpty()) return;
+            List<Product> list = new ArrayList<>(s.products.size() + changed.size());
+            for (Product p : s.products) {
+                Product q = changed.remove(p.getId());
+                list.add(q != null ? q : p);
+            }
+            list.addAll(changed.values());
+            Snapshot fresh = build(list);
+            if (generation.get() == gen) {
+                current = fresh;
+                patches.incrementAndGet();
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /** Descarta la foto actual; la próxima lectura recarga. */
+    void invalidate() {
+        generation.incrementAndGet();
+        if (current != null) {
+            current = null;
+            evictions.incrementAndGet();
+        }
+    }
+
+    private Snapshot build(List<Product> rows) {
+        LocalDate today = LocalDate.now(clock);
+        String todayIso = today.toString();
+        String nextExpiry = null;
+
+        List<Product> list = new ArrayList<>(rows.size());
+        Map<String, Product> byId = new HashMap<>(rows.size() * 4 / 3 + 1);
+        for (Product p : rows) {
+            String until = p.getValidUntil();
+            if (until != null) {
+                // yyyy-MM-dd se compara bien como texto
+                if (until.compareTo(todayIso) < 0) {
+                    // copia: el producto puede estar en una foto anterior que alguien lee
+                    p = new Product(p);
+                    p.clearPromo();
+                } else if (nextExpiry == null || until.compareTo(nextExpiry) < 0) {
+                    nextExpiry = until;
+                }
+            }
+            list.add(p);
+            byId.put(p.getId(), p);
+        }
+        // La BD ya entrega (nombre, id) pero el cursor compara en Java: ordenamos con el mismo criterio
+        list.sort(CatalogView.BY_NAME_ID);
+
+        long expiresAt = nextExpiry == null
+                ? Long.MAX_VALUE
+                : LocalDate.parse(nextExpiry).plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        return new Snapshot(Collections.unmodifiableList(list), byId, versions.incrementAndGet(), expiresAt);
+    }
+
+    // ===== métricas =====
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+    public long getExpirations() { return expirations.get(); }
+    public long getPatches() { return patches.get(); }
+
+    @Override
+    public String toString() {
+        return "CatalogCache{hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + ", expirations=" + getExpirations()
+                + ", patches=" + getPatches() + "}";
+    }
+}
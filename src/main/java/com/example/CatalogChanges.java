@@ -0,0 +1,45 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * Escritura en catalog_changes. Se llama con la conexión de la escritura, antes del commit:
+ * el cambio y su registro se confirman (o se deshacen) juntos. Solo se anota el id;
+ * quien sigue el registro relee el producto y su oferta.
+ */
+final class CatalogChanges {
+
+    /** Datos base del producto (alta, update, importación). */
+    static final String PRODUCT = "PRODUCT";
+    /** Stock descontado en checkout. */
+    static final String STOCK = "STOCK";
+    /** Oferta creada, cambiada, borrada o vencida. */
+    static final String OFFER = "OFFER";
+
+    private static final String INSERT = "INSERT INTO catalog_changes(kind, product_id) VALUES (?, ?)";
+
+    private CatalogChanges() {}
+
+    static void record(Connection c, String kind, String productId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(INSERT)) {
+            ps.setString(1, kind);
+            ps.setString(2, productId);
+            ps.executeUpdate();
+        }
+    }
+
+    static void recordAll(Connection c, String kind, Collection<String> productIds) throws SQLException {
+        if (productIds.isEmpty()) return;
+        try (PreparedStatement ps = c.prepareStatement(INSERT)) {
+            for (String id : productIds) {
+                ps.setString(1, kind);
+                ps.setString(2, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}
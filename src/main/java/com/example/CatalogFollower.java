@@ -0,0 +1,311 @@
+package com.example;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sigue catalog_changes y aplica los cambios a una réplica local del catálogo
+ * ({@link InMemoryProductRepository}). Así cada nodo ve lo que escriben los demás.
+ * <ul>
+ *   <li>Arranque: anota el último seq y carga el catálogo entero; desde ahí solo lee cambios.</li>
+ *   <li>Cada {@code intervalMs} lee los cambios nuevos, relee en una consulta los productos
+ *       afectados (con su oferta) y los reemplaza en la réplica: releer es idempotente, así
+ *       que ver dos veces un cambio no hace daño.</li>
+ *   <li>Huecos: el seq se asigna al insertar y la fila aparece al confirmar, así que una
+ *       transacción lenta puede dejar un seq menor visible después de uno mayor. Los seq que
+ *       faltan se vuelven a buscar hasta {@code gapTimeoutMs}; después se dan por perdidos
+ *       (transacción deshecha).</li>
+ *   <li>Retención: borra cambios más viejos que {@code retentionHours}; un seguidor que no
+ *       pudo leer durante la mitad de ese tiempo recarga todo en vez de confiar en el registro.</li>
+ * </ul>
+ */
+public class CatalogFollower implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogFollower.class);
+
+    /** Seq previos al arranque que se revisan por si hay transacciones aún sin confirmar. */
+    private static final int BOOTSTRAP_WINDOW = 1_000;
+    /** Más huecos que esto en una lectura no son transacciones en curso: se ignoran. */
+    private static final int MAX_GAP = 10_000;
+    private static final long PURGE_EVERY_MS = 3_600_000;
+
+    /** Parámetros; se leen de propiedades de sistema "catalog.follow.*". */
+    public static class Config {
+        public long intervalMs = 200;
+        public int batchSize = 1_000;
+        public long gapTimeoutMs = 5_000;
+        public int retentionHours = 24;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.intervalMs = Long.getLong("catalog.follow.intervalMs", c.intervalMs);
+            c.batchSize = Integer.getInteger("catalog.follow.batchSize", c.batchSize);
+            c.gapTimeoutMs = Long.getLong("catalog.follow.gapTimeoutMs", c.gapTimeoutMs);
+            c.retentionHours = Integer.getInteger("catalog.follow.retentionHours", c.retentionHours);
+            return c;
+        }
+    }
+
+    private static final String SELECT_ROWS = """
+            SELECT p.id, p.name, p.descr, p.image_url, p.price_cents, p.stock,
+                   o.promo_price_cents, o.valid_until
+            FROM products p
+            LEFT JOIN product_offers o ON o.product_id = p.id
+            """;
+
+    private final DataSource ds;
+    private final InMemoryProductRepository replica;
+    private final Config config;
+    private final Clock clock;
+    private final ScheduledExecutorService timer;
+    /** Lock y no synchronized: poll hace JDBC (hilos virtuales) y lo llaman el timer y las escrituras. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Mayor seq leído. */
+    private long highest;
+    /** Seq que faltan por debajo de highest → cuándo se notó el hueco. */
+    private final Map<Long, Long> gaps = new HashMap<>();
+    private long lastOk;
+    private long lastPurge;
+
+    private final AtomicLong position = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicInteger pendingGaps = new AtomicInteger();
+    private final AtomicLong gapsSkipped = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public CatalogFollower(DataSource ds, InMemoryProductRepository replica, Config config, Clock clock) {
+        this.ds = ds;
+        this.replica = replica;
+        this.config = config;
+        this.clock = clock;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-follower");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Carga la réplica (en este hilo: al volver ya está al día) y empieza a seguir el registro. */
+    public CatalogFollower start() {
+        lock.lock();
+        try {
+            resync();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error cargando la réplica del catálogo", e);
+        } finally {
+            lock.unlock();
+        }
+        timer.scheduleWithFixedDelay(this::poll, config.intervalMs, config.intervalMs, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Aplica los cambios confirmados hasta ahora; devuelve cuántos productos releyó.
+     * Lo llama el timer y, tras escribir, el propio nodo (así lee lo que acaba de escribir).
+     * Los errores se registran y se reintenta en la próxima vuelta.
+     */
+    public int poll() {
+        lock.lock();
+        long prevHighest = highest;
+        Map<Long, Long> prevGaps = new HashMap<>(gaps);
+        try {
+            long now = clock.millis();
+            if (now - lastOk > config.retentionHours * 3_600_000L / 2) {
+                log.warn("Réplica del catálogo sin leer cambios desde hace {} ms: se recarga entera", now - lastOk);
+                resync();
+                return 0;
+            }
+            int n;
+            try (Connection c = ds.getConnection()) {
+                Set<String> ids = new LinkedHashSet<>();
+                readNew(c, ids, now);
+                if (!gaps.isEmpty()) readGaps(c, ids, now);
+                pendingGaps.set(gaps.size());
+                n = ids.isEmpty() ? 0 : refresh(c, ids);
+                purgeOld(c, now);
+            }
+            lastOk = now;
+            polls.incrementAndGet();
+            return n;
+        } catch (SQLException | RuntimeException e) {
+            // Lo leído no llegó a la réplica: se vuelve a leer en la próxima vuelta
+            highest = prevHighest;
+            gaps.clear();
+            gaps.putAll(prevGaps);
+            failures.incrementAndGet();
+            log.warn("Réplica del catálogo: error leyendo cambios, se reintenta ({})", e.toString());
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Cambios con seq > highest; anota los seq salteados como huecos. */
+    private void readNew(Connection c, Set<String> ids, long now) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT seq, product_id FROM catalog_changes WHERE seq > ? ORDER BY seq FETCH FIRST ? ROWS ONLY")) {
+            ps.setLong(1, highest);
+            ps.setInt(2, config.batchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long seq = rs.getLong(1);
+                    noteGaps(highest, seq, now);
+                    highest = seq;
+                    ids.add(rs.getString(2));
+                    changes.incrementAndGet();
+                }
+            }
+        }
+        position.set(highest);
+    }
+
+    private void noteGaps(long from, long to, long now) {
+        if (to - from - 1 > MAX_GAP) {
+            log.warn("Réplica del catálogo: {} seq sin cambios entre {} y {}; no se esperan", to - from - 1, from, to);
+            return;
+        }
+        for (long s = from + 1; s < to; s++) gaps.put(s, now);
+    }
+
+    /** Busca los huecos pendientes; los que vencieron sin aparecer se descartan. */
+    private void readGaps(Connection c, Set<String> ids, long now) throws SQLException {
+        Long[] wanted = gaps.keySet().toArray(new Long[0]);
+        Array arr = c.createArrayOf("BIGINT", wanted);
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT seq, product_id FROM catalog_changes WHERE seq = ANY(?)")) {
+            ps.setArray(1, arr);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    gaps.remove(rs.getLong(1));
+                    ids.add(rs.getString(2));
+                    changes.incrementAndGet();
+                }
+            }
+        } finally {
+            arr.free();
+        }
+        for (Iterator<Long> it = gaps.values().iterator(); it.hasNext(); ) {
+            if (now - it.next() >= config.gapTimeoutMs) {
+                it.remove();
+                gapsSkipped.incrementAndGet();
+            }
+        }
+    }
+
+    /** Relee los productos indicados y los reemplaza en la réplica. */
+    private int refresh(Connection c, Set<String> ids) throws SQLException {
+        replica.apply(ids, ProductDao.loadRows(c, ids));
+        applied.addAndGet(ids.size());
+        return ids.size();
+    }
+
+    /**
+     * Recarga todo: primero el seq actual, después el catálogo, así lo que se confirme en el
+     * medio se vuelve a aplicar. Los seq sin fila de la ventana previa quedan como huecos por
+     * si son transacciones todavía abiertas.
+     */
+    private void resync() throws SQLException {
+        long now = clock.millis();
+        List<Product> rows = new ArrayList<>();
+        try (Connection c = ds.getConnection()) {
+            long max;
+            List<Long> recent = new ArrayList<>();
+            try (PreparedStatement ps = c.prepareStatement("SELECT COALESCE(MAX(seq), 0) FROM catalog_changes");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                max = rs.getLong(1);
+            }
+            try (PreparedStatement ps = c.prepareStatement(
+                    "SELECT seq FROM catalog_changes WHERE seq > ? AND seq <= ? ORDER BY seq")) {
+                ps.setLong(1, Math.max(0, max - BOOTSTRAP_WINDOW));
+                ps.setLong(2, max);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) recent.add(rs.getLong(1));
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement(SELECT_ROWS);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) rows.add(ProductDao.mapRow(rs));
+            }
+            gaps.clear();
+            long prev = Math.max(0, max - BOOTSTRAP_WINDOW);
+            for (long seq : recent) {
+                noteGaps(prev, seq, now);
+                prev = seq;
+            }
+            highest = max;
+            pendingGaps.set(gaps.size());
+        }
+        replica.replaceAll(rows);
+        position.set(highest);
+        lastOk = now;
+        resyncs.incrementAndGet();
+        log.info("Réplica del catálogo cargada: {} productos (seq {})", rows.size(), highest);
+    }
+
+    /** Borra cambios vencidos, como mucho una vez por hora (lo hace cualquier nodo). */
+    private void purgeOld(Connection c, long now) throws SQLException {
+        if (now - lastPurge < PURGE_EVERY_MS) return;
+        lastPurge = now;
+        try (PreparedStatement ps = c.prepareStatement("DELETE FROM catalog_changes WHERE changed_at < ?")) {
+            ps.setTimestamp(1, new Timestamp(now - config.retentionHours * 3_600_000L));
+            int n = ps.executeUpdate();
+            if (n > 0) log.info("Registro de cambios del catálogo: {} entradas viejas borradas", n);
+        }
+    }
+
+    /** Réplica que mantiene este seguidor. */
+    public InMemoryProductRepository replica() {
+        return replica;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdown();
+        try {
+            if (!timer.awaitTermination(5, TimeUnit.SECONDS)) timer.shutdownNow();
+        } catch (InterruptedException e) {
+            timer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== métricas =====
+    /** Último seq leído del registro. */
+    public long getPosition() { return position.get(); }
+    public long getPolls() { return polls.get(); }
+    public long getChanges() { return changes.get(); }
+    public long getApplied() { return applied.get(); }
+    /** Seq salteados que todavía se esperan. */
+    public int getPendingGaps() { return pendingGaps.get(); }
+    public long getGapsSkipped() { return gapsSkipped.get(); }
+    public long getResyncs() { return resyncs.get(); }
+    public long getFailures() { return failures.get(); }
+}
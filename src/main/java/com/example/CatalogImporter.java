@@ -0,0 +1,274 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Importación masiva de productos (y sus ofertas) desde CSV o JSON Lines.
+ * Lee el archivo en streaming y hace MERGE por lotes: un executeBatch y un commit por lote
+ * (que también anota los ids en catalog_changes).
+ *
+ * <p>CSV: cabecera {@code id,name,descr,image_url,price,stock,promo_price,valid_until}
+ * (las dos últimas opcionales). Campos entre comillas dobles con {@code ""} como escape;
+ * no se admiten saltos de línea dentro de un campo.
+ * <p>JSONL: un objeto por línea con los campos de la API ({@code id, name, descr, imageUrl,
+ * price, stock, promoPrice, validUntil}).
+ *
+ * <p>Uso: {@code java -cp ... com.example.CatalogImporter catalogo.csv [tamañoLote]}
+ */
+public class CatalogImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogImporter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    private static final String MERGE_PRODUCT = """
+        MERGE INTO products(id, name, descr, image_url, price_cents, stock)
+        KEY(id)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+    private static final String MERGE_OFFER = """
+        MERGE INTO product_offers(product_id, promo_price_cents, valid_until)
+        KEY(product_id)
+        VALUES (?, ?, ?)
+        """;
+
+    /** Resumen de una importación. */
+    public static final class Result {
+        public final long products;
+        public final long offers;
+        public final long batches;
+
+        Result(long products, long offers, long batches) {
+            this.products = products;
+            this.offers = offers;
+            this.batches = batches;
+        }
+
+        @Override
+        public String toString() {
+            return products + " productos, " + offers + " ofertas en " + batches + " lotes";
+        }
+    }
+
+    private final DataSource ds;
+    private final int batchSize;
+
+    public CatalogImporter(DataSource ds, int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("El tamaño de lote debe ser >= 1");
+        this.ds = ds;
+        this.batchSize = batchSize;
+    }
+
+    /** Importa según la extensión: .jsonl/.ndjson como JSON Lines, lo demás como CSV. */
+    public Result importFile(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? importJsonLines(in) : importCsv(in);
+        }
+    }
+
+    public Result importCsv(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader b ? b : new BufferedReader(reader);
+        String header = in.readLine();
+        if (header == null) return new Result(0, 0, 0);
+        List<String> cols = parseCsvLine(header.replace("\uFEFF", ""), 1);
+        int[] idx = new int[8];
+        String[] names = {"id", "name", "descr", "image_url", "price", "stock", "promo_price", "valid_until"};
+        for (int i = 0; i < names.length; i++) idx[i] = cols.indexOf(names[i]);
+        for (int i = 0; i < 6; i++) {
+            if (idx[i] < 0) throw new IllegalArgumentException("Falta la columna " + names[i] + " en la cabecera CSV");
+        }
+
+        return run(new RowSource() {
+            long lineNo = 1;
+
+            @Override
+            public Product next() throws IOException {
+                String line;
+                do {
+                    line = in.readLine();
+                    lineNo++;
+                    if (line == null) return null;
+                } while (line.isBlank());
+                List<String> f = parseCsvLine(line, lineNo);
+                try {
+                    Product p = new Product(col(f, idx[0]), col(f, idx[1]), col(f, idx[2]), col(f, idx[3]),
+                            Money.parse(col(f, idx[4])), Integer.parseInt(col(f, idx[5])));
+                    String promo = col(f, idx[6]);
+                    if (promo != null) {
+                        p.setPromoCents(Money.parse(promo));
+                        p.setValidUntil(col(f, idx[7]));
+                    }
+                    return p;
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Línea " + lineNo + " inválida: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    public Result importJsonLines(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader b ? b : new BufferedReader(reader);
+        return run(new RowSource() {
+            long lineNo;
+
+            @Override
+            public Product next() throws IOException {
+                String line;
+                do {
+                    line = in.readLine();
+                    lineNo++;
+                    if (line == null) return null;
+                } while (line.isBlank());
+                try (JsonReader jr = new JsonReader(new StringReader(line))) {
+                    return JsonAdapters.PRODUCT.read(jr);
+                } catch (IOException | RuntimeException e) {
+                    throw new IllegalArgumentException("Línea " + lineNo + " inválida: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    private interface RowSource {
+        /** Siguiente producto o null al terminar. */
+        Product next() throws IOException;
+    }
+
+    private Result run(RowSource source) throws IOException {
+        long products = 0, offers = 0, batches = 0;
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(MERGE_PRODUCT);
+                 PreparedStatement po = c.prepareStatement(MERGE_OFFER)) {
+                int inBatch = 0, offersInBatch = 0;
+                List<String> ids = new ArrayList<>(Math.min(batchSize, 10_000));
+                Product p;
+                while ((p = source.next()) != null) {
+                    validate(p);
+                    ids.add(p.getId());
+                    ps.setString(1, p.getId());
+                    ps.setString(2, p.getName());
+                    ps.setString(3, p.getDescr());
+                    ps.setString(4, p.getImageUrl());
+                    ps.setLong(5, p.getPriceCents());
+                    ps.setInt(6, p.getStock());
+                    ps.addBatch();
+                    if (p.hasPromo()) {
+                        po.setString(1, p.getId());
+                        po.setLong(2, p.getPromoCents());
+                        po.setDate(3, java.sql.Date.valueOf(p.getValidUntil()));
+                        po.addBatch();
+                        offersInBatch++;
+                    }
+                    if (++inBatch == batchSize) {
+                        flush(c, ps, po, offersInBatch, ids);
+                        products += inBatch;
+                        offers += offersInBatch;
+                        batches++;
+                        inBatch = 0;
+                        offersInBatch = 0;
+                    }
+                }
+                if (inBatch > 0) {
+                    flush(c, ps, po, offersInBatch, ids);
+                    products += inBatch;
+                    offers += offersInBatch;
+                    batches++;
+                }
+            } catch (SQLException | RuntimeException e) {
+                c.rollback(); // solo el lote en curso; los anteriores ya quedaron confirmados
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error importando catálogo (lote " + (batches + 1) + ")", e);
+        }
+        return new Result(products, offers, batches);
+    }
+
+    private static void flush(Connection c, PreparedStatement ps, PreparedStatement po, int offers,
+                              List<String> ids) throws SQLException {
+        ps.executeBatch();
+        if (offers > 0) po.executeBatch(); // después de products por la FK
+        CatalogChanges.recordAll(c, CatalogChanges.PRODUCT, ids);
+        c.commit();
+        ids.clear();
+    }
+
+    private static void validate(Product p) {
+        if (p.getId() == null || p.getId().isBlank()) throw new IllegalArgumentException("Producto sin id");
+        if (p.getName() == null || p.getName().isBlank()) {
+            throw new IllegalArgumentException("Producto " + p.getId() + " sin nombre");
+        }
+        if (p.hasPromo() && p.getValidUntil() == null) {
+            throw new IllegalArgumentException("Oferta de " + p.getId() + " sin valid_until");
+        }
+    }
+
+    private static String col(List<String> fields, int i) {
+        if (i < 0 || i >= fields.size()) return null;
+        String v = fields.get(i).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    /** Parte una línea CSV respetando comillas dobles. */
+    static List<String> parseCsvLine(String line, long lineNo) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cur.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    cur.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                out.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(ch);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Línea " + lineNo + ": comillas sin cerrar");
+        out.add(cur.toString());
+        return out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: CatalogImporter <archivo.csv|archivo.jsonl> [tamañoLote]");
+            System.exit(2);
+        }
+        int batch = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BATCH_SIZE;
+        long t0 = System.nanoTime();
+        Result r = new CatalogImporter(Db.dataSource(), batch).importFile(Path.of(args[0]));
+        log.info("Importados {} en {} ms", r, (System.nanoTime() - t0) / 1_000_000);
+        Db.shutdown();
+    }
+}
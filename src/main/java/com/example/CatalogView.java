@@ -0,0 +1,178 @@
+package com.example;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lecturas del catálogo sobre un {@link CatalogCache}: listado, páginas por cursor,
+ * búsqueda e id. La comparten los backends de {@link ProductRepository}; cada uno
+ * aporta solo cómo cargar la lista completa.
+ * Los productos devueltos son los de la foto (compartidos): quien los expone decide si copia.
+ */
+final class CatalogView {
+
+    /** Orden del listado: nombre y, a igual nombre, id. */
+    static final Comparator<Product> BY_NAME_ID =
+            Comparator.comparing(Product::getName).thenComparing(Product::getId);
+
+    final CatalogCache cache;
+    private volatile ProductSearchIndex searchIndex;
+    /**
+     * Ordena la construcción del índice con updated() e invalidate(): el índice se arma con
+     * una foto leída con el lock tomado, así una actualización o entra en esa foto o se
+     * aplica después sobre el índice ya publicado.
+     */
+    private final ReentrantLock indexLock = new ReentrantLock();
+
+    CatalogView(Supplier<List<Product>> loader, Clock clock) {
+        this.cache = new CatalogCache(loader, clock);
+    }
+
+    List<Product> all() {
+        return cache.get().products;
+    }
+
+    long version() {
+        return cache.get().version;
+    }
+
+    /** Producto de la foto vigente, o null. */
+    Product byId(String id) {
+        return cache.get().byId.get(id);
+    }
+
+    /**
+     * Tras cambiar stock u ofertas de pocos productos: los reemplaza en la foto sin recargar
+     * el catálogo. Nombre y descripción no cambian por esta vía, así que el índice queda igual.
+     */
+    void patch(Supplier<List<Product>> rows) {
+        cache.patch(rows);
+    }
+
+    /** Descarta la foto; el índice de búsqueda se conserva (p.ej. tras cambiar una oferta). */
+    void invalidateSnapshot() {
+        cache.invalidate();
+    }
+
+    /** Descarta la foto y el índice de búsqueda. */
+    void invalidate() {
+        indexLock.lock();
+        try {
+            cache.invalidate();
+            searchIndex = null;
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Tras actualizar los datos base de p (que existe en la BD): nueva foto y el índice al
+     * día sin reconstruirlo.
+     */
+    void updated(Product p) {
+        indexLock.lock();
+        try {
+            cache.invalidate();
+            ProductSearchIndex idx = searchIndex;
+            if (idx != null) idx.put(p);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Página por cursor (keyset): sin q, en orden (nombre, id); con q, en orden de
+     * relevancia de la búsqueda. {@code after} es el cursor de la página anterior.
+     */
+    ProductPage page(String q, String after, int limit) {
+        if (limit < 1 || limit > ProductPage.MAX_SIZE) {
+            throw new IllegalArgumentException("Tamaño de página inválido: " + limit);
+        }
+        ProductPage.Cursor cursor = ProductPage.Cursor.decode(after);
+        CatalogCache.Snapshot snap = cache.get();
+
+        if (q == null || q.isBlank()) {
+            List<Product> all = snap.products;
+            int from = 0;
+            if (cursor != null) {
+                Product key = new Product(cursor.id, cursor.name, null, null, 0, 0);
+                from = seek(all, key, BY_NAME_ID);
+            }
+            int to = Math.min(all.size(), from + limit);
+            List<Product> items = all.subList(from, to);
+            String next = null;
+            if (to < all.size()) {
+                Product last = items.get(items.size() - 1);
+                next = new ProductPage.Cursor(0, last.getId(), last.getName()).encode();
+            }
+            return new ProductPage(items, next);
+        }
+
+        // Uno de más para saber si hay página siguiente, sin ordenar todos los aciertos
+        ProductSearchIndex.Hit key = cursor == null ? null
+                : new ProductSearchIndex.Hit(cursor.id, cursor.name, cursor.score);
+        List<ProductSearchIndex.Hit> hits = searchIndex().searchPage(q, key, limit + 1);
+        int to = Math.min(hits.size(), limit);
+        List<Product> items = new ArrayList<>(to);
+        for (int i = 0; i < to; i++) {
+            Product p = snap.byId.get(hits.get(i).id);
+            if (p != null) items.add(p);
+        }
+        String next = null;
+        if (hits.size() > limit) {
+            ProductSearchIndex.Hit last = hits.get(to - 1);
+            next = new ProductPage.Cursor(last.score, last.id, last.name).encode();
+        }
+        return new ProductPage(items, next);
+    }
+
+    /**
+     * Búsqueda por texto en nombre/descr usando el índice invertido
+     * (sin acentos, por prefijo de palabra, ordenada por relevancia).
+     * Con q nulo o en blanco devuelve todo el catálogo.
+     */
+    List<Product> search(String q) {
+        if (q == null || q.isBlank()) return all();
+        CatalogCache.Snapshot snap = cache.get();
+        List<ProductSearchIndex.Hit> hits = searchIndex().search(q);
+        List<Product> out = new ArrayList<>(hits.size());
+        for (ProductSearchIndex.Hit h : hits) {
+            Product p = snap.byId.get(h.id);
+            if (p != null) out.add(p);
+        }
+        return out;
+    }
+
+    /** Posición del primer elemento estrictamente mayor que key (búsqueda binaria). */
+    private static <T> int seek(List<T> sorted, T key, Comparator<? super T> cmp) {
+        int lo = 0, hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cmp.compare(sorted.get(mid), key) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Índice de búsqueda; se construye una vez y luego se actualiza en cada update().
+     * No usa la foto de quien pregunta: puede ser anterior a un updated() que ya vio
+     * el índice en null.
+     */
+    private ProductSearchIndex searchIndex() {
+        ProductSearchIndex idx = searchIndex;
+        if (idx != null) return idx;
+        indexLock.lock();
+        try {
+            idx = searchIndex;
+            if (idx == null) searchIndex = idx = new ProductSearchIndex(cache.get().products);
+            return idx;
+        } finally {
+            indexLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checkout transaccional: valida usuario, descuenta stock de forma condicional,
+ * calcula el total con las ofertas vigentes e inserta orden + líneas,
+ * todo en una sola transacción. Si algo falla no queda nada escrito.
+ */
+public class CheckoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutService.class);
+
+    /** Reintentos ante bloqueos/deadlocks de H2 antes de rendirse. */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Línea del carrito. */
+    public static final class Line {
+        final String productId;
+        final int qty;
+
+        public Line(String productId, int qty) {
+            this.productId = productId;
+            this.qty = qty;
+        }
+    }
+
+    private final DataSource ds;
+    private final UserDao userDao;
+    private final OrderDao orderDao;
+    private final OrderItemDao orderItemDao;
+    private final ProductDao productDao;
+
+    public CheckoutService(DataSource ds, UserDao userDao, OrderDao orderDao,
+                           OrderItemDao orderItemDao, ProductDao productDao) {
+        this.ds = ds;
+        this.userDao = userDao;
+        this.orderDao = orderDao;
+        this.orderItemDao = orderItemDao;
+        this.productDao = productDao;
+    }
+
+    /**
+     * Crea la orden y devuelve su id.
+     * @throws IllegalArgumentException si el usuario/producto no existe o la cantidad es inválida
+     * @throws OutOfStockException si alguna línea no tiene stock suficiente
+     */
+    public long checkout(String userId, List<Line> lines) {
+        if (lines == null || lines.isEmpty()) throw new IllegalArgumentException("El pedido está vacío.");
+
+        // Agrupa por producto y ordena por id: todas las transacciones bloquean filas en el mismo orden
+        Map<String, Integer> qtyByProduct = new TreeMap<>();
+        for (Line l : lines) {
+            if (l.qty <= 0) throw new IllegalArgumentException("Cantidad inválida para " + l.productId);
+            qtyByProduct.merge(l.productId, l.qty, Integer::sum);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long orderId = runOnce(userId, qtyByProduct);
+                productDao.refresh(qtyByProduct.keySet()); // cambió el stock de esas filas
+                return orderId;
+            } catch (RetryableException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new RuntimeException("No se pudo completar la compra (contención en BD)", e.getCause());
+                }
+                log.debug("Reintentando checkout ({}/{})", attempt, MAX_ATTEMPTS, e.getCause());
+            }
+        }
+    }
+
+    private long runOnce(String userId, Map<String, Integer> qtyByProduct) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                userDao.findById(c, userId)
+                        .orElseThrow(() -> new IllegalArgumentException("El usuario no existe: " + userId));
+
+                reserveStock(c, qtyByProduct);
+                CatalogChanges.recordAll(c, CatalogChanges.STOCK, qtyByProduct.keySet());
+                List<OrderItem> items = priceItems(c, qtyByProduct);
+
+                long total = 0;
+                for (OrderItem it : items) total = Math.addExact(total, it.getSubtotalCents());
+
+                long orderId = orderDao.create(c, userId, total);
+                orderItemDao.createAll(c, orderId, items);
+                c.commit();
+                return orderId;
+            } catch (RuntimeException | SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (isRetryable(e)) throw new RetryableException(e);
+            throw new RuntimeException("Error en checkout", e);
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof SQLException se && isRetryable(se)) throw new RetryableException(se);
+            throw e;
+        }
+    }
+
+    /** UPDATE condicional por línea: nunca deja stock negativo. */
+    private void reserveStock(Connection c, Map<String, Integer> qtyByProduct) throws SQLException {
+        final String sql = "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (Map.Entry<String, Integer> e : qtyByProduct.entrySet()) {
+                ps.setInt(1, e.getValue());
+                ps.setString(2, e.getKey());
+                ps.setInt(3, e.getValue());
+                if (ps.executeUpdate() == 0) {
+                    if (!productExists(c, e.getKey())) {
+                        throw new IllegalArgumentException("El producto no existe: " + e.getKey());
+                    }
+                    throw new OutOfStockException(e.getKey());
+                }
+            }
+        }
+    }
+
+    /** Precio unitario: promo si hay oferta vigente hoy, si no el de lista. */
+    private List<OrderItem> priceItems(Connection c, Map<String, Integer> qtyByProduct) throws SQLException {
+        final String sql = """
+        SELECT p.price_cents, o.promo_price_cents
+        FROM products p
+        LEFT JOIN product_offers o ON o.product_id = p.id AND o.valid_until >= CURRENT_DATE
+        WHERE p.id = ?
+        """;
+        List<OrderItem> items = new ArrayList<>(qtyByProduct.size());
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (Map.Entry<String, Integer> e : qtyByProduct.entrySet()) {
+                ps.setString(1, e.getKey());
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    long list = rs.getLong("price_cents");
+                    long price = rs.getLong("promo_price_cents");
+                    if (rs.wasNull()) price = list;
+                    OrderItem it = new OrderItem(0, 0, e.getKey(), e.getValue(), price);
+                    // SalesAnalytics lo usa para el descuento sin volver a leer products
+                    it.setListPriceCents(list);
+                    items.add(it);
+                }
+            }
+        }
+        return items;
+    }
+
+    private static boolean productExists(Connection c, String id) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT 1 FROM products WHERE id = ?")) {
+            ps.setString(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Conflicto de serialización o deadlock (40001, 40P01) o timeout de bloqueo de fila de H2
+     * (50200). El timeout del pool no: reintentarlo solo suma espera y carga cuando ya falta capacidad.
+     */
+    static boolean isRetryable(SQLException e) {
+        String state = e.getSQLState();
+        return "40001".equals(state) || "40P01".equals(state) || e.getErrorCode() == 50200;
+    }
+
+    private static final class RetryableException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        RetryableException(SQLException cause) { super(cause); }
+    }
+}
@@ -0,0 +1,397 @@
+package com.example;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ * Cada operación pide una conexión con getConnection() y la devuelve con close().
+ * Incluye timeout de adquisición, validación de conexiones ociosas,
+ * detección de fugas, caché de PreparedStatement por conexión ({@link StatementCache})
+ * y métricas (activas/ociosas/en espera + histograma de adquisición).
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /** Parámetros del pool; se leen de propiedades de sistema "db.pool.*". */
+    public static class Config {
+        public int minSize = 2;
+        public int maxSize = 10;
+        public long acquireTimeoutMs = 5_000;
+        /** Conexiones ociosas más de este tiempo se validan antes de entregarse. */
+        public long validationIdleMs = 30_000;
+        public int validationTimeoutSec = 2;
+        /** 0 desactiva la detección de fugas. */
+        public long leakDetectionMs = 30_000;
+        public long idleTimeoutMs = 10 * 60_000;
+        /** PreparedStatement cacheados por conexión física; 0 desactiva el caché. */
+        public int statementCacheSize = 64;
+        /** Vida media de la latencia reciente: sin esperas nuevas, se reduce a la mitad en este tiempo. */
+        public long latencyHalfLifeMs = 1_000;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.minSize = Integer.getInteger("db.pool.min", c.minSize);
+            c.maxSize = Integer.getInteger("db.pool.max", c.maxSize);
+            c.acquireTimeoutMs = Long.getLong("db.pool.acquireTimeoutMs", c.acquireTimeoutMs);
+            c.validationIdleMs = Long.getLong("db.pool.validationIdleMs", c.validationIdleMs);
+            c.leakDetectionMs = Long.getLong("db.pool.leakDetectionMs", c.leakDetectionMs);
+            c.idleTimeoutMs = Long.getLong("db.pool.idleTimeoutMs", c.idleTimeoutMs);
+            c.statementCacheSize = Integer.getInteger("db.pool.statementCacheSize", c.statementCacheSize);
+            c.latencyHalfLifeMs = Long.getLong("db.pool.latencyHalfLifeMs", c.latencyHalfLifeMs);
+            return c;
+        }
+
+        void validate() {
+            if (maxSize < 1) throw new IllegalArgumentException("db.pool.max debe ser >= 1");
+            if (minSize < 0 || minSize > maxSize) {
+                throw new IllegalArgumentException("db.pool.min debe estar entre 0 y db.pool.max");
+            }
+            if (statementCacheSize < 0) throw new IllegalArgumentException("db.pool.statementCacheSize debe ser >= 0");
+            if (latencyHalfLifeMs < 1) throw new IllegalArgumentException("db.pool.latencyHalfLifeMs debe ser >= 1");
+        }
+    }
+
+    /** Conexión física + datos de préstamo. */
+    private static final class Entry {
+        final Connection physical;
+        /** null si el caché de statements está desactivado. */
+        final StatementCache statements;
+        volatile long lastUsedNanos = System.nanoTime();
+        volatile long borrowedAtNanos;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        Entry(Connection physical, StatementCache statements) {
+            this.physical = physical;
+            this.statements = statements;
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Config config;
+
+    private final LinkedBlockingDeque<Entry> idle = new LinkedBlockingDeque<>();
+    private final Set<Entry> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger physicalCount = new AtomicInteger();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    /** Media móvil de la espera por conexión, inmutable para cambiarla con un compareAndSet. */
+    private static final class RecentWait {
+        final double micros;
+        final long atNanos;
+
+        RecentWait(double micros, long atNanos) {
+            this.micros = micros;
+            this.atNanos = atNanos;
+        }
+    }
+
+    /**
+     * Espera por una conexión: media móvil (peso 1/8) que además decae con el tiempo
+     * ({@link Config#latencyHalfLifeMs}), así baja sola cuando dejan de llegar pedidos.
+     */
+    private final AtomicReference<RecentWait> recentWait = new AtomicReference<>(new RecentWait(0, System.nanoTime()));
+    private final StatementCache.Stats statementStats = new StatementCache.Stats();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, Config config) {
+        config.validate();
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+
+        try {
+            for (int i = 0; i < config.minSize; i++) idle.offer(newEntry());
+        } catch (SQLException e) {
+            closeIdle();
+            throw new RuntimeException("No se pudo inicializar el pool de conexiones", e);
+        }
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 5, 5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("El pool de conexiones está cerrado");
+        long t0 = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando conexión", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        recordWait(System.nanoTime() - t0);
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLTimeoutException("Timeout de " + config.acquireTimeoutMs
+                    + " ms esperando conexión (max=" + config.maxSize + ")");
+        }
+
+        try {
+            Entry e = takeValidIdle();
+            if (e == null) e = newEntry();
+            e.borrowedAtNanos = System.nanoTime();
+            e.leakReported = false;
+            e.borrowSite = config.leakDetectionMs > 0 ? new Throwable("Conexión tomada aquí") : null;
+            borrowed.add(e);
+            acquireLatency.recordNanos(System.nanoTime() - t0);
+            return wrap(e);
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private Entry takeValidIdle() {
+        Entry e;
+        while ((e = idle.pollFirst()) != null) {
+            boolean stale = System.nanoTime() - e.lastUsedNanos
+                    > TimeUnit.MILLISECONDS.toNanos(config.validationIdleMs);
+            if (!stale || isValid(e)) return e;
+            discard(e);
+        }
+        return null;
+    }
+
+    private boolean isValid(Entry e) {
+        try {
+            return !e.physical.isClosed() && e.physical.isValid(config.validationTimeoutSec);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private Entry newEntry() throws SQLException {
+        Connection c = DriverManager.getConnection(url, user, password);
+        physicalCount.incrementAndGet();
+        StatementCache sc = config.statementCacheSize > 0
+                ? new StatementCache(c, config.statementCacheSize, statementStats)
+                : null;
+        return new Entry(c, sc);
+    }
+
+    private void discard(Entry e) {
+        physicalCount.decrementAndGet();
+        if (e.statements != null) e.statements.closeAll();
+        try {
+            e.physical.close();
+        } catch (SQLException ignored) {
+            // ya no se usa
+        }
+    }
+
+    /** Devuelve la conexión al pool (la llama el proxy en close()). */
+    private void release(Entry e) {
+        borrowed.remove(e);
+        boolean healthy = true;
+        try {
+            if (!e.physical.getAutoCommit()) {
+                e.physical.rollback();
+                e.physical.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            healthy = false;
+        }
+        if (closed || !healthy) {
+            discard(e);
+        } else {
+            e.lastUsedNanos = System.nanoTime();
+            idle.offerFirst(e);
+        }
+        permits.release();
+    }
+
+    private void recordWait(long nanos) {
+        long now = System.nanoTime();
+        RecentWait prev;
+        RecentWait next;
+        do {
+            prev = recentWait.get();
+            double base = decayed(prev, now);
+            next = new RecentWait(base + (nanos / 1_000.0 - base) / 8, now);
+        } while (!recentWait.compareAndSet(prev, next));
+    }
+
+    private double decayed(RecentWait w, long now) {
+        long elapsed = Math.max(0, now - w.atNanos);
+        return w.micros * Math.pow(0.5, (double) elapsed / TimeUnit.MILLISECONDS.toNanos(config.latencyHalfLifeMs));
+    }
+
+    private Connection wrap(Entry e) {
+        InvocationHandler h = new InvocationHandler() {
+            private boolean released;
+
+            @Override
+            public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+                switch (m.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            release(e);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || e.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + e.physical + "]";
+                    case "prepareStatement":
+                        if (released) throw new SQLException("La conexión ya fue devuelta al pool");
+                        // solo las variantes (sql) y (sql, autoGeneratedKeys) pasan por el caché
+                        if (e.statements != null && args.length == 1) {
+                            return e.statements.prepare((Connection) proxy, (String) args[0], null);
+                        }
+                        if (e.statements != null && args.length == 2 && args[1] instanceof Integer) {
+                            return e.statements.prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+                        }
+                        return invokePhysical(m, args);
+                    default:
+                        if (released) throw new SQLException("La conexión ya fue devuelta al pool");
+                        return invokePhysical(m, args);
+                }
+            }
+
+            private Object invokePhysical(Method m, Object[] args) throws Throwable {
+                try {
+                    return m.invoke(e.physical, args);
+                } catch (InvocationTargetException ite) {
+                    throw ite.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, h);
+    }
+
+    /** Tareas periódicas: avisar fugas y cerrar ociosas sobrantes. */
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            if (config.leakDetectionMs > 0) {
+                long limit = TimeUnit.MILLISECONDS.toNanos(config.leakDetectionMs);
+                for (Entry e : borrowed) {
+                    if (!e.leakReported && now - e.borrowedAtNanos > limit) {
+                        e.leakReported = true;
+                        leaks.incrementAndGet();
+                        log.warn("Posible fuga: conexión prestada hace más de {} ms", config.leakDetectionMs, e.borrowSite);
+                    }
+                }
+            }
+            long idleLimit = TimeUnit.MILLISECONDS.toNanos(config.idleTimeoutMs);
+            while (physicalCount.get() > config.minSize) {
+                Entry oldest = idle.peekLast();
+                if (oldest == null || now - oldest.lastUsedNanos < idleLimit) break;
+                if (idle.removeLastOccurrence(oldest)) discard(oldest);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Error en mantenimiento del pool", ex);
+        }
+    }
+
+    // ===== métricas =====
+    public int getActive() { return borrowed.size(); }
+    public int getIdle() { return idle.size(); }
+    public int getWaiting() { return waiting.get(); }
+    public int getTotal() { return physicalCount.get(); }
+    public int getMaxSize() { return config.maxSize; }
+    public long getTimeouts() { return timeouts.get(); }
+    public long getLeaks() { return leaks.get(); }
+    public LatencyHistogram getAcquireLatency() { return acquireLatency; }
+    /** Espera reciente por una conexión, en microsegundos, decaída hasta ahora. */
+    public long getRecentLatencyMicros() { return (long) decayed(recentWait.get(), System.nanoTime()); }
+    /** Statements preparados contra la BD (parseo + plan). */
+    public long getStatementParses() { return statementStats.parses.get(); }
+    /** Statements servidos desde el caché sin volver a parsear. */
+    public long getStatementReuses() { return statementStats.reuses.get(); }
+    public long getStatementEvictions() { return statementStats.evictions.get(); }
+    /** Statements abiertos en los cachés de todas las conexiones vivas. */
+    public long getStatementsCached() { return statementStats.cached.get(); }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{active=" + getActive() + ", idle=" + getIdle()
+                + ", waiting=" + getWaiting() + ", total=" + getTotal() + "/" + config.maxSize
+                + ", acquireP99=" + acquireLatency.percentileMicros(0.99) + "us"
+                + ", stmtParses=" + getStatementParses() + ", stmtReuses=" + getStatementReuses() + "}";
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        closeIdle();
+    }
+
+    private void closeIdle() {
+        Entry e;
+        while ((e = idle.pollFirst()) != null) discard(e);
+    }
+
+    // ===== resto de DataSource =====
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("El pool usa credenciales fijas");
+    }
+
+    @Override public PrintWriter getLogWriter() { return null; }
+    @Override public void setLogWriter(PrintWriter out) { }
+    @Override public void setLoginTimeout(int seconds) { }
+    @Override public int getLoginTimeout() { return 0; }
+    @Override public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("No se puede desenvolver a " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) { return iface.isInstance(this); }
+}
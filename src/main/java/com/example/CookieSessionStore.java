@@ -0,0 +1,147 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Sesión guardada entera en una cookie firmada: {@code base64url(datos).base64url(HMAC-SHA256)}.
+ * No hay estado en el servidor, así que cualquier nodo con la misma {@code session.secret}
+ * la lee. Los datos viajan legibles (firmados, no cifrados) y caducan a los
+ * {@code maxAgeSeconds}: sirve para mensajes flash y preferencias, no para secretos.
+ */
+public class CookieSessionStore implements SessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CookieSessionStore.class);
+
+    static final String COOKIE = "sess";
+    /** Límite práctico de una cookie (los navegadores admiten ~4096 bytes con nombre y atributos). */
+    static final int MAX_COOKIE_BYTES = 3_800;
+    /** Atributo de la petición con los datos ya leídos (o modificados) de la cookie. */
+    private static final String REQUEST_ATTR = CookieSessionStore.class.getName();
+    /** Clave reservada con el vencimiento (epoch segundos). */
+    private static final String EXPIRES = "_exp";
+
+    private final byte[] secret;
+    private final int maxAgeSeconds;
+    private final Clock clock;
+
+    public CookieSessionStore(byte[] secret, int maxAgeSeconds, Clock clock) {
+        if (secret.length < 16) throw new IllegalArgumentException("session.secret debe tener al menos 16 bytes");
+        this.secret = secret.clone();
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.clock = clock;
+    }
+
+    /** Clave de -Dsession.secret; sin ella, una aleatoria por proceso (un solo nodo). */
+    static byte[] secretFromSystemProperties() {
+        String s = System.getProperty("session.secret");
+        if (s != null && !s.isBlank()) return s.getBytes(StandardCharsets.UTF_8);
+        log.warn("session.secret no está definido: se usa una clave aleatoria; las cookies de sesión "
+                + "no valen en otros nodos ni tras reiniciar");
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+
+    @Override
+    public String get(Request req, String key) {
+        return data(req).get(key);
+    }
+
+    @Override
+    public void put(Request req, Response res, String key, String value) {
+        Map<String, String> m = new LinkedHashMap<>(data(req));
+        m.put(key, value);
+        write(req, res, m);
+    }
+
+    @Override
+    public String take(Request req, Response res, String key) {
+        Map<String, String> current = data(req);
+        String value = current.get(key);
+        if (value == null) return null;
+        Map<String, String> m = new LinkedHashMap<>(current);
+        m.remove(key);
+        write(req, res, m);
+        return value;
+    }
+
+    private Map<String, String> data(Request req) {
+        Map<String, String> cached = req.attribute(REQUEST_ATTR);
+        if (cached != null) return cached;
+        String cookie = req.cookie(COOKIE);
+        Map<String, String> m = cookie == null ? Collections.emptyMap() : verify(cookie);
+        req.attribute(REQUEST_ATTR, m);
+        return m;
+    }
+
+    private void write(Request req, Response res, Map<String, String> m) {
+        req.attribute(REQUEST_ATTR, Collections.unmodifiableMap(m));
+        if (m.isEmpty()) {
+            SessionData.setCookie(res, COOKIE, "", 0);
+            return;
+        }
+        String value = sign(m);
+        if (value.length() > MAX_COOKIE_BYTES) {
+            throw new IllegalStateException("La sesión no entra en una cookie (" + value.length() + " bytes)");
+        }
+        SessionData.setCookie(res, COOKIE, value, maxAgeSeconds);
+    }
+
+    /** Valor firmado de la cookie para estos datos (vence en maxAgeSeconds). */
+    String sign(Map<String, String> data) {
+        Map<String, String> m = new LinkedHashMap<>(data);
+        m.put(EXPIRES, Long.toString(clock.millis() / 1000 + maxAgeSeconds));
+        byte[] payload = SessionData.encode(m).getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        return b64.encodeToString(payload) + "." + b64.encodeToString(mac(payload));
+    }
+
+    /** Datos de una cookie; vacío si la firma no coincide, está mal formada o venció. */
+    Map<String, String> verify(String cookie) {
+        int dot = cookie.indexOf('.');
+        if (dot <= 0) return Collections.emptyMap();
+        try {
+            Base64.Decoder b64 = Base64.getUrlDecoder();
+            byte[] payload = b64.decode(cookie.substring(0, dot));
+            byte[] sig = b64.decode(cookie.substring(dot + 1));
+            if (!MessageDigest.isEqual(sig, mac(payload))) {
+                log.debug("Cookie de sesión con firma inválida");
+                return Collections.emptyMap();
+            }
+            Map<String, String> m = SessionData.decode(new String(payload, StandardCharsets.UTF_8));
+            String exp = m.remove(EXPIRES);
+            if (exp == null || Long.parseLong(exp) <= clock.millis() / 1000) return Collections.emptyMap();
+            return Collections.unmodifiableMap(m);
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    private byte[] mac(byte[] payload) {
+        try {
+            // Mac no es thread-safe; crear uno por llamada es barato frente al resto de la petición
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+}
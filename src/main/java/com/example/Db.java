@@ -2,100 +2,245 @@
 package com.example;
 
 import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Db {
-    private static Connection conn;
 
-    /** Devuelve la conexión singleton a H2 */
-    public static Connection get() {
-        if (conn == null) init();
-        return conn;
+    private static final Logger log = LoggerFactory.getLogger(Db.class);
+
+    /**
+     * Configuración de H2; se lee de propiedades de sistema "db.*". {@code db.profile} elige
+     * los valores por defecto y cada propiedad suelta los reemplaza.
+     * <ul>
+     *   <li>{@code embedded} (por defecto): archivo local, baja latencia. Los commits se escriben
+     *       en segundo plano ({@code WRITE_DELAY} 500 ms: una caída puede perder ese último medio
+     *       segundo) y no hay archivo de traza.</li>
+     *   <li>{@code durable}: archivo local; cada commit se escribe antes de volver, los errores
+     *       quedan en el .trace.db y se compacta más al cerrar.</li>
+     *   <li>{@code server}: H2 por TCP, para varios nodos sobre la misma BD. Con
+     *       {@code db.server.start=true} este proceso levanta el servidor.</li>
+     * </ul>
+     */
+    public static class Config {
+        public String profile = "embedded";
+        /** URL completa; si se da, el perfil solo agrega los ajustes que no traiga. */
+        public String url;
+        /** Ruta de la BD (sin .mv.db); relativa al directorio de trabajo del servidor en modo server. */
+        public String path = "./data/collectibles";
+        public String user = "sa";
+        public String password = "";
+        /** Caché de páginas de MVStore, en KB. */
+        public int cacheSizeKb = 65_536;
+        /** Demora máxima para escribir un commit; 0 = antes de volver del commit. */
+        public int writeDelayMs = 500;
+        /** 0 = sin .trace.db, 1 = solo errores. */
+        public int traceLevelFile = 0;
+        /** Espera ante una fila bloqueada antes de fallar (el checkout reintenta). */
+        public int lockTimeoutMs = 1_000;
+        /** MVStore: cuánto se conservan versiones viejas de las páginas antes de reusar espacio. */
+        public int retentionTimeMs = 45_000;
+        /** MVStore: compactación al cerrar. */
+        public int maxCompactTimeMs = 200;
+        /** MVStore: por debajo de este % de llenado los chunks se reescriben en segundo plano. */
+        public int autoCompactFillRate = 90;
+        public String serverHost = "localhost";
+        public int serverPort = 9092;
+        public boolean serverStart;
+        public boolean serverAllowOthers;
+        public ConnectionPool.Config pool = new ConnectionPool.Config();
+
+        /** Valores por defecto del perfil (sin mirar otras propiedades). */
+        public static Config profile(String name) {
+            Config c = new Config();
+            c.profile = name;
+            switch (name) {
+                case "embedded" -> { }
+                case "durable" -> {
+                    c.cacheSizeKb = 32_768;
+                    c.writeDelayMs = 0;
+                    c.traceLevelFile = 1;
+                    c.lockTimeoutMs = 5_000;
+                    c.maxCompactTimeMs = 2_000;
+                }
+                case "server" -> {
+                    c.lockTimeoutMs = 5_000;
+                    c.pool.maxSize = 20;
+                }
+                default -> throw new IllegalArgumentException(
+                        "db.profile desconocido: " + name + " (embedded, durable o server)");
+            }
+            return c;
+        }
+
+        public static Config fromSystemProperties() {
+            Config c = profile(System.getProperty("db.profile", "embedded"));
+            c.url = System.getProperty("db.url");
+            c.path = System.getProperty("db.path", c.path);
+            c.user = System.getProperty("db.user", c.user);
+            c.password = System.getProperty("db.password", c.password);
+            c.cacheSizeKb = Integer.getInteger("db.cacheSizeKb", c.cacheSizeKb);
+            c.writeDelayMs = Integer.getInteger("db.writeDelayMs", c.writeDelayMs);
+            c.traceLevelFile = Integer.getInteger("db.traceLevelFile", c.traceLevelFile);
+            c.lockTimeoutMs = Integer.getInteger("db.lockTimeoutMs", c.lockTimeoutMs);
+            c.retentionTimeMs = Integer.getInteger("db.retentionTimeMs", c.retentionTimeMs);
+            c.maxCompactTimeMs = Integer.getInteger("db.maxCompactTimeMs", c.maxCompactTimeMs);
+            c.autoCompactFillRate = Integer.getInteger("db.autoCompactFillRate", c.autoCompactFillRate);
+            c.serverHost = System.getProperty("db.server.host", c.serverHost);
+            c.serverPort = Integer.getInteger("db.server.port", c.serverPort);
+            c.serverStart = Boolean.getBoolean("db.server.start");
+            c.serverAllowOthers = Boolean.getBoolean("db.server.allowOthers");
+            // El perfil server sube el máximo del pool; db.pool.max sigue mandando
+            ConnectionPool.Config pool = ConnectionPool.Config.fromSystemProperties();
+            if (System.getProperty("db.pool.max") == null) pool.maxSize = c.pool.maxSize;
+            c.pool = pool;
+            return c;
+        }
+
+        /** Ajustes de H2 que agrega el perfil a la URL, en orden. */
+        Map<String, String> settings() {
+            Map<String, String> m = new LinkedHashMap<>();
+            m.put("MODE", "PostgreSQL");
+            m.put("CACHE_SIZE", String.valueOf(cacheSizeKb));
+            m.put("WRITE_DELAY", String.valueOf(writeDelayMs));
+            m.put("TRACE_LEVEL_FILE", String.valueOf(traceLevelFile));
+            m.put("LOCK_TIMEOUT", String.valueOf(lockTimeoutMs));
+            m.put("RETENTION_TIME", String.valueOf(retentionTimeMs));
+            m.put("MAX_COMPACT_TIME", String.valueOf(maxCompactTimeMs));
+            m.put("AUTO_COMPACT_FILL_RATE", String.valueOf(autoCompactFillRate));
+            return m;
+        }
+
+        /** URL efectiva: la base (db.url o la del perfil) más los ajustes que no traiga. */
+        public String jdbcUrl() {
+            String base = url != null ? url
+                    : "server".equals(profile) ? "jdbc:h2:tcp://" + serverHost + ":" + serverPort + "/" + path
+                    : "jdbc:h2:" + path;
+            StringBuilder sb = new StringBuilder(base);
+            String upper = base.toUpperCase(Locale.ROOT);
+            for (Map.Entry<String, String> e : settings().entrySet()) {
+                if (!upper.contains(";" + e.getKey() + "=")) sb.append(';').append(e.getKey()).append('=').append(e.getValue());
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Ajustes que se leen de la BD para el informe de arranque. */
+    private static final String[] REPORTED = {
+            "MODE", "WRITE_DELAY", "CACHE_SIZE", "RETENTION_TIME", "MAX_COMPACT_TIME",
+            "AUTO_COMPACT_FILL_RATE", "info.CACHE_MAX_SIZE", "info.FILE_SIZE", "info.VERSION"
+    };
+
+    private static volatile ConnectionPool pool;
+    /** org.h2.tools.Server si este proceso levantó el servidor TCP (H2 es dependencia runtime). */
+    private static volatile Object server;
+
+    /** Devuelve el DataSource (pool) compartido; los DAOs piden una conexión por operación. */
+    public static DataSource dataSource() {
+        return pool();
+    }
+
+    /** Pool con sus métricas (activas/ociosas/en espera, latencia de adquisición). */
+    public static ConnectionPool pool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (Db.class) {
+                p = pool;
+                if (p == null) pool = p = init(Config.fromSystemProperties());
+            }
+        }
+        return p;
+    }
+
+    /** Cierra el pool (al apagar el servidor) y, si este proceso lo levantó, el servidor TCP. */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        if (server != null) {
+            try {
+                server.getClass().getMethod("stop").invoke(server);
+            } catch (ReflectiveOperationException e) {
+                log.warn("No se pudo detener el servidor H2", e);
+            }
+            server = null;
+        }
     }
 
-    /** Inicializa H2 y asegura el esquema */
-    private static void init() {
+    /** Inicializa H2, crea el pool, aplica las migraciones pendientes ({@link Migrations}) e informa la configuración. */
+    private static ConnectionPool init(Config config) {
         try {
             Class.forName("org.h2.Driver");
-            // Base de datos de archivo en ./data/collectibles (modo PostgreSQL para compatibilidad SQL)
-            conn = DriverManager.getConnection(
-                    "jdbc:h2:./data/collectibles;MODE=PostgreSQL", "sa", "");
-            ensureSchema(conn);
+            if ("server".equals(config.profile) && config.serverStart) server = startServer(config);
+            String url = config.jdbcUrl();
+            ConnectionPool p = new ConnectionPool(url, config.user, config.password, config.pool);
+            try (Connection c = p.getConnection()) {
+                Migrations.migrate(c);
+                log.info(report(config, url, effectiveSettings(c)));
+            }
+            return p;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    /** Crea tablas si no existen y agrega semillas mínimas */
-    private static void ensureSchema(Connection c) throws SQLException {
-        try (Statement st = c.createStatement()) {
-            // ---- USERS
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS users(
-                  id    VARCHAR(40) PRIMARY KEY,
-                  name  VARCHAR(120) NOT NULL,
-                  email VARCHAR(255) NOT NULL
-                )
-                """);
-
-            // ---- PRODUCTS
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS products(
-                  id        VARCHAR(40) PRIMARY KEY,
-                  name      VARCHAR(120) NOT NULL,
-                  descr     VARCHAR(2000),
-                  image_url VARCHAR(500),
-                  price     DECIMAL(12,2) NOT NULL,
-                  stock     INT NOT NULL
-                )
-                """);
-
-            // ---- ORDERS (corregido para H2 2.x: usar GENERATED ... AS IDENTITY)
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS orders(
-                  id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-                  user_id    VARCHAR(40) NOT NULL,
-                  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-                  total      DECIMAL(12,2) NOT NULL,
-                  CONSTRAINT fk_order_user FOREIGN KEY (user_id) REFERENCES users(id)
-                )
-                """);
-
-            // ---- ORDER_ITEMS (corregido para H2 2.x)
-            st.execute("""
-                CREATE TABLE IF NOT EXISTS order_items(
-                  id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-                  order_id   BIGINT NOT NULL,
-                  product_id VARCHAR(40) NOT NULL,
-                  qty        INT NOT NULL,
-                  price      DECIMAL(12,2) NOT NULL,
-                  CONSTRAINT fk_item_order  FOREIGN KEY (order_id)  REFERENCES orders(id),
-                  CONSTRAINT fk_item_prod   FOREIGN KEY (product_id) REFERENCES products(id)
-                )
-                """);
+    /**
+     * Servidor TCP de H2 dentro de este proceso. La BD de {@code db.path} se crea antes en
+     * local: el servidor arranca sin {@code -ifNotExists}, así un cliente remoto (con
+     * {@code db.server.allowOthers}) no puede crear bases nuevas en esta máquina.
+     */
+    static Object startServer(Config config) throws ReflectiveOperationException, SQLException {
+        try (Connection c = DriverManager.getConnection("jdbc:h2:" + config.path, config.user, config.password)) {
+            log.debug("BD {} lista para el servidor TCP", config.path);
         }
+        String[] args = config.serverAllowOthers
+                ? new String[]{"-tcpPort", String.valueOf(config.serverPort), "-tcpAllowOthers"}
+                : new String[]{"-tcpPort", String.valueOf(config.serverPort)};
+        Class<?> type = Class.forName("org.h2.tools.Server");
+        Object s = type.getMethod("createTcpServer", String[].class).invoke(null, (Object) args);
+        type.getMethod("start").invoke(s);
+        log.info("Servidor H2 TCP escuchando en {}", type.getMethod("getURL").invoke(s));
+        return s;
+    }
 
-        // ---- Semillas: users
-        try (var rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM users")) {
-            rs.next();
-            if (rs.getLong(1) == 0) {
-                c.createStatement().executeUpdate("""
-                    INSERT INTO users(id,name,email) VALUES
-                    ('1','Rafael','rafael@example.com'),
-                    ('2','Sofía','sofia@example.com')
-                    """);
+    /** Valores que H2 está usando de verdad (los SET quedan guardados en el archivo). */
+    static Map<String, String> effectiveSettings(Connection c) throws SQLException {
+        Map<String, String> out = new LinkedHashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT SETTING_NAME, SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = ANY(?)")) {
+            ps.setArray(1, c.createArrayOf("VARCHAR", REPORTED));
+            Map<String, String> found = new LinkedHashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) found.put(rs.getString(1), rs.getString(2));
             }
+            for (String k : REPORTED) {
+                if (found.containsKey(k)) out.put(k, found.get(k));
+            }
+        }
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("SELECT LOCK_TIMEOUT()")) {
+            if (rs.next()) out.put("LOCK_TIMEOUT", rs.getString(1));
         }
+        return out;
+    }
 
-        // ---- Semillas: products
-        try (var rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM products")) {
-            rs.next();
-            if (rs.getLong(1) == 0) {
-                c.createStatement().executeUpdate("""
-                    INSERT INTO products(id,name,descr,image_url,price,stock) VALUES
-                    ('p1','Figura Goku','SSJ Blue 15cm',NULL, 499.00, 10),
-                    ('p2','Carta Pikachu','Holo 1st ed',NULL, 1299.00, 5)
-                    """);
-            }
+    static String report(Config config, String url, Map<String, String> effective) {
+        ConnectionPool.Config pc = config.pool;
+        StringBuilder sb = new StringBuilder("Base de datos (perfil ").append(config.profile).append(")")
+                .append("\n  url: ").append(url)
+                .append("\n  pool: min=").append(pc.minSize).append(" max=").append(pc.maxSize)
+                .append(" acquireTimeoutMs=").append(pc.acquireTimeoutMs)
+                .append(" statementCacheSize=").append(pc.statementCacheSize)
+                .append("\n  efectivos:");
+        for (Map.Entry<String, String> e : effective.entrySet()) {
+            sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
         }
+        return sb.toString();
     }
 }
@@ -0,0 +1,61 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backend en memoria de {@link OrderItemRepository}. Las líneas de cada orden se guardan
+ * como una lista inmutable que se reemplaza entera, así createAll es atómico y las
+ * lecturas no toman locks. El nombre de producto se resuelve contra el catálogo al leer.
+ */
+public class InMemoryOrderItemRepository implements OrderItemRepository {
+
+    private final ProductRepository products;
+    private final Map<Long, List<OrderItem>> byOrder = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    public InMemoryOrderItemRepository(ProductRepository products) {
+        this.products = products;
+    }
+
+    @Override
+    public void create(long orderId, String productId, int qty, long priceCents) {
+        createAll(orderId, List.of(new OrderItem(0, orderId, productId, qty, priceCents)));
+    }
+
+    @Override
+    public void createAll(long orderId, List<OrderItem> items) {
+        List<OrderItem> rows = new ArrayList<>(items.size());
+        for (OrderItem it : items) {
+            if (products.findById(it.getProductId()).isEmpty()) {
+                // lo mismo que la FK order_items → products
+                throw new IllegalArgumentException("El producto no existe: " + it.getProductId());
+            }
+            rows.add(new OrderItem(0, orderId, it.getProductId(), it.getQty(), it.getPriceCents()));
+        }
+        byOrder.compute(orderId, (id, old) -> {
+            List<OrderItem> all = new ArrayList<>(old == null ? rows.size() : old.size() + rows.size());
+            if (old != null) all.addAll(old);
+            for (OrderItem r : rows) {
+                r.setId(ids.incrementAndGet());
+                all.add(r);
+            }
+            return List.copyOf(all);
+        });
+    }
+
+    @Override
+    public List<OrderItem> findByOrder(long orderId) {
+        List<OrderItem> rows = byOrder.getOrDefault(orderId, List.of());
+        List<OrderItem> out = new ArrayList<>(rows.size());
+        for (OrderItem r : rows) {
+            OrderItem it = new OrderItem(r.getId(), r.getOrderId(), r.getProductId(), r.getQty(), r.getPriceCents());
+            it.setProductName(products.findById(r.getProductId()).map(Product::getName).orElse(null));
+            out.add(it);
+        }
+        return out;
+    }
+}
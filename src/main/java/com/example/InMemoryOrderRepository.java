@@ -0,0 +1,87 @@
+package com.example;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backend en memoria de {@link OrderRepository}. Las órdenes van por id en un mapa
+ * concurrente y cada usuario tiene un set ordenado de sus ids (el equivalente al
+ * índice idx_orders_user_id): el historial recorre ese set hacia atrás sin ordenar.
+ */
+public class InMemoryOrderRepository implements OrderRepository {
+
+    private final UserRepository users;
+    private final OrderItemRepository items;
+    private final Clock clock;
+
+    private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Long>> byUser = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    public InMemoryOrderRepository(UserRepository users, OrderItemRepository items) {
+        this(users, items, Clock.systemDefaultZone());
+    }
+
+    InMemoryOrderRepository(UserRepository users, OrderItemRepository items, Clock clock) {
+        this.users = users;
+        this.items = items;
+        this.clock = clock;
+    }
+
+    @Override
+    public long create(String userId, long totalCents) {
+        if (users.findById(userId).isEmpty()) {
+            // lo mismo que la FK orders → users
+            throw new IllegalArgumentException("El usuario no existe: " + userId);
+        }
+        long id = ids.incrementAndGet();
+        orders.put(id, new Order(id, userId, totalCents, LocalDateTime.now(clock)));
+        byUser.computeIfAbsent(userId, u -> new ConcurrentSkipListSet<>()).add(id);
+        return id;
+    }
+
+    @Override
+    public Optional<Order> findById(long id) {
+        Order o = orders.get(id);
+        return o == null ? Optional.empty() : Optional.of(copy(o));
+    }
+
+    @Override
+    public OrderPage findOrdersByUser(String userId, String after, int limit) {
+        if (limit < 1 || limit > OrderPage.MAX_SIZE) {
+            throw new IllegalArgumentException("Tamaño de página inválido: " + limit);
+        }
+        long before = OrderPage.decodeCursor(after);
+        NavigableSet<Long> ids = byUser.get(userId);
+        List<Order> out = new ArrayList<>();
+        String next = null;
+        if (ids != null) {
+            for (Long id : ids.headSet(before, false).descendingSet()) {
+                if (out.size() == limit) {
+                    next = Long.toString(out.get(limit - 1).getId());
+                    break;
+                }
+                out.add(copy(orders.get(id)));
+            }
+        }
+        return new OrderPage(out, next);
+    }
+
+    @Override
+    public Optional<OrderDetail> findDetail(long id) {
+        Order o = orders.get(id);
+        return o == null ? Optional.empty() : Optional.of(new OrderDetail(copy(o), items.findByOrder(id)));
+    }
+
+    private static Order copy(Order o) {
+        return new Order(o.getId(), o.getUserId(), o.getTotalCents(), o.getCreatedAt());
+    }
+}
@@ -0,0 +1,206 @@
+package com.example;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend en memoria de {@link ProductRepository}, para tests, demos y réplicas de solo lectura.
+ * Productos y ofertas viven en mapas concurrentes (como las dos tablas del backend JDBC);
+ * las lecturas usan la misma {@link CatalogView} que {@link ProductDao}, así ambos
+ * ordenan, paginan, buscan y vencen ofertas igual. Como réplica la alimenta
+ * {@link CatalogFollower} con {@link #apply} y {@link #replaceAll}.
+ */
+public class InMemoryProductRepository implements ProductRepository {
+
+    /** Fila de product_offers. */
+    private static final class Offer {
+        final long promoCents;
+        final String validUntil;
+
+        Offer(long promoCents, String validUntil) {
+            this.promoCents = promoCents;
+            this.validUntil = validUntil;
+        }
+    }
+
+    /** Datos base, sin oferta; nunca salen del repositorio (se entregan copias). */
+    private final Map<String, Product> products = new ConcurrentHashMap<>();
+    private final Map<String, Offer> offers = new ConcurrentHashMap<>();
+    private final CatalogView catalog;
+
+    public InMemoryProductRepository() {
+        this(Clock.systemDefaultZone());
+    }
+
+    InMemoryProductRepository(Clock clock) {
+        this.catalog = new CatalogView(this::loadAll, clock);
+    }
+
+    /**
+     * Alta de un producto (equivale a un INSERT en products); si trae oferta y
+     * validUntil también se guarda su oferta. Lanza IllegalArgumentException si el id existe.
+     */
+    public void insert(Product p) {
+        Product base = new Product(p);
+        base.clearPromo();
+        if (products.putIfAbsent(base.getId(), base) != null) {
+            throw new IllegalArgumentException("El producto ya existe: " + p.getId());
+        }
+        if (p.hasPromo() && p.getValidUntil() != null) {
+            offers.put(p.getId(), new Offer(p.getPromoCents(), parseDate(p.getValidUntil())));
+        }
+        catalog.invalidate();
+    }
+
+    /**
+     * Réplica: deja los productos {@code ids} como en {@code rows} (filas de products con su
+     * oferta, si tiene); los ids sin fila se quitan. Una sola foto nueva para todo el lote.
+     */
+    void apply(Collection<String> ids, List<Product> rows) {
+        Map<String, Product> byId = new HashMap<>(rows.size() * 4 / 3 + 1);
+        for (Product p : rows) byId.put(p.getId(), p);
+        boolean removed = false;
+        for (String id : ids) {
+            Product row = byId.get(id);
+            if (row == null) {
+                removed |= products.remove(id) != null;
+                offers.remove(id);
+            } else {
+                put(row);
+            }
+        }
+        if (removed) catalog.invalidate();
+        else catalog.invalidateSnapshot();
+    }
+
+    /** Réplica: reemplaza todo el contenido por {@code rows} (carga inicial o resincronización). */
+    void replaceAll(List<Product> rows) {
+        Set<String> keep = new HashSet<>(rows.size() * 4 / 3 + 1);
+        for (Product row : rows) {
+            put(row);
+            keep.add(row.getId());
+        }
+        products.keySet().retainAll(keep);
+        offers.keySet().retainAll(keep);
+        catalog.invalidate();
+    }
+
+    /** Guarda la fila como datos base + oferta; si cambió el texto, actualiza el índice de búsqueda. */
+    private void put(Product row) {
+        Product base = new Product(row);
+        base.clearPromo();
+        Product old = products.put(base.getId(), base);
+        if (row.hasPromo() && row.getValidUntil() != null) {
+            offers.put(base.getId(), new Offer(row.getPromoCents(), row.getValidUntil()));
+        } else {
+            offers.remove(base.getId());
+        }
+        if (old == null || !Objects.equals(old.getName(), base.getName())
+                || !Objects.equals(old.getDescr(), base.getDescr())) {
+            catalog.updated(base);
+        }
+    }
+
+    /** Lecturas sobre esta réplica, para quien la expone (ProductDao con seguidor). */
+    CatalogView view() {
+        return catalog;
+    }
+
+    /** Copia de productos + ofertas para armar la foto del catálogo. */
+    private List<Product> loadAll() {
+        List<Product> out = new ArrayList<>(products.size());
+        for (Product base : products.values()) {
+            Product p = new Product(base);
+            Offer o = offers.get(p.getId());
+            if (o != null) {
+                p.setPromoCents(o.promoCents);
+                p.setValidUntil(o.validUntil);
+            }
+            out.add(p);
+        }
+        return out;
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return catalog.all();
+    }
+
+    @Override
+    public long catalogVersion() {
+        return catalog.version();
+    }
+
+    @Override
+    public void reloadCatalog() {
+        catalog.invalidate();
+    }
+
+    /** Contadores del caché del catálogo. */
+    public CatalogCache catalogStats() {
+        return catalog.cache;
+    }
+
+    @Override
+    public ProductPage findPage(String q, String after, int limit) {
+        return catalog.page(q, after, limit);
+    }
+
+    @Override
+    public List<Product> findAllFiltered(String q) {
+        return catalog.search(q);
+    }
+
+    @Override
+    public Optional<Product> findById(String id) {
+        Product p = catalog.byId(id);
+        return p == null ? Optional.empty() : Optional.of(new Product(p));
+    }
+
+    @Override
+    public void update(Product p) {
+        Product base = products.computeIfPresent(p.getId(), (id, old) -> {
+            Product b = new Product(p);
+            b.clearPromo();
+            return b;
+        });
+        if (base != null) catalog.updated(base);
+    }
+
+    @Override
+    public void saveOrUpdateOffer(String productId, long promoCents, String validUntilIso) {
+        String until = parseDate(validUntilIso);
+        if (!products.containsKey(productId)) {
+            // lo mismo que la FK product_offers → products
+            throw new IllegalArgumentException("El producto no existe: " + productId);
+        }
+        offers.put(productId, new Offer(promoCents, until));
+        catalog.invalidateSnapshot();
+    }
+
+    @Override
+    public void deleteOffer(String productId) {
+        if (offers.remove(productId) != null) catalog.invalidateSnapshot();
+    }
+
+    /** Valida yyyy-MM-dd y lo devuelve normalizado. */
+    private static String parseDate(String iso) {
+        if (iso == null) throw new IllegalArgumentException("Falta la fecha de la oferta");
+        try {
+            return LocalDate.parse(iso).toString();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha inválida (se espera yyyy-MM-dd): " + iso);
+        }
+    }
+}
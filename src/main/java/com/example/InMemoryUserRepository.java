@@ -0,0 +1,47 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/** Backend en memoria de {@link UserRepository}; ordenado por id como el listado JDBC. Entrega copias. */
+public class InMemoryUserRepository implements UserRepository {
+
+    private final ConcurrentNavigableMap<String, User> users = new ConcurrentSkipListMap<>();
+
+    @Override
+    public List<User> findAll() {
+        List<User> out = new ArrayList<>(users.size());
+        for (User u : users.values()) out.add(copy(u));
+        return out;
+    }
+
+    @Override
+    public Optional<User> findById(String id) {
+        User u = users.get(id);
+        return u == null ? Optional.empty() : Optional.of(copy(u));
+    }
+
+    @Override
+    public void create(User u) {
+        if (users.putIfAbsent(u.getId(), copy(u)) != null) {
+            throw new IllegalArgumentException("El usuario ya existe: " + u.getId());
+        }
+    }
+
+    @Override
+    public void update(User u) {
+        users.computeIfPresent(u.getId(), (id, old) -> copy(u));
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return users.remove(id) != null;
+    }
+
+    private static User copy(User u) {
+        return new User(u.getId(), u.getName(), u.getEmail());
+    }
+}
@@ -0,0 +1,270 @@
+package com.example;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Sesiones en la tabla sessions, compartida por todos los nodos (aquí H2; en un cluster,
+ * la BD o el almacén común). La cookie {@code sid} lleva solo un id aleatorio.
+ * <ul>
+ *   <li>Caché local: cada nodo recuerda lo leído durante {@code nearCacheTtlMs} (LRU de
+ *       {@code nearCacheMaxEntries}); las escrituras del propio nodo la actualizan. Solo la
+ *       usan las lecturas: otro nodo puede ver un valor atrasado como mucho ese tiempo.</li>
+ *   <li>Escrituras: put y take leen la fila con {@code SELECT ... FOR UPDATE} en la misma
+ *       transacción que la escriben, sin pasar por la caché. Dos nodos que escriben la misma
+ *       sesión no se pisan y un flash se entrega una sola vez.</li>
+ *   <li>Vencimiento deslizante: cada escritura renueva {@code expires_at}; las vencidas
+ *       se borran de a tandas, como mucho una vez por minuto.</li>
+ * </ul>
+ */
+public class JdbcSessionStore implements SessionStore {
+
+    static final String COOKIE = "sid";
+    /** 16 bytes en base64url sin relleno. */
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9_-]{22}");
+    private static final long PURGE_EVERY_MS = 60_000;
+
+    /** Parámetros; se leen de propiedades de sistema "session.*". */
+    public static class Config {
+        public int maxInactiveSeconds = 1800;
+        public long nearCacheTtlMs = 1_000;
+        public int nearCacheMaxEntries = 10_000;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.maxInactiveSeconds = Integer.getInteger("session.maxAgeSeconds", c.maxInactiveSeconds);
+            c.nearCacheTtlMs = Long.getLong("session.nearCacheTtlMs", c.nearCacheTtlMs);
+            c.nearCacheMaxEntries = Integer.getInteger("session.nearCacheMaxEntries", c.nearCacheMaxEntries);
+            return c;
+        }
+    }
+
+    private static final class Cached {
+        final Map<String, String> data;
+        final long loadedAt;
+
+        Cached(Map<String, String> data, long loadedAt) {
+            this.data = data;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final DataSource ds;
+    private final Config config;
+    private final Clock clock;
+    private final SecureRandom random = new SecureRandom();
+    /** LRU por acceso; protegido por nearLock. */
+    private final LinkedHashMap<String, Cached> near;
+    private final ReentrantLock nearLock = new ReentrantLock();
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    private final AtomicLong nearHits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public JdbcSessionStore(DataSource ds, Config config, Clock clock) {
+        this.ds = ds;
+        this.config = config;
+        this.clock = clock;
+        this.lastPurge.set(clock.millis());
+        this.near = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > config.nearCacheMaxEntries;
+            }
+        };
+    }
+
+    @Override
+    public String get(Request req, String key) {
+        String id = sessionId(req);
+        return id == null ? null : load(id).get(key);
+    }
+
+    @Override
+    public void put(Request req, Response res, String key, String value) {
+        String id = sessionId(req);
+        if (id == null) {
+            id = newId();
+            SessionData.setCookie(res, COOKIE, id, -1);
+        }
+        put(id, key, value);
+    }
+
+    void put(String id, String key, String value) {
+        update(id, current -> {
+            Map<String, String> m = new LinkedHashMap<>(current);
+            m.put(key, value);
+            return m;
+        });
+    }
+
+    @Override
+    public String take(Request req, Response res, String key) {
+        String id = sessionId(req);
+        if (id == null) return null;
+        Map<String, String> before = remove(id, key);
+        String value = before.get(key);
+        if (value != null && before.size() == 1) SessionData.setCookie(res, COOKIE, "", 0);
+        return value;
+    }
+
+    /** Quita key de la sesión; devuelve los datos que había antes. */
+    Map<String, String> remove(String id, String key) {
+        return update(id, current -> {
+            if (!current.containsKey(key)) return null;
+            Map<String, String> m = new LinkedHashMap<>(current);
+            m.remove(key);
+            return m;
+        });
+    }
+
+    /** Id de la cookie si tiene el formato esperado; null si no hay sesión. */
+    private static String sessionId(Request req) {
+        String id = req.cookie(COOKIE);
+        return id != null && ID.matcher(id).matches() ? id : null;
+    }
+
+    String newId() {
+        byte[] b = new byte[16];
+        random.nextBytes(b);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+    }
+
+    /** Datos de la sesión (vacío si no existe o venció), desde la caché local si está fresca. */
+    Map<String, String> load(String id) {
+        long now = clock.millis();
+        Cached c;
+        nearLock.lock();
+        try {
+            c = near.get(id);
+        } finally {
+            nearLock.unlock();
+        }
+        if (c != null && now - c.loadedAt < config.nearCacheTtlMs) {
+            nearHits.incrementAndGet();
+            return c.data;
+        }
+        loads.incrementAndGet();
+        Map<String, String> data = Collections.emptyMap();
+        try (Connection conn = ds.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT data FROM sessions WHERE id = ? AND expires_at > ?")) {
+            ps.setString(1, id);
+            ps.setTimestamp(2, new Timestamp(now));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) data = Collections.unmodifiableMap(SessionData.decode(rs.getString(1)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error leyendo la sesión", e);
+        }
+        remember(id, data, now);
+        return data;
+    }
+
+    /** Reemplaza los datos de la sesión (o la borra, si quedan vacíos). */
+    void save(String id, Map<String, String> data) {
+        update(id, current -> data);
+    }
+
+    /**
+     * Lee la sesión de la BD con la fila bloqueada, le aplica {@code change} y guarda el
+     * resultado (o la borra, si quedó vacía), renovando su vencimiento. Si {@code change}
+     * devuelve null no escribe nada. Devuelve los datos que había antes del cambio.
+     */
+    Map<String, String> update(String id, UnaryOperator<Map<String, String>> change) {
+        long now = clock.millis();
+        Map<String, String> before = Collections.emptyMap();
+        Map<String, String> after;
+        try (Connection conn = ds.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                boolean exists = false;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT data, expires_at FROM sessions WHERE id = ? FOR UPDATE")) {
+                    ps.setString(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            exists = true;
+                            if (rs.getTimestamp(2).getTime() > now) {
+                                before = Collections.unmodifiableMap(SessionData.decode(rs.getString(1)));
+                            }
+                        }
+                    }
+                }
+                after = change.apply(before);
+                if (after == null) {
+                    after = before;
+                } else if (after.isEmpty()) {
+                    if (exists) {
+                        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM sessions WHERE id = ?")) {
+                            ps.setString(1, id);
+                            ps.executeUpdate();
+                        }
+                    }
+                } else {
+                    // MERGE y no INSERT: otro nodo pudo crear la fila después de nuestro SELECT
+                    try (PreparedStatement ps = conn.prepareStatement(exists
+                            ? "UPDATE sessions SET data = ?, expires_at = ? WHERE id = ?"
+                            : "MERGE INTO sessions(data, expires_at, id) KEY(id) VALUES (?, ?, ?)")) {
+                        ps.setString(1, SessionData.encode(after));
+                        ps.setTimestamp(2, new Timestamp(now + config.maxInactiveSeconds * 1000L));
+                        ps.setString(3, id);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            purgeExpired(conn, now);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error guardando la sesión", e);
+        }
+        remember(id, Collections.unmodifiableMap(new LinkedHashMap<>(after)), now);
+        return before;
+    }
+
+    private void remember(String id, Map<String, String> data, long now) {
+        nearLock.lock();
+        try {
+            near.put(id, new Cached(data, now));
+        } finally {
+            nearLock.unlock();
+        }
+    }
+
+    private void purgeExpired(Connection conn, long now) throws SQLException {
+        long last = lastPurge.get();
+        if (now - last < PURGE_EVERY_MS || !lastPurge.compareAndSet(last, now)) return;
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM sessions WHERE expires_at <= ?")) {
+            ps.setTimestamp(1, new Timestamp(now));
+            ps.executeUpdate();
+        }
+    }
+
+    // ===== métricas =====
+    public long getNearHits() { return nearHits.get(); }
+    public long getLoads() { return loads.get(); }
+}
@@ -0,0 +1,29 @@
+package com.example;
+
+import spark.Request;
+import spark.Response;
+import spark.Session;
+
+/** Sesiones en memoria de Jetty (el comportamiento anterior); solo sirve con un nodo. */
+public class JettySessionStore implements SessionStore {
+
+    @Override
+    public String get(Request req, String key) {
+        Session s = req.session(false);
+        return s == null ? null : s.attribute(key);
+    }
+
+    @Override
+    public void put(Request req, Response res, String key, String value) {
+        req.session().attribute(key, value);
+    }
+
+    @Override
+    public String take(Request req, Response res, String key) {
+        Session s = req.session(false);
+        if (s == null) return null;
+        String value = s.attribute(key);
+        if (value != null) s.removeAttribute(key);
+        return value;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * TypeAdapters escritos a mano para Product, Order y OrderItem:
+ * Gson no usa reflexión para estos tipos y escribe directo en el JsonWriter.
+ * Los importes salen como números exactos con 2 decimales (centavos → "499.00").
+ */
+public final class JsonAdapters {
+
+    public static final TypeAdapter<Product> PRODUCT = new ProductAdapter().nullSafe();
+    public static final TypeAdapter<Order> ORDER = new OrderAdapter().nullSafe();
+    public static final TypeAdapter<OrderItem> ORDER_ITEM = new OrderItemAdapter().nullSafe();
+
+    /** Gson con los adapters registrados de antemano. */
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Product.class, PRODUCT)
+            .registerTypeAdapter(Order.class, ORDER)
+            .registerTypeAdapter(OrderItem.class, ORDER_ITEM)
+            .serializeNulls()
+            .disableHtmlEscaping()
+            .create();
+
+    private JsonAdapters() {}
+
+    static final class ProductAdapter extends TypeAdapter<Product> {
+        @Override
+        public void write(JsonWriter out, Product p) throws IOException {
+            out.beginObject();
+            out.name("id").value(p.getId());
+            out.name("name").value(p.getName());
+            out.name("descr").value(p.getDescr());
+            out.name("imageUrl").value(p.getImageUrl());
+            out.name("price");
+            Money.write(out, p.getPriceCents());
+            out.name("stock").value(p.getStock());
+            if (p.hasPromo()) {
+                out.name("promoPrice");
+                Money.write(out, p.getPromoCents());
+                out.name("validUntil").value(p.getValidUntil());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Product read(JsonReader in) throws IOException {
+            Product p = new Product();
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "id" -> p.setId(in.nextString());
+                    case "name" -> p.setName(in.nextString());
+                    case "descr" -> p.setDescr(in.nextString());
+                    case "imageUrl" -> p.setImageUrl(in.nextString());
+                    case "price" -> p.setPriceCents(Money.parse(in.nextString()));
+                    case "stock" -> p.setStock(in.nextInt());
+                    case "promoPrice" -> p.setPromoCents(Money.parse(in.nextString()));
+                    case "validUntil" -> p.setValidUntil(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return p;
+        }
+    }
+
+    static final class OrderAdapter extends TypeAdapter<Order> {
+        @Override
+        public void write(JsonWriter out, Order o) throws IOException {
+            out.beginObject();
+            out.name("id").value(o.getId());
+            out.name("userId").value(o.getUserId());
+            out.name("total");
+            Money.write(out, o.getTotalCents());
+            out.name("createdAt").value(o.getCreatedAt() == null ? null : o.getCreatedAt().toString());
+            out.endObject();
+        }
+
+        @Override
+        public Order read(JsonReader in) throws IOException {
+            Order o = new Order();
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "id" -> o.setId(in.nextLong());
+                    case "userId" -> o.setUserId(in.nextString());
+                    case "total" -> o.setTotalCents(Money.parse(in.nextString()));
+                    case "createdAt" -> o.setCreatedAt(LocalDateTime.parse(in.nextString()));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return o;
+        }
+    }
+
+    static final class OrderItemAdapter extends TypeAdapter<OrderItem> {
+        @Override
+        public void write(JsonWriter out, OrderItem it) throws IOException {
+            out.beginObject();
+            out.name("id").value(it.getId());
+            out.name("orderId").value(it.getOrderId());
+            out.name("productId").value(it.getProductId());
+            if (it.getProductName() != null) out.name("productName").value(it.getProductName());
+            out.name("qty").value(it.getQty());
+            out.name("price");
+            Money.write(out, it.getPriceCents());
+            out.name("subtotal");
+            Money.write(out, it.getSubtotalCents());
+            out.endObject();
+        }
+
+        @Override
+        public OrderItem read(JsonReader in) throws IOException {
+            OrderItem it = new OrderItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "id" -> it.setId(in.nextLong());
+                    case "orderId" -> it.setOrderId(in.nextLong());
+                    case "productId" -> it.setProductId(in.nextString());
+                    case "productName" -> it.setProductName(in.nextString());
+                    case "qty" -> it.setQty(in.nextInt());
+                    case "price" -> it.setPriceCents(Money.parse(in.nextString()));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return it;
+        }
+    }
+}
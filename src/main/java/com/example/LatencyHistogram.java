@@ -0,0 +1,100 @@
+package com.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias estilo HDR: cubetas log-lineales (8 sub-cubetas por
+ * potencia de 2, ~12% de error relativo) en microsegundos.
+ * El registro no reserva memoria y es seguro entre hilos.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;          // 8
+    private static final int LINEAR = SUB_COUNT * 2;             // 0..15 exactos
+    private static final int BUCKETS = LINEAR + (64 - SUB_BITS - 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /** Registra una duración medida con System.nanoTime(). */
+    public void recordNanos(long nanos) {
+        recordMicros(Math.max(0, nanos) / 1_000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) micros = 0;
+        counts.incrementAndGet(indexOf(micros));
+        total.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // reintento CAS
+        }
+    }
+
+    /** Suma las muestras de {@code other} (cubeta por cubeta, sin perder precisión). */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        total.addAndGet(other.total.get());
+        sumMicros.addAndGet(other.sumMicros.get());
+        long m = other.maxMicros.get();
+        long max;
+        while (m > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, m)) {
+            // reintento CAS
+        }
+    }
+
+    public long count() { return total.get(); }
+    public long sumMicros() { return sumMicros.get(); }
+    public long maxMicros() { return maxMicros.get(); }
+
+    public double meanMicros() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sumMicros.get() / n;
+    }
+
+    /** Percentil aproximado (límite superior de la cubeta), q en [0,1]. */
+    public long percentileMicros(double q) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    /** Cantidad de muestras con valor menor o igual a {@code micros} (aprox. por cubeta). */
+    public long countAtOrBelow(long micros) {
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && upperBound(i) <= micros; i++) {
+            seen += counts.get(i);
+        }
+        return seen;
+    }
+
+    static int indexOf(long v) {
+        if (v < LINEAR) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);                 // >= 4
+        int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB_COUNT - 1));
+        return LINEAR + (exp - SUB_BITS - 1) * SUB_COUNT + sub;
+    }
+
+    static long upperBound(int idx) {
+        if (idx < LINEAR) return idx;
+        int rel = idx - LINEAR;
+        int exp = rel / SUB_COUNT + SUB_BITS + 1;
+        long sub = rel % SUB_COUNT;
+        long base = (1L << exp) | (sub << (exp - SUB_BITS));
+        return base + (1L << (exp - SUB_BITS)) - 1;
+    }
+}
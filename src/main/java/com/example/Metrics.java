@@ -0,0 +1,420 @@
+package com.example;
+
+import static spark.Spark.afterAfter;
+import static spark.Spark.before;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import spark.Response;
+import spark.RouteImpl;
+import spark.routematch.RouteMatch;
+
+/**
+ * Métricas de la aplicación en formato de texto Prometheus.
+ * <ul>
+ *   <li>Por ruta: histograma de latencia, peticiones por código de estado.</li>
+ *   <li>Peticiones en curso (gauge).</li>
+ *   <li>Por método de DAO: histograma de latencia ({@link Timer}).</li>
+ *   <li>Pool de conexiones, caché de statements y caché del catálogo.</li>
+ *   <li>Rechazos del control de admisión.</li>
+ * </ul>
+ * El registro en el camino caliente no reserva memoria: histogramas y contadores
+ * se crean una vez por ruta o método y después solo se incrementan.
+ */
+public final class Metrics {
+
+    private Metrics() {}
+
+    /** Límites de las cubetas exportadas, en segundos. */
+    private static final double[] BUCKETS_SECONDS =
+            {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String START_ATTR = "metrics.startNanos";
+    /** Rutas no registradas (404, estáticos) van todas a esta etiqueta para no inflar la cardinalidad. */
+    static final String UNMATCHED = "<otra>";
+
+    /** Latencia de un método de DAO. */
+    public static final class Timer {
+        final String dao;
+        final String method;
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        Timer(String dao, String method) {
+            this.dao = dao;
+            this.method = method;
+        }
+
+        /** Registra la llamada iniciada en {@code startNanos} (System.nanoTime()). */
+        public void stop(long startNanos) {
+            latency.recordNanos(System.nanoTime() - startNanos);
+        }
+
+        public LatencyHistogram getLatency() { return latency; }
+    }
+
+    /** Latencia y conteo por código de estado de una ruta. */
+    static final class RouteStats {
+        final String method;
+        final String route;
+        final LatencyHistogram latency = new LatencyHistogram();
+        /** Índice = código HTTP (100..599). */
+        final AtomicLongArray byStatus = new AtomicLongArray(600);
+
+        RouteStats(String method, String route) {
+            this.method = method;
+            this.route = route;
+        }
+    }
+
+    /** Patrón de ruta de Spark partido en segmentos (":id" y "*" aceptan cualquier segmento). */
+    static final class RoutePattern {
+        final String method;
+        final String path;
+        final String[] segments;
+
+        RoutePattern(String method, String path) {
+            this.method = method;
+            this.path = path;
+            this.segments = split(path);
+        }
+
+        /** Compara segmento a segmento sobre la ruta pedida, sin partirla ni copiarla. */
+        boolean matches(String method, String path) {
+            if (!this.method.equals(method)) return false;
+            int n = path.length();
+            int pos = 0;
+            for (String s : segments) {
+                while (pos < n && path.charAt(pos) == '/') pos++;
+                if (s.equals("*")) return true;
+                if (pos == n) return false;
+                int end = path.indexOf('/', pos);
+                if (end < 0) end = n;
+                if (!s.startsWith(":") && (end - pos != s.length() || !path.startsWith(s, pos))) return false;
+                pos = end;
+            }
+            while (pos < n && path.charAt(pos) == '/') pos++;
+            return pos == n;
+        }
+    }
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    /** método → patrón de ruta → estadísticas (dos niveles para no concatenar claves por petición) */
+    private static final Map<String, Map<String, RouteStats>> ROUTES = new ConcurrentHashMap<>();
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+    /** Tabla de patrones; vacía hasta {@link #routesMapped()}. */
+    private static volatile List<RoutePattern> patterns = List.of();
+
+    private static volatile ConnectionPool pool;
+    private static volatile CatalogCache catalog;
+    private static volatile OfferWriteBehind offerQueue;
+    private static volatile ResponseCache pages;
+    private static volatile OfferExpiryScheduler offerExpiry;
+    private static volatile CatalogFollower follower;
+    private static volatile AdmissionControl admission;
+
+    /** Timer de un método de DAO; se guarda en un campo estático del DAO. */
+    public static Timer daoTimer(String dao, String method) {
+        return TIMERS.computeIfAbsent(dao + "." + method, k -> new Timer(dao, method));
+    }
+
+    /** Fuentes de gauges que se leen al exportar (pueden ser null). */
+    public static void register(ConnectionPool pool, CatalogCache catalog, OfferWriteBehind offerQueue) {
+        Metrics.pool = pool;
+        Metrics.catalog = catalog;
+        Metrics.offerQueue = offerQueue;
+    }
+
+    /** Caché de páginas HTML cuyo uso se exporta (puede ser null). */
+    public static void register(ResponseCache pages) {
+        Metrics.pages = pages;
+    }
+
+    /** Retiro de ofertas vencidas cuyo uso se exporta (puede ser null). */
+    public static void register(OfferExpiryScheduler offerExpiry) {
+        Metrics.offerExpiry = offerExpiry;
+    }
+
+    /** Seguidor de catalog_changes cuyo avance se exporta (puede ser null). */
+    public static void register(CatalogFollower follower) {
+        Metrics.follower = follower;
+    }
+
+    /** Control de admisión cuyos rechazos se exportan (puede ser null). */
+    public static void register(AdmissionControl admission) {
+        Metrics.admission = admission;
+    }
+
+    /**
+     * Registra los filtros before/afterAfter de Spark y la ruta GET /metrics.
+     * Debe llamarse antes de mapear las demás rutas (los filtros se aplican a todas).
+     */
+    public static void install() {
+        before((req, res) -> {
+            IN_FLIGHT.incrementAndGet();
+            req.attribute(START_ATTR, System.nanoTime());
+        });
+        // afterAfter corre también tras un halt o una excepción, con el estado final
+        afterAfter((req, res) -> {
+            Long t0 = req.attribute(START_ATTR);
+            if (t0 == null) return;
+            IN_FLIGHT.decrementAndGet();
+            record(req.requestMethod(), req.pathInfo(), status(res), System.nanoTime() - t0);
+        });
+        spark.Spark.get("/metrics", (req, res) -> {
+            res.type("text/plain; version=0.0.4; charset=utf-8");
+            return scrape();
+        });
+    }
+
+    private static int status(Response res) {
+        // las vistas escriben directo a la respuesta cruda: su estado es el real
+        return res.raw() != null ? res.raw().getStatus() : res.status();
+    }
+
+    static void record(String method, String path, int status, long nanos) {
+        String route = routeOf(method, path);
+        Map<String, RouteStats> byRoute = ROUTES.computeIfAbsent(method, k -> new ConcurrentHashMap<>());
+        RouteStats rs = byRoute.get(route);
+        if (rs == null) rs = byRoute.computeIfAbsent(route, k -> new RouteStats(method, route));
+        rs.latency.recordNanos(nanos);
+        if (status >= 100 && status < 600) rs.byStatus.incrementAndGet(status);
+    }
+
+    /** Patrón de la ruta que atendió la petición, o {@link #UNMATCHED}. */
+    static String routeOf(String method, String path) {
+        String p = path == null ? "" : path;
+        for (RoutePattern rp : patterns) {
+            if (rp.matches(method, p)) return rp.path;
+        }
+        return UNMATCHED;
+    }
+
+    /**
+     * Arma la tabla de patrones con las rutas ya mapeadas en Spark. Se llama una vez, al
+     * final de main(); las peticiones que llegan antes cuentan como {@link #UNMATCHED}.
+     */
+    public static void routesMapped() {
+        patterns = List.copyOf(sparkRoutes());
+    }
+
+    /** Rutas mapeadas en Spark (sin filtros), en orden de registro. */
+    private static List<RoutePattern> sparkRoutes() {
+        List<RoutePattern> out = new ArrayList<>();
+        for (RouteMatch m : spark.Spark.routes()) {
+            if (m.getTarget() instanceof RouteImpl) {
+                out.add(new RoutePattern(m.getHttpMethod().name().toUpperCase(Locale.ROOT), m.getMatchUri()));
+            }
+        }
+        return out;
+    }
+
+    /** Para tests: fija los patrones de ruta sin levantar Spark. */
+    static void routePatterns(List<RoutePattern> ps) {
+        patterns = List.copyOf(ps);
+    }
+
+    /** Segmentos de un patrón (solo al armar la tabla, no por petición). */
+    private static String[] split(String path) {
+        String p = path;
+        while (p.startsWith("/")) p = p.substring(1);
+        while (p.endsWith("/")) p = p.substring(0, p.length() - 1);
+        return p.isEmpty() ? new String[0] : p.split("/");
+    }
+
+    // ===== exportación =====
+
+    /** Texto Prometheus con todas las métricas. */
+    public static String scrape() {
+        StringBuilder sb = new StringBuilder(8192);
+
+        Map<String, RouteStats> routes = new TreeMap<>();
+        for (Map<String, RouteStats> byRoute : ROUTES.values()) {
+            for (RouteStats rs : byRoute.values()) routes.put(rs.route + " " + rs.method, rs);
+        }
+        sb.append("# HELP http_requests_total Peticiones atendidas por ruta y código de estado.\n");
+        sb.append("# TYPE http_requests_total counter\n");
+        for (RouteStats rs : routes.values()) {
+            for (int s = 100; s < 600; s++) {
+                long n = rs.byStatus.get(s);
+                if (n > 0) {
+                    sb.append("http_requests_total{method=\"").append(rs.method)
+                            .append("\",route=\"").append(escape(rs.route))
+                            .append("\",status=\"").append(s).append("\"} ").append(n).append('\n');
+                }
+            }
+        }
+
+        sb.append("# HELP http_requests_in_flight Peticiones en curso.\n");
+        sb.append("# TYPE http_requests_in_flight gauge\n");
+        sb.append("http_requests_in_flight ").append(IN_FLIGHT.get()).append('\n');
+
+        histogramHeader(sb, "http_request_duration_seconds", "Latencia de las peticiones por ruta.");
+        for (RouteStats rs : routes.values()) {
+            histogram(sb, "http_request_duration_seconds",
+                    "method=\"" + rs.method + "\",route=\"" + escape(rs.route) + "\"", rs.latency);
+        }
+        summaryHeader(sb, "http_request_latency_seconds", "Percentiles de latencia por ruta (histograma HDR).");
+        for (RouteStats rs : routes.values()) {
+            summary(sb, "http_request_latency_seconds",
+                    "method=\"" + rs.method + "\",route=\"" + escape(rs.route) + "\"", rs.latency);
+        }
+
+        Map<String, Timer> timers = new TreeMap<>(TIMERS);
+        histogramHeader(sb, "dao_call_duration_seconds", "Latencia de los métodos de DAO.");
+        for (Timer t : timers.values()) {
+            histogram(sb, "dao_call_duration_seconds", daoLabels(t), t.latency);
+        }
+        summaryHeader(sb, "dao_call_latency_seconds", "Percentiles de latencia de los métodos de DAO.");
+        for (Timer t : timers.values()) {
+            summary(sb, "dao_call_latency_seconds", daoLabels(t), t.latency);
+        }
+
+        AdmissionControl ac = admission;
+        if (ac != null) {
+            sb.append("# HELP http_admission_rejected_total Peticiones rechazadas por tipo y motivo (client/global: 429, shed: 503).\n");
+            sb.append("# TYPE http_admission_rejected_total counter\n");
+            for (boolean write : new boolean[]{false, true}) {
+                for (AdmissionControl.Reason r : AdmissionControl.Reason.values()) {
+                    if (!write && r == AdmissionControl.Reason.SHED) continue;
+                    sb.append("http_admission_rejected_total{kind=\"").append(write ? "write" : "read")
+                            .append("\",reason=\"").append(r.label).append("\"} ")
+                            .append(ac.getRejected(write, r)).append('\n');
+                }
+            }
+            gauge(sb, "http_admission_writes_in_flight", "Escrituras admitidas en curso.", ac.getWritesInFlight());
+            gauge(sb, "http_admission_shedding", "1 si las escrituras pasan de a una por BD lenta.", ac.isShedding() ? 1 : 0);
+            gauge(sb, "http_admission_clients", "IPs con cubeta propia.", ac.getClients());
+            counter(sb, "http_admission_clients_evicted_total", "IPs sacadas del mapa al llegar a maxClients.", ac.getEvictedClients());
+        }
+
+        ConnectionPool p = pool;
+        if (p != null) {
+            gauge(sb, "db_pool_active_connections", "Conexiones prestadas.", p.getActive());
+            gauge(sb, "db_pool_idle_connections", "Conexiones ociosas.", p.getIdle());
+            gauge(sb, "db_pool_waiting_threads", "Hilos esperando conexión.", p.getWaiting());
+            gauge(sb, "db_pool_max_connections", "Tamaño máximo del pool.", p.getMaxSize());
+            counter(sb, "db_pool_timeouts_total", "Timeouts esperando conexión.", p.getTimeouts());
+            counter(sb, "db_pool_leaks_total", "Posibles fugas detectadas.", p.getLeaks());
+            counter(sb, "db_statement_parses_total", "Statements preparados contra la BD.", p.getStatementParses());
+            counter(sb, "db_statement_reuses_total", "Statements servidos desde el caché.", p.getStatementReuses());
+            counter(sb, "db_statement_evictions_total", "Statements desalojados del caché.", p.getStatementEvictions());
+            gauge(sb, "db_statement_cached", "Statements abiertos en los cachés de las conexiones.", p.getStatementsCached());
+            sb.append("# HELP db_recent_latency_seconds Media móvil de la espera por una conexión, decae con el tiempo.\n");
+            sb.append("# TYPE db_recent_latency_seconds gauge\n");
+            sb.append("db_recent_latency_seconds ").append(seconds(p.getRecentLatencyMicros())).append('\n');
+            histogramHeader(sb, "db_pool_acquire_seconds", "Espera para obtener una conexión.");
+            histogram(sb, "db_pool_acquire_seconds", "", p.getAcquireLatency());
+        }
+        CatalogCache c = catalog;
+        if (c != null) {
+            counter(sb, "catalog_cache_hits_total", "Lecturas servidas por la foto del catálogo.", c.getHits());
+            counter(sb, "catalog_cache_misses_total", "Recargas del catálogo desde la BD.", c.getMisses());
+            counter(sb, "catalog_cache_evictions_total", "Invalidaciones por escritura.", c.getEvictions());
+            counter(sb, "catalog_cache_expirations_total", "Caducidades por vencimiento de oferta.", c.getExpirations());
+            counter(sb, "catalog_cache_patches_total", "Fotos nuevas armadas parcheando pocos productos.", c.getPatches());
+        }
+        OfferExpiryScheduler ex = offerExpiry;
+        if (ex != null) {
+            gauge(sb, "offer_expiry_tracked_dates", "Fechas de vencimiento de ofertas agendadas.", ex.getTracked());
+            counter(sb, "offer_expiry_sweeps_total", "Barridos de ofertas vencidas.", ex.getSweeps());
+            counter(sb, "offer_expiry_expired_total", "Ofertas vencidas archivadas y borradas.", ex.getExpired());
+            counter(sb, "offer_expiry_failures_total", "Barridos fallidos (se reintentan).", ex.getFailures());
+        }
+        CatalogFollower f = follower;
+        if (f != null) {
+            gauge(sb, "catalog_follower_position", "Último seq de catalog_changes leído.", f.getPosition());
+            gauge(sb, "catalog_follower_pending_gaps", "Seq salteados que todavía se esperan.", f.getPendingGaps());
+            counter(sb, "catalog_follower_polls_total", "Lecturas del registro de cambios.", f.getPolls());
+            counter(sb, "catalog_follower_changes_total", "Cambios leídos del registro.", f.getChanges());
+            counter(sb, "catalog_follower_applied_total", "Productos releídos y aplicados a la réplica.", f.getApplied());
+            counter(sb, "catalog_follower_gaps_skipped_total", "Seq que no aparecieron a tiempo.", f.getGapsSkipped());
+            counter(sb, "catalog_follower_resyncs_total", "Recargas completas de la réplica.", f.getResyncs());
+            counter(sb, "catalog_follower_failures_total", "Lecturas fallidas (se reintentan).", f.getFailures());
+        }
+        ResponseCache rc = pages;
+        if (rc != null) {
+            gauge(sb, "http_page_cache_entries", "Páginas guardadas en el caché de respuestas.", rc.size());
+            counter(sb, "http_page_cache_hits_total", "Páginas servidas desde memoria.", rc.getHits());
+            counter(sb, "http_page_cache_misses_total", "Páginas renderizadas de nuevo.", rc.getMisses());
+            counter(sb, "http_page_cache_not_modified_total", "Respuestas 304 por ETag / Last-Modified.", rc.getNotModified());
+            counter(sb, "http_page_cache_evictions_total", "Páginas desalojadas por LRU al llegar a maxEntries.", rc.getEvictions());
+        }
+        OfferWriteBehind q = offerQueue;
+        if (q != null) {
+            gauge(sb, "offer_queue_pending", "Ofertas encoladas sin escribir.", q.getPending());
+            counter(sb, "offer_queue_enqueued_total", "Escrituras de ofertas encoladas.", q.getEnqueued());
+            counter(sb, "offer_queue_coalesced_total", "Escrituras que reemplazaron a otra pendiente.", q.getCoalesced());
+            counter(sb, "offer_queue_written_total", "Ofertas escritas en la BD.", q.getWritten());
+            counter(sb, "offer_queue_batches_total", "Lotes escritos.", q.getBatches());
+            counter(sb, "offer_queue_rejected_total", "Escrituras rechazadas por cola llena.", q.getRejected());
+            counter(sb, "offer_queue_dropped_total", "Escrituras descartadas por error de datos.", q.getDropped());
+        }
+        return sb.toString();
+    }
+
+    private static String daoLabels(Timer t) {
+        return "dao=\"" + t.dao + "\",method=\"" + t.method + "\"";
+    }
+
+    private static void histogramHeader(StringBuilder sb, String name, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" histogram\n");
+    }
+
+    private static void summaryHeader(StringBuilder sb, String name, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" summary\n");
+    }
+
+    private static void histogram(StringBuilder sb, String name, String labels, LatencyHistogram h) {
+        String sep = labels.isEmpty() ? "" : ",";
+        for (double le : BUCKETS_SECONDS) {
+            sb.append(name).append("_bucket{").append(labels).append(sep).append("le=\"").append(le).append("\"} ")
+                    .append(h.countAtOrBelow((long) (le * 1_000_000))).append('\n');
+        }
+        long count = h.count();
+        sb.append(name).append("_bucket{").append(labels).append(sep).append("le=\"+Inf\"} ").append(count).append('\n');
+        sumAndCount(sb, name, labels, h, count);
+    }
+
+    private static void summary(StringBuilder sb, String name, String labels, LatencyHistogram h) {
+        for (double q : QUANTILES) {
+            sb.append(name).append('{').append(labels).append(",quantile=\"").append(q).append("\"} ")
+                    .append(seconds(h.percentileMicros(q))).append('\n');
+        }
+        sumAndCount(sb, name, labels, h, h.count());
+    }
+
+    private static void sumAndCount(StringBuilder sb, String name, String labels, LatencyHistogram h, long count) {
+        String l = labels.isEmpty() ? "" : "{" + labels + "}";
+        sb.append(name).append("_sum").append(l).append(' ').append(seconds(h.sumMicros())).append('\n');
+        sb.append(name).append("_count").append(l).append(' ').append(count).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+
+    private static String escape(String v) {
+        return v.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,306 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Migraciones versionadas del esquema (src/main/resources/db/migration).
+ * Cada script aplicado queda en schema_version con su checksum; si un script ya
+ * aplicado cambia, el arranque falla en vez de divergir en silencio.
+ * Con el esquema al día solo se lee schema_version: no hay DDL ni COUNT(*).
+ *
+ * <p>Si hay algo pendiente, el nodo toma antes el lease de schema_lock y vuelve a leer
+ * schema_version: dos nodos que arrancan juntos no aplican el mismo script dos veces.
+ * No alcanza con una transacción ni con SELECT FOR UPDATE porque H2 confirma cada DDL
+ * y con eso soltaría el bloqueo a mitad del script.
+ *
+ * <p>Para un cambio de esquema se agrega un script nuevo al final de {@link #SCRIPTS};
+ * los ya publicados no se editan.
+ */
+public final class Migrations {
+
+    private static final Logger log = LoggerFactory.getLogger(Migrations.class);
+
+    /** Scripts en orden de aplicación; el prefijo Vn es la versión. */
+    static final List<String> SCRIPTS = List.of(
+            "V1__esquema_base.sql",
+            "V2__ofertas.sql",
+            "V3__indices_ordenes.sql",
+            "V4__semillas.sql",
+            "V5__importes_en_centavos.sql",
+            "V6__vencimiento_ofertas.sql",
+            "V7__sesiones.sql",
+            "V8__cambios_catalogo.sql",
+            "V9__analitica_ventas.sql",
+            "V10__indices_ranking_ventas.sql"
+    );
+
+    private static final String LOCATION = "/db/migration/";
+
+    /** Duración del lease; se renueva antes de cada script. */
+    static final int LOCK_LEASE_SECONDS = 300;
+    /** Cuánto espera un nodo a que otro termine de migrar antes de abortar el arranque. */
+    static final long LOCK_WAIT_MS = 15 * 60 * 1000L;
+    private static final long LOCK_POLL_MS = 500;
+
+    /** Script cargado del classpath. */
+    static final class Script {
+        final int version;
+        final String name;
+        final String sql;
+        final long checksum;
+
+        Script(int version, String name, String sql, long checksum) {
+            this.version = version;
+            this.name = name;
+            this.sql = sql;
+            this.checksum = checksum;
+        }
+    }
+
+    private Migrations() {}
+
+    /** Aplica las migraciones pendientes. Devuelve cuántas aplicó (0 si el esquema estaba al día). */
+    public static int migrate(Connection c) throws SQLException {
+        return migrate(c, load(SCRIPTS));
+    }
+
+    static int migrate(Connection c, List<Script> scripts) throws SQLException {
+        // Camino normal: esquema al día, sin lock ni DDL
+        if (versionTableExists(c) && upToDate(applied(c), scripts)) return 0;
+
+        boolean autoCommit = c.getAutoCommit();
+        c.setAutoCommit(true);
+        String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+        try {
+            acquireLock(c, owner);
+            try {
+                ensureVersionTable(c);
+                // Releer con el lock tomado: otro nodo pudo haber migrado mientras esperábamos
+                Map<Integer, Long> applied = applied(c);
+                int count = 0;
+                for (Script s : scripts) {
+                    Long checksum = applied.get(s.version);
+                    if (checksum != null) {
+                        checkUnchanged(s, checksum);
+                        continue;
+                    }
+                    renewLock(c, owner);
+                    apply(c, s);
+                    count++;
+                }
+                if (count > 0) log.info("Esquema migrado: {} script(s) aplicados", count);
+                return count;
+            } finally {
+                releaseLock(c, owner);
+            }
+        } finally {
+            c.setAutoCommit(autoCommit);
+        }
+    }
+
+    /** true si no falta ningún script; falla si uno aplicado cambió. */
+    private static boolean upToDate(Map<Integer, Long> applied, List<Script> scripts) {
+        boolean upToDate = true;
+        for (Script s : scripts) {
+            Long checksum = applied.get(s.version);
+            if (checksum == null) {
+                upToDate = false;
+            } else {
+                checkUnchanged(s, checksum);
+            }
+        }
+        return upToDate;
+    }
+
+    private static void checkUnchanged(Script s, long checksum) {
+        if (checksum != s.checksum) {
+            throw new IllegalStateException("La migración " + s.name
+                    + " cambió después de aplicarse (checksum " + checksum + " → " + s.checksum + ")");
+        }
+    }
+
+    private static boolean versionTableExists(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'SCHEMA_VERSION'");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1) > 0;
+        }
+    }
+
+    private static void ensureVersionTable(Connection c) throws SQLException {
+        // Consulta al catálogo en vez de DDL: en el camino normal no se ejecuta ningún CREATE
+        if (versionTableExists(c)) return;
+        try (Statement st = c.createStatement()) {
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version(
+                  version      INT PRIMARY KEY,
+                  script       VARCHAR(200) NOT NULL,
+                  checksum     BIGINT NOT NULL,
+                  installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                  execution_ms BIGINT NOT NULL
+                )
+                """);
+        }
+    }
+
+    /**
+     * Toma el lease de schema_lock (una sola fila). Es un UPDATE en autocommit, así que no
+     * depende de que la transacción siga abierta; si el dueño se cae, el lease vence solo.
+     */
+    private static void acquireLock(Connection c, String owner) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS schema_lock(id INT PRIMARY KEY, owner VARCHAR(200), locked_until TIMESTAMP)");
+            st.execute("INSERT INTO schema_lock(id) VALUES (1)");
+        } catch (SQLException e) {
+            if (!"23505".equals(e.getSQLState())) throw e; // la fila ya existe
+        }
+        long deadline = System.currentTimeMillis() + LOCK_WAIT_MS;
+        boolean logged = false;
+        try (PreparedStatement ps = c.prepareStatement("""
+                UPDATE schema_lock SET owner = ?, locked_until = DATEADD(SECOND, ?, LOCALTIMESTAMP)
+                WHERE id = 1 AND (owner IS NULL OR locked_until < LOCALTIMESTAMP)
+                """)) {
+            ps.setString(1, owner);
+            ps.setInt(2, LOCK_LEASE_SECONDS);
+            while (ps.executeUpdate() == 0) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Otro nodo sigue migrando el esquema después de "
+                            + LOCK_WAIT_MS / 1000 + "s (ver schema_lock)");
+                }
+                if (!logged) {
+                    log.info("Esperando a que otro nodo termine de migrar el esquema");
+                    logged = true;
+                }
+                try {
+                    Thread.sleep(LOCK_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrumpido esperando el lock de migraciones", e);
+                }
+            }
+        }
+    }
+
+    private static void renewLock(Connection c, String owner) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE schema_lock SET locked_until = DATEADD(SECOND, ?, LOCALTIMESTAMP) WHERE id = 1 AND owner = ?")) {
+            ps.setInt(1, LOCK_LEASE_SECONDS);
+            ps.setString(2, owner);
+            if (ps.executeUpdate() == 0) {
+                throw new IllegalStateException("Se perdió el lock de migraciones (venció el lease de "
+                        + LOCK_LEASE_SECONDS + "s)");
+            }
+        }
+    }
+
+    private static void releaseLock(Connection c, String owner) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE schema_lock SET owner = NULL, locked_until = NULL WHERE id = 1 AND owner = ?")) {
+            ps.setString(1, owner);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Map<Integer, Long> applied(Connection c) throws SQLException {
+        Map<Integer, Long> out = new HashMap<>();
+        try (PreparedStatement ps = c.prepareStatement("SELECT version, checksum FROM schema_version");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.put(rs.getInt(1), rs.getLong(2));
+        }
+        return out;
+    }
+
+    /** Ejecuta el script y lo registra en la misma transacción (H2 confirma solo el DDL). */
+    private static void apply(Connection c, Script s) throws SQLException {
+        long t0 = System.nanoTime();
+        boolean autoCommit = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (Statement st = c.createStatement()) {
+            for (String stmt : statements(s.sql)) st.execute(stmt);
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO schema_version(version, script, checksum, execution_ms) VALUES (?,?,?,?)")) {
+                ps.setInt(1, s.version);
+                ps.setString(2, s.name);
+                ps.setLong(3, s.checksum);
+                ps.setLong(4, (System.nanoTime() - t0) / 1_000_000);
+                ps.executeUpdate();
+            }
+            c.commit();
+            log.info("Migración aplicada: {}", s.name);
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw new SQLException("Falló la migración " + s.name + ": " + e.getMessage(), e);
+        } finally {
+            c.setAutoCommit(autoCommit);
+        }
+    }
+
+    static List<Script> load(List<String> names) {
+        List<Script> out = new ArrayList<>(names.size());
+        int last = 0;
+        for (String name : names) {
+            int version = versionOf(name);
+            if (version <= last) throw new IllegalStateException("Migraciones fuera de orden: " + name);
+            last = version;
+            String sql;
+            try (InputStream in = Migrations.class.getResourceAsStream(LOCATION + name)) {
+                if (in == null) throw new IllegalStateException("No se encontró la migración " + name);
+                sql = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            out.add(new Script(version, name, sql, checksum(sql)));
+        }
+        return out;
+    }
+
+    static int versionOf(String name) {
+        int sep = name.indexOf("__");
+        if (!name.startsWith("V") || sep < 2) throw new IllegalStateException("Nombre de migración inválido: " + name);
+        return Integer.parseInt(name.substring(1, sep));
+    }
+
+    /** CRC32 del script sin \r, para que el checksum no dependa del fin de línea del checkout. */
+    static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        crc.update(sql.replace("\r", "").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /** Parte el script en sentencias por ';' al final de línea, sin comentarios "--" de línea completa. */
+    static List<String> statements(String sql) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        for (String line : sql.replace("\r", "").split("\n")) {
+            String t = line.trim();
+            if (t.isEmpty() || t.startsWith("--")) continue;
+            cur.append(line).append('\n');
+            if (t.endsWith(";")) {
+                String stmt = cur.toString().trim();
+                out.add(stmt.substring(0, stmt.length() - 1));
+                cur.setLength(0);
+            }
+        }
+        if (!cur.toString().isBlank()) out.add(cur.toString().trim());
+        return out;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Importes como {@code long} de centavos: sin BigDecimal ni double en el camino
+ * BD → modelo → vista, y sin errores de redondeo en las promociones.
+ * Todo es estático para no asignar un objeto por importe.
+ */
+public final class Money {
+
+    /** Sin importe (p.ej. un producto sin oferta). */
+    public static final long NONE = -1;
+
+    /** 2 decimales como DECIMAL(12,2): hasta 10 dígitos enteros. */
+    private static final int MAX_INTEGER_DIGITS = 10;
+
+    private Money() {}
+
+    /**
+     * "499", "499.5" o "499.50" → 49950. Acepta a lo sumo 2 decimales y rechaza
+     * signo, exponente y separadores de miles.
+     * @throws IllegalArgumentException si el texto no es un importe válido
+     */
+    public static long parse(String text) {
+        if (text == null) throw new IllegalArgumentException("Importe vacío");
+        String s = text.trim();
+        int dot = s.indexOf('.');
+        int intEnd = dot < 0 ? s.length() : dot;
+        int decimals = dot < 0 ? 0 : s.length() - dot - 1;
+        if (intEnd == 0 || intEnd > MAX_INTEGER_DIGITS || decimals > 2 || (dot >= 0 && decimals == 0)) {
+            throw new IllegalArgumentException("Importe inválido: " + text);
+        }
+        long cents = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (i == dot) continue;
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') throw new IllegalArgumentException("Importe inválido: " + text);
+            cents = cents * 10 + (ch - '0');
+        }
+        for (int i = decimals; i < 2; i++) cents *= 10;
+        return cents;
+    }
+
+    /** 49950 → "499.50"; negativo con signo. */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long units = abs / 100;
+        int rest = (int) (abs % 100);
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) sb.append('-');
+        sb.append(units).append('.');
+        if (rest < 10) sb.append('0');
+        return sb.append(rest).toString();
+    }
+
+    /** Precio unitario por cantidad; ArithmeticException si desborda. */
+    public static long times(long cents, int qty) {
+        return Math.multiplyExact(cents, qty);
+    }
+
+    /** Escribe el importe como número JSON exacto con 2 decimales (499.50). */
+    static void write(JsonWriter out, long cents) throws IOException {
+        out.jsonValue(format(cents));
+    }
+}
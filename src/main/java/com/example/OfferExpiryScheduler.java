@@ -0,0 +1,282 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retira las ofertas vencidas de product_offers justo cuando vencen.
+ * <ul>
+ *   <li>Lleva las fechas de vencimiento distintas en un conjunto ordenado y programa un
+ *       único disparo para la primera (una oferta vale hasta el final de su valid_until).</li>
+ *   <li>Cada barrido pasa las vencidas a product_offers_archive y las borra, en lotes de
+ *       {@code batchSize} por transacción, y avisa con {@code onExpired} los productos retirados (actualizar cachés).</li>
+ *   <li>Las fechas se releen del índice tras cada barrido y al menos una vez por día, así
+ *       también ve las ofertas escritas por fuera del DAO (p.ej. el importador).</li>
+ * </ul>
+ */
+public class OfferExpiryScheduler implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OfferExpiryScheduler.class);
+
+    /** Parámetros; se leen de propiedades de sistema "offers.expiry.*". */
+    public static class Config {
+        /** Ofertas archivadas y borradas por transacción. */
+        public int batchSize = 500;
+        /** Espera antes de reintentar un barrido que falló. */
+        public long retryDelayMs = 30_000;
+        /** Máxima espera entre barridos aunque no venza nada (relectura de fechas). */
+        public long maxDelayMs = TimeUnit.DAYS.toMillis(1);
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.batchSize = Integer.getInteger("offers.expiry.batchSize", c.batchSize);
+            c.retryDelayMs = Long.getLong("offers.expiry.retryDelayMs", c.retryDelayMs);
+            c.maxDelayMs = Long.getLong("offers.expiry.maxDelayMs", c.maxDelayMs);
+            return c;
+        }
+
+        void validate() {
+            if (batchSize < 1) throw new IllegalArgumentException("offers.expiry.batchSize debe ser >= 1");
+            if (maxDelayMs < 1) throw new IllegalArgumentException("offers.expiry.maxDelayMs debe ser >= 1");
+        }
+    }
+
+    /** Oferta vencida leída para archivar. */
+    private static final class Expired {
+        final String productId;
+        final long promoCents;
+        final java.sql.Date validUntil;
+
+        Expired(String productId, long promoCents, java.sql.Date validUntil) {
+            this.productId = productId;
+            this.promoCents = promoCents;
+            this.validUntil = validUntil;
+        }
+    }
+
+    private final DataSource ds;
+    private final Config config;
+    private final Clock clock;
+    /** Se llama después de un barrido que retiró ofertas (p.ej. invalidar el caché del catálogo). */
+    private final Consumer<List<String>> onExpired;
+
+    /** Fechas de vencimiento conocidas, en orden; la primera decide el próximo disparo. */
+    private final NavigableSet<LocalDate> dates = new ConcurrentSkipListSet<>();
+    private final ScheduledExecutorService timer;
+    /** Protege next/nextAt; lock y no synchronized para no fijar hilos virtuales. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private ScheduledFuture<?> next;
+    private long nextAt = Long.MAX_VALUE;
+    private volatile boolean closed;
+
+    private final AtomicLong sweeps = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public OfferExpiryScheduler(DataSource ds, Config config, Clock clock, Consumer<List<String>> onExpired) {
+        config.validate();
+        this.ds = ds;
+        this.config = config;
+        this.clock = clock;
+        this.onExpired = onExpired;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "offer-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Lee las fechas de la BD y programa el primer barrido (inmediato si ya hay vencidas). */
+    public OfferExpiryScheduler start() {
+        timer.execute(this::sweepQuietly);
+        return this;
+    }
+
+    /** Registra el vencimiento de una oferta recién guardada; adelanta el disparo si vence antes. */
+    public void track(LocalDate validUntil) {
+        if (closed || !dates.add(validUntil)) return;
+        scheduleAt(expiresAt(validUntil));
+    }
+
+    /** Epoch millis en que deja de valer una oferta con ese valid_until (inicio del día siguiente). */
+    long expiresAt(LocalDate validUntil) {
+        return validUntil.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    /** Programa un disparo para {@code at} salvo que ya haya uno antes o a la misma hora. */
+    private void scheduleAt(long at) {
+        lock.lock();
+        try {
+            if (closed || (next != null && !next.isDone() && nextAt <= at)) return;
+            if (next != null) next.cancel(false);
+            nextAt = at;
+            next = timer.schedule(this::sweepQuietly, Math.max(0, at - clock.millis()), TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sweepQuietly() {
+        lock.lock();
+        try {
+            nextAt = Long.MAX_VALUE;
+        } finally {
+            lock.unlock();
+        }
+        long delay;
+        try {
+            sweep();
+            LocalDate first = dates.isEmpty() ? null : dates.first();
+            long until = first == null ? Long.MAX_VALUE : expiresAt(first) - clock.millis();
+            delay = Math.min(Math.max(0, until), config.maxDelayMs);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            log.error("Error retirando ofertas vencidas", e);
+            delay = config.retryDelayMs;
+        }
+        scheduleAt(clock.millis() + delay);
+    }
+
+    /**
+     * Archiva y borra las ofertas con valid_until anterior a hoy, lote por lote, y relee
+     * las fechas pendientes. Devuelve cuántas retiró.
+     */
+    int sweep() {
+        LocalDate today = LocalDate.now(clock);
+        java.sql.Date cutoff = java.sql.Date.valueOf(today);
+        List<Expired> removed = new ArrayList<>();
+        try (Connection c = ds.getConnection()) {
+            while (sweepBatch(c, cutoff, removed) == config.batchSize) {
+                // lote lleno: puede haber más
+            }
+            reloadDates(c, cutoff);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error retirando ofertas vencidas", e);
+        }
+        int total = removed.size();
+        if (total > 0) {
+            expired.addAndGet(total);
+            List<String> ids = new ArrayList<>(total);
+            for (Expired e : removed) ids.add(e.productId);
+            onExpired.accept(ids);
+            log.info("Ofertas vencidas retiradas: {}", total);
+        }
+        sweeps.incrementAndGet();
+        return total;
+    }
+
+    /**
+     * Un lote en una transacción; el borrado exige el mismo valid_until, así no pisa una renovación.
+     * Agrega a {@code removed} lo retirado y devuelve cuántas vencidas leyó.
+     */
+    private int sweepBatch(Connection c, java.sql.Date cutoff, List<Expired> removed) throws SQLException {
+        List<Expired> batch = new ArrayList<>();
+        try (PreparedStatement ps = c.prepareStatement("""
+                SELECT product_id, promo_price_cents, valid_until
+                FROM product_offers
+                WHERE valid_until < ?
+                ORDER BY valid_until
+                FETCH FIRST ? ROWS ONLY
+                """)) {
+            ps.setDate(1, cutoff);
+            ps.setInt(2, config.batchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) batch.add(new Expired(rs.getString(1), rs.getLong(2), rs.getDate(3)));
+            }
+        }
+        if (batch.isEmpty()) return 0;
+
+        boolean autoCommit = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (PreparedStatement del = c.prepareStatement(
+                     "DELETE FROM product_offers WHERE product_id = ? AND valid_until = ?");
+             PreparedStatement arch = c.prepareStatement(
+                     "INSERT INTO product_offers_archive(product_id, promo_price_cents, valid_until) VALUES (?, ?, ?)")) {
+            for (Expired e : batch) {
+                del.setString(1, e.productId);
+                del.setDate(2, e.validUntil);
+                del.addBatch();
+            }
+            int[] deleted = del.executeBatch();
+            List<Expired> archived = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (deleted[i] == 0) continue;
+                Expired e = batch.get(i);
+                arch.setString(1, e.productId);
+                arch.setLong(2, e.promoCents);
+                arch.setDate(3, e.validUntil);
+                arch.addBatch();
+                archived.add(e);
+            }
+            if (!archived.isEmpty()) {
+                arch.executeBatch();
+                List<String> ids = new ArrayList<>(archived.size());
+                for (Expired e : archived) ids.add(e.productId);
+                CatalogChanges.recordAll(c, CatalogChanges.OFFER, ids);
+            }
+            c.commit();
+            removed.addAll(archived);
+            return batch.size();
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(autoCommit);
+        }
+    }
+
+    /** Reemplaza las fechas conocidas por las de la BD (lectura del índice, sin recorrer filas). */
+    private void reloadDates(Connection c, java.sql.Date cutoff) throws SQLException {
+        List<LocalDate> fresh = new ArrayList<>();
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT DISTINCT valid_until FROM product_offers WHERE valid_until >= ?")) {
+            ps.setDate(1, cutoff);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) fresh.add(rs.getDate(1).toLocalDate());
+            }
+        }
+        // Se conservan las fechas agregadas mientras tanto (ofertas aún en la cola write-behind)
+        dates.headSet(cutoff.toLocalDate()).clear();
+        dates.addAll(fresh);
+    }
+
+    /** Deja de programar barridos; lo vencido se retira en el próximo arranque. */
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+    }
+
+    // ===== métricas =====
+    /** Fechas de vencimiento distintas que se esperan. */
+    public int getTracked() { return dates.size(); }
+    public long getSweeps() { return sweeps.get(); }
+    public long getExpired() { return expired.get(); }
+    public long getFailures() { return failures.get(); }
+
+    @Override
+    public String toString() {
+        return "OfferExpiryScheduler{tracked=" + getTracked() + ", sweeps=" + getSweeps()
+                + ", expired=" + getExpired() + ", failures=" + getFailures() + "}";
+    }
+}
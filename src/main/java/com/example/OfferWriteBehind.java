@@ -0,0 +1,324 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cola write-behind de ofertas: las altas/bajas se encolan y un hilo de fondo
+ * las escribe en lotes (MERGE/DELETE en una sola transacción por lote).
+ * <ul>
+ *   <li>Se agrupan por product_id: la última escritura gana.</li>
+ *   <li>Capacidad acotada: si hay {@code capacity} productos pendientes, quien
+ *       encola espera hasta {@code enqueueTimeoutMs} y luego recibe
+ *       {@link RejectedExecutionException}.</li>
+ *   <li>{@link #pending(String)} expone lo no escrito para que las lecturas
+ *       lo vean de inmediato (read-your-writes).</li>
+ *   <li>{@link #close()} vacía la cola antes de terminar.</li>
+ * </ul>
+ */
+public class OfferWriteBehind implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OfferWriteBehind.class);
+
+    /** Parámetros; se leen de propiedades de sistema "offers.writeBehind.*". */
+    public static class Config {
+        /** Productos distintos pendientes como máximo. */
+        public int capacity = 10_000;
+        public int batchSize = 500;
+        public long flushIntervalMs = 200;
+        public long enqueueTimeoutMs = 1_000;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.capacity = Integer.getInteger("offers.writeBehind.capacity", c.capacity);
+            c.batchSize = Integer.getInteger("offers.writeBehind.batchSize", c.batchSize);
+            c.flushIntervalMs = Long.getLong("offers.writeBehind.flushIntervalMs", c.flushIntervalMs);
+            c.enqueueTimeoutMs = Long.getLong("offers.writeBehind.enqueueTimeoutMs", c.enqueueTimeoutMs);
+            return c;
+        }
+
+        void validate() {
+            if (capacity < 1) throw new IllegalArgumentException("offers.writeBehind.capacity debe ser >= 1");
+            if (batchSize < 1) throw new IllegalArgumentException("offers.writeBehind.batchSize debe ser >= 1");
+        }
+    }
+
+    /** Escritura pendiente de una oferta; promoCents {@link Money#NONE} significa borrarla. */
+    public static final class Pending {
+        public final String productId;
+        public final long promoCents;
+        /** yyyy-MM-dd; null si es un borrado. */
+        public final String validUntil;
+
+        Pending(String productId, long promoCents, String validUntil) {
+            this.productId = productId;
+            this.promoCents = promoCents;
+            this.validUntil = validUntil;
+        }
+
+        public boolean isDelete() { return promoCents == Money.NONE; }
+    }
+
+    private final DataSource ds;
+    private final Config config;
+    /** Se llama después de cada lote escrito con los productos escritos (p.ej. parchear el caché del catálogo). */
+    private final Consumer<List<String>> onFlushed;
+
+    /** Todo lo no escrito aún (en cola o en un lote en curso); lo leen las consultas sin lock. */
+    private final Map<String, Pending> overlay = new ConcurrentHashMap<>();
+    /** En cola, en orden de llegada; protegido por lock. */
+    private final LinkedHashMap<String, Pending> queued = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public OfferWriteBehind(DataSource ds, Config config, Consumer<List<String>> onFlushed) {
+        config.validate();
+        this.ds = ds;
+        this.config = config;
+        this.onFlushed = onFlushed;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "offer-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly,
+                config.flushIntervalMs, config.flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Encola el alta/actualización de una oferta. */
+    public void upsert(String productId, long promoCents, String validUntilIso) {
+        enqueue(new Pending(productId, promoCents, validUntilIso));
+    }
+
+    /** Encola el borrado de la oferta del producto. */
+    public void delete(String productId) {
+        enqueue(new Pending(productId, Money.NONE, null));
+    }
+
+    private void enqueue(Pending p) {
+        if (closed) throw new RejectedExecutionException("La cola de ofertas está cerrada");
+        lock.lock();
+        try {
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(config.enqueueTimeoutMs);
+            while (overlay.size() >= config.capacity && !overlay.containsKey(p.productId)) {
+                if (waitNanos <= 0) {
+                    rejected.incrementAndGet();
+                    throw new RejectedExecutionException("Cola de ofertas llena (" + config.capacity + " pendientes)");
+                }
+                requestFlush();
+                waitNanos = notFull.awaitNanos(waitNanos);
+            }
+            if (overlay.put(p.productId, p) != null) coalesced.incrementAndGet();
+            queued.put(p.productId, p);
+            version.incrementAndGet();
+            enqueued.incrementAndGet();
+            if (queued.size() >= config.batchSize) requestFlush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrumpido esperando lugar en la cola de ofertas", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void requestFlush() {
+        if (!closed && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    /** Oferta pendiente del producto, o null si no hay nada sin escribir. */
+    public Pending pending(String productId) {
+        return overlay.get(productId);
+    }
+
+    public boolean hasPending() {
+        return !overlay.isEmpty();
+    }
+
+    /** Cambia con cada escritura encolada (para ETags y versiones de catálogo). */
+    public long version() {
+        return version.get();
+    }
+
+    private void flushQuietly() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Error vaciando la cola de ofertas", e);
+        }
+    }
+
+    /** Escribe todo lo encolado, lote por lote. Devuelve false si quedó algo por un error transitorio. */
+    boolean flush() {
+        while (true) {
+            List<Pending> batch = new ArrayList<>(Math.min(config.batchSize, 64));
+            lock.lock();
+            try {
+                Iterator<Pending> it = queued.values().iterator();
+                while (it.hasNext() && batch.size() < config.batchSize) {
+                    batch.add(it.next());
+                    it.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (batch.isEmpty()) return true;
+
+            List<Pending> done = new ArrayList<>(batch.size());
+            boolean ok = write(batch, done);
+            // Primero actualizar el caché y después sacar del overlay: así ninguna lectura ve el valor viejo
+            if (!done.isEmpty()) {
+                List<String> ids = new ArrayList<>(done.size());
+                for (Pending p : done) ids.add(p.productId);
+                onFlushed.accept(ids);
+            }
+            lock.lock();
+            try {
+                for (Pending p : done) overlay.remove(p.productId, p);
+                if (!ok) requeue(batch, done);
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (!ok) return false;
+        }
+    }
+
+    /**
+     * Escribe el lote en una transacción. Si falla por un dato (p.ej. producto inexistente)
+     * reintenta fila por fila y descarta solo la culpable; si el error es transitorio
+     * (timeout del pool) devuelve false y el lote vuelve a la cola.
+     */
+    private boolean write(List<Pending> batch, List<Pending> done) {
+        try {
+            writeTx(batch);
+            done.addAll(batch);
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+            return true;
+        } catch (SQLTransientException e) {
+            log.warn("Cola de ofertas: error transitorio, se reintenta ({})", e.getMessage());
+            return false;
+        } catch (SQLException e) {
+            if (batch.size() == 1) {
+                Pending p = batch.get(0);
+                dropped.incrementAndGet();
+                done.add(p);
+                log.error("Cola de ofertas: se descarta la escritura de {}", p.productId, e);
+                return true;
+            }
+            for (Pending p : batch) {
+                if (!write(List.of(p), done)) return false;
+            }
+            return true;
+        }
+    }
+
+    private void writeTx(List<Pending> batch) throws SQLException {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement merge = c.prepareStatement(
+                         "MERGE INTO product_offers(product_id, promo_price_cents, valid_until) KEY(product_id) VALUES (?, ?, ?)");
+                 PreparedStatement del = c.prepareStatement("DELETE FROM product_offers WHERE product_id = ?")) {
+                int merges = 0, deletes = 0;
+                List<String> ids = new ArrayList<>(batch.size());
+                for (Pending p : batch) {
+                    ids.add(p.productId);
+                    if (p.isDelete()) {
+                        del.setString(1, p.productId);
+                        del.addBatch();
+                        deletes++;
+                    } else {
+                        merge.setString(1, p.productId);
+                        merge.setLong(2, p.promoCents);
+                        merge.setDate(3, java.sql.Date.valueOf(p.validUntil));
+                        merge.addBatch();
+                        merges++;
+                    }
+                }
+                if (merges > 0) merge.executeBatch();
+                if (deletes > 0) del.executeBatch();
+                CatalogChanges.recordAll(c, CatalogChanges.OFFER, ids);
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /** Devuelve a la cola lo que no se escribió, salvo que ya haya una escritura más nueva. */
+    private void requeue(List<Pending> batch, List<Pending> done) {
+        for (Pending p : batch) {
+            if (!done.contains(p) && overlay.get(p.productId) == p && !queued.containsKey(p.productId)) {
+                queued.put(p.productId, p);
+            }
+        }
+    }
+
+    /** Deja de aceptar escrituras y vacía la cola. */
+    @Override
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) flusher.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!flush()) log.error("Cola de ofertas: quedaron {} escrituras sin guardar al cerrar", overlay.size());
+    }
+
+    // ===== métricas =====
+    public int getPending() { return overlay.size(); }
+    public long getEnqueued() { return enqueued.get(); }
+    /** Escrituras que reemplazaron a otra pendiente del mismo producto. */
+    public long getCoalesced() { return coalesced.get(); }
+    public long getWritten() { return written.get(); }
+    public long getBatches() { return batches.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getDropped() { return dropped.get(); }
+
+    @Override
+    public String toString() {
+        return "OfferWriteBehind{pending=" + getPending() + ", enqueued=" + getEnqueued()
+                + ", coalesced=" + getCoalesced() + ", written=" + getWritten()
+                + ", batches=" + getBatches() + ", rejected=" + getRejected() + "}";
+    }
+}
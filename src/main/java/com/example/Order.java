@@ -1,30 +1,33 @@
 package com.example;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class Order {
     private long id;
     private String userId;
-    private BigDecimal total;
+    private long totalCents;
     private LocalDateTime createdAt;
 
     public Order() {}
 
-    public Order(long id, String userId, BigDecimal total, LocalDateTime createdAt) {
+    public Order(long id, String userId, long totalCents, LocalDateTime createdAt) {
         this.id = id;
         this.userId = userId;
-        this.total = total;
+        this.totalCents = totalCents;
         this.createdAt = createdAt;
     }
 
     public long getId() { return id; }
     public String getUserId() { return userId; }
-    public BigDecimal getTotal() { return total; }
+    /** Total en centavos. */
+    public long getTotalCents() { return totalCents; }
     public LocalDateTime getCreatedAt() { return createdAt; }
 
     public void setId(long id) { this.id = id; }
     public void setUserId(String userId) { this.userId = userId; }
-    public void setTotal(BigDecimal total) { this.total = total; }
+    public void setTotalCents(long totalCents) { this.totalCents = totalCents; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    /** Para las plantillas: "998.00". */
+    public String getTotalText() { return Money.format(totalCents); }
 }
@@ -3,37 +3,150 @@ package com.example;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.math.BigDecimal;
 
-public class OrderDao {
-    private final Connection c;
+import javax.sql.DataSource;
 
-    public OrderDao(Connection c) { this.c = c; }
+/** Backend JDBC de {@link OrderRepository}. */
+public class OrderDao implements OrderRepository {
+    private static final Metrics.Timer T_CREATE = Metrics.daoTimer("OrderDao", "create");
+    private static final Metrics.Timer T_FIND_BY_ID = Metrics.daoTimer("OrderDao", "findById");
+    private static final Metrics.Timer T_FIND_BY_USER = Metrics.daoTimer("OrderDao", "findOrdersByUser");
+    private static final Metrics.Timer T_FIND_DETAIL = Metrics.daoTimer("OrderDao", "findDetail");
 
-    public long create(String userId, BigDecimal total) {
-        String sql = "INSERT INTO orders(user_id,total,created_at) VALUES(?,?,CURRENT_TIMESTAMP())";
-        try (PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, userId);
-            ps.setBigDecimal(2, total);
-            ps.executeUpdate();
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next()) return keys.getLong(1);
-            }
-            throw new RuntimeException("No se generó ID de orden");
+    private final DataSource ds;
+
+    public OrderDao(DataSource ds) { this.ds = ds; }
+
+    @Override
+    public long create(String userId, long totalCents) {
+        try (Connection c = ds.getConnection()) {
+            return create(c, userId, totalCents);
         } catch (SQLException e) { throw new RuntimeException(e); }
     }
 
+    /** Inserta la orden usando la conexión (y transacción) de quien llama. */
+    public long create(Connection c, String userId, long totalCents) {
+        long t0 = System.nanoTime();
+        try {
+            String sql = "INSERT INTO orders(user_id,total_cents,created_at) VALUES(?,?,CURRENT_TIMESTAMP())";
+            try (PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, userId);
+                ps.setLong(2, totalCents);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) return keys.getLong(1);
+                }
+                throw new RuntimeException("No se generó ID de orden");
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        } finally {
+            T_CREATE.stop(t0);
+        }
+    }
+
+    @Override
     public Optional<Order> findById(long id) {
-        String sql = "SELECT id,user_id,total,created_at FROM orders WHERE id=?";
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.of(map(rs));
+        long t0 = System.nanoTime();
+        try {
+            String sql = "SELECT id,user_id,total_cents,created_at FROM orders WHERE id=?";
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.of(map(rs));
+                    }
+                }
+            } catch (SQLException e) { throw new RuntimeException(e); }
+            return Optional.empty();
+        } finally {
+            T_FIND_BY_ID.stop(t0);
+        }
+    }
+
+    /**
+     * Historial de órdenes del usuario, de la más nueva a la más vieja, paginado por cursor
+     * (keyset sobre el id). Recorre el índice idx_orders_user_id sin ordenar en memoria.
+     */
+    @Override
+    public OrderPage findOrdersByUser(String userId, String after, int limit) {
+        if (limit < 1 || limit > OrderPage.MAX_SIZE) {
+            throw new IllegalArgumentException("Tamaño de página inválido: " + limit);
+        }
+        long before = OrderPage.decodeCursor(after);
+        long t0 = System.nanoTime();
+        try {
+            String sql = """
+                SELECT id,user_id,total_cents,created_at FROM orders
+                WHERE user_id=? AND id<?
+                ORDER BY id DESC
+                LIMIT ?
+                """;
+            List<Order> out = new ArrayList<>(limit + 1);
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, userId);
+                ps.setLong(2, before);
+                ps.setInt(3, limit + 1); // una de más para saber si hay otra página
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) out.add(map(rs));
                 }
+            } catch (SQLException e) { throw new RuntimeException(e); }
+
+            String next = null;
+            if (out.size() > limit) {
+                out.remove(limit);
+                next = Long.toString(out.get(limit - 1).getId());
             }
-        } catch (SQLException e) { throw new RuntimeException(e); }
-        return Optional.empty();
+            return new OrderPage(out, next);
+        } finally {
+            T_FIND_BY_USER.stop(t0);
+        }
+    }
+
+    /**
+     * Orden con sus items y el nombre de cada producto en una sola consulta
+     * (en lugar de findById + OrderItemDao.findByOrder).
+     */
+    @Override
+    public Optional<OrderDetail> findDetail(long id) {
+        long t0 = System.nanoTime();
+        try {
+            String sql = """
+                SELECT o.id, o.user_id, o.total_cents, o.created_at,
+                       oi.id AS item_id, oi.product_id, oi.qty, oi.price_cents,
+                       p.name AS product_name
+                FROM orders o
+                LEFT JOIN order_items oi ON oi.order_id = o.id
+                LEFT JOIN products p ON p.id = oi.product_id
+                WHERE o.id = ?
+                ORDER BY oi.id
+                """;
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    Order order = null;
+                    List<OrderItem> items = new ArrayList<>();
+                    while (rs.next()) {
+                        if (order == null) order = map(rs);
+                        long itemId = rs.getLong("item_id");
+                        if (rs.wasNull()) continue; // orden sin items
+                        OrderItem it = new OrderItem(
+                                itemId,
+                                order.getId(),
+                                rs.getString("product_id"),
+                                rs.getInt("qty"),
+                                rs.getLong("price_cents")
+                        );
+                        it.setProductName(rs.getString("product_name"));
+                        items.add(it);
+                    }
+                    return order == null ? Optional.empty() : Optional.of(new OrderDetail(order, items));
+                }
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        } finally {
+            T_FIND_DETAIL.stop(t0);
+        }
     }
 
     private Order map(ResultSet rs) throws SQLException {
@@ -42,7 +155,7 @@ public class OrderDao {
         return new Order(
                 rs.getLong("id"),
                 rs.getString("user_id"),
-                rs.getBigDecimal("total"),
+                rs.getLong("total_cents"),
                 created
         );
     }
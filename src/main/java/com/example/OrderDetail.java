@@ -0,0 +1,18 @@
+package com.example;
+
+import java.util.List;
+
+/** Orden con sus items (con nombre de producto y subtotal), para la vista de detalle. */
+public class OrderDetail {
+
+    private final Order order;
+    private final List<OrderItem> items;
+
+    public OrderDetail(Order order, List<OrderItem> items) {
+        this.order = order;
+        this.items = items;
+    }
+
+    public Order getOrder() { return order; }
+    public List<OrderItem> getItems() { return items; }
+}
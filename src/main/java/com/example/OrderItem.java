@@ -1,27 +1,25 @@
 package com.example;
 
-import java.math.BigDecimal;
-
 public class OrderItem {
     private long id;
     private long orderId;
     private String productId;
     private int qty;
-    private BigDecimal price;
+    private long priceCents;
 
-    // Campos “de vista” para la plantilla (join con products)
+    // Campo “de vista” para la plantilla (join con products)
     private String productName;        // opcional: nombre del producto
-    private BigDecimal subtotal;       // price * qty
+    // Precio de lista al vender; no se guarda en order_items, lo completa el checkout para SalesAnalytics
+    private long listPriceCents = Money.NONE;
 
     public OrderItem() {}
 
-    public OrderItem(long id, long orderId, String productId, int qty, BigDecimal price) {
+    public OrderItem(long id, long orderId, String productId, int qty, long priceCents) {
         this.id = id;
         this.orderId = orderId;
         this.productId = productId;
         this.qty = qty;
-        this.price = price;
-        this.subtotal = price.multiply(new BigDecimal(qty));
+        this.priceCents = priceCents;
     }
 
     // Getters/Setters
@@ -29,15 +27,23 @@ public class OrderItem {
     public long getOrderId() { return orderId; }
     public String getProductId() { return productId; }
     public int getQty() { return qty; }
-    public BigDecimal getPrice() { return price; }
+    /** Precio unitario en centavos. */
+    public long getPriceCents() { return priceCents; }
     public String getProductName() { return productName; }
-    public BigDecimal getSubtotal() { return subtotal; }
+    /** Precio de lista al momento de la venta, o {@link Money#NONE} si no se conoce. */
+    public long getListPriceCents() { return listPriceCents; }
+    /** priceCents * qty; se calcula al pedirlo, sin guardar otro campo. */
+    public long getSubtotalCents() { return Money.times(priceCents, qty); }
 
     public void setId(long id) { this.id = id; }
     public void setOrderId(long orderId) { this.orderId = orderId; }
     public void setProductId(String productId) { this.productId = productId; }
-    public void setQty(int qty) { this.qty = qty; this.subtotal = price != null ? price.multiply(new BigDecimal(qty)) : null; }
-    public void setPrice(BigDecimal price) { this.price = price; this.subtotal = price != null ? price.multiply(new BigDecimal(qty)) : null; }
+    public void setQty(int qty) { this.qty = qty; }
+    public void setPriceCents(long priceCents) { this.priceCents = priceCents; }
     public void setProductName(String productName) { this.productName = productName; }
-    public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+    public void setListPriceCents(long listPriceCents) { this.listPriceCents = listPriceCents; }
+
+    // Para las plantillas
+    public String getPriceText() { return Money.format(priceCents); }
+    public String getSubtotalText() { return Money.format(getSubtotalCents()); }
 }
@@ -2,52 +2,129 @@ package com.example;
 
 import java.sql.*;
 import java.util.*;
-import java.math.BigDecimal;
 
-public class OrderItemDao {
-    private final Connection c;
+import javax.sql.DataSource;
 
-    public OrderItemDao(Connection c) { this.c = c; }
+/**
+ * Backend JDBC de {@link OrderItemRepository}. Cada inserción suma sus líneas a los
+ * resúmenes de {@link SalesAnalytics} en la misma transacción.
+ */
+public class OrderItemDao implements OrderItemRepository {
+    private static final Metrics.Timer T_CREATE = Metrics.daoTimer("OrderItemDao", "create");
+    private static final Metrics.Timer T_CREATE_ALL = Metrics.daoTimer("OrderItemDao", "createAll");
+    private static final Metrics.Timer T_FIND_BY_ORDER = Metrics.daoTimer("OrderItemDao", "findByOrder");
 
-    public void create(long orderId, String productId, int qty, BigDecimal price) {
-        String sql = "INSERT INTO order_items(order_id,product_id,qty,price) VALUES(?,?,?,?)";
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setLong(1, orderId);
-            ps.setString(2, productId);
-            ps.setInt(3, qty);
-            ps.setBigDecimal(4, price);
-            ps.executeUpdate();
+    private final DataSource ds;
+    private final SalesAnalytics sales;
+
+    public OrderItemDao(DataSource ds) { this(ds, new SalesAnalytics(ds)); }
+
+    public OrderItemDao(DataSource ds, SalesAnalytics sales) {
+        this.ds = ds;
+        this.sales = sales;
+    }
+
+    @Override
+    public void create(long orderId, String productId, int qty, long priceCents) {
+        long t0 = System.nanoTime();
+        try {
+            String sql = "INSERT INTO order_items(order_id,product_id,qty,price_cents) VALUES(?,?,?,?)";
+            try (Connection c = ds.getConnection()) {
+                boolean autoCommit = c.getAutoCommit();
+                c.setAutoCommit(false);
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setLong(1, orderId);
+                    ps.setString(2, productId);
+                    ps.setInt(3, qty);
+                    ps.setLong(4, priceCents);
+                    ps.executeUpdate();
+                    sales.record(c, orderId, List.of(new OrderItem(0, orderId, productId, qty, priceCents)));
+                    c.commit();
+                } catch (SQLException | RuntimeException e) {
+                    c.rollback();
+                    throw e;
+                } finally {
+                    c.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        } finally {
+            T_CREATE.stop(t0);
+        }
+    }
+
+    /** Inserta todas las líneas de una orden en un solo batch JDBC y una sola transacción. */
+    @Override
+    public void createAll(long orderId, List<OrderItem> items) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                createAll(c, orderId, items);
+                c.commit();
+            } catch (RuntimeException e) {
+                c.rollback();
+                throw e;
+            }
         } catch (SQLException e) { throw new RuntimeException(e); }
     }
 
+    /**
+     * Inserta todas las líneas de una orden en un solo batch JDBC,
+     * usando la conexión (y transacción) de quien llama.
+     */
+    public void createAll(Connection c, long orderId, List<OrderItem> items) {
+        long t0 = System.nanoTime();
+        try {
+            String sql = "INSERT INTO order_items(order_id,product_id,qty,price_cents) VALUES(?,?,?,?)";
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (OrderItem it : items) {
+                    ps.setLong(1, orderId);
+                    ps.setString(2, it.getProductId());
+                    ps.setInt(3, it.getQty());
+                    ps.setLong(4, it.getPriceCents());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                sales.record(c, orderId, items);
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        } finally {
+            T_CREATE_ALL.stop(t0);
+        }
+    }
+
     /** Devuelve items con nombre de producto y subtotal precalculado para la vista */
+    @Override
     public List<OrderItem> findByOrder(long orderId) {
-        String sql = """
-            SELECT oi.id, oi.order_id, oi.product_id, oi.qty, oi.price,
-                   p.name AS product_name
-            FROM order_items oi
-            JOIN products p ON p.id = oi.product_id
-            WHERE oi.order_id = ?
-            ORDER BY oi.id
-        """;
-        var out = new ArrayList<OrderItem>();
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setLong(1, orderId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    OrderItem it = new OrderItem(
-                            rs.getLong("id"),
-                            rs.getLong("order_id"),
-                            rs.getString("product_id"),
-                            rs.getInt("qty"),
-                            rs.getBigDecimal("price")
-                    );
-                    it.setProductName(rs.getString("product_name"));
-                    it.setSubtotal(it.getPrice().multiply(new BigDecimal(it.getQty())));
-                    out.add(it);
+        long t0 = System.nanoTime();
+        try {
+            String sql = """
+                SELECT oi.id, oi.order_id, oi.product_id, oi.qty, oi.price_cents,
+                       p.name AS product_name
+                FROM order_items oi
+                JOIN products p ON p.id = oi.product_id
+                WHERE oi.order_id = ?
+                ORDER BY oi.id
+            """;
+            var out = new ArrayList<OrderItem>();
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setLong(1, orderId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        OrderItem it = new OrderItem(
+                                rs.getLong("id"),
+                                rs.getLong("order_id"),
+                                rs.getString("product_id"),
+                                rs.getInt("qty"),
+                                rs.getLong("price_cents")
+                        );
+                        it.setProductName(rs.getString("product_name"));
+                        out.add(it);
+                    }
                 }
-            }
-        } catch (SQLException e) { throw new RuntimeException(e); }
-        return out;
+            } catch (SQLException e) { throw new RuntimeException(e); }
+            return out;
+        } finally {
+            T_FIND_BY_ORDER.stop(t0);
+        }
     }
 }
@@ -0,0 +1,15 @@
+package com.example;
+
+import java.util.List;
+
+/** Líneas de órdenes. Backends: {@link OrderItemDao} (JDBC/H2) e {@link InMemoryOrderItemRepository}. */
+public interface OrderItemRepository {
+
+    void create(long orderId, String productId, int qty, long priceCents);
+
+    /** Inserta todas las líneas de la orden de una vez: o quedan todas o ninguna. */
+    void createAll(long orderId, List<OrderItem> items);
+
+    /** Items de la orden, en orden de alta, con nombre de producto y subtotal. */
+    List<OrderItem> findByOrder(long orderId);
+}
@@ -0,0 +1,38 @@
+package com.example;
+
+import java.util.List;
+
+/**
+ * Página del historial de órdenes de un usuario, de la más reciente a la más antigua.
+ * El cursor es el id de la última orden devuelta.
+ */
+public class OrderPage {
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 100;
+
+    private final List<Order> items;
+    private final String nextCursor;
+
+    public OrderPage(List<Order> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Order> getItems() { return items; }
+    /** null si no hay más órdenes. */
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasNext() { return nextCursor != null; }
+
+    /** Id de orden del cursor; Long.MAX_VALUE si no hay cursor (primera página). */
+    static long decodeCursor(String text) {
+        if (text == null || text.isBlank()) return Long.MAX_VALUE;
+        try {
+            long id = Long.parseLong(text.trim());
+            if (id > 0) return id;
+        } catch (NumberFormatException ignored) {
+            // cae al error de abajo
+        }
+        throw new IllegalArgumentException("Cursor inválido.");
+    }
+}
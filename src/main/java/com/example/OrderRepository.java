@@ -0,0 +1,21 @@
+package com.example;
+
+import java.util.Optional;
+
+/** Órdenes. Backends: {@link OrderDao} (JDBC/H2) e {@link InMemoryOrderRepository}. */
+public interface OrderRepository {
+
+    /** Inserta la orden y devuelve su id; lanza RuntimeException si el usuario no existe. */
+    long create(String userId, long totalCents);
+
+    Optional<Order> findById(long id);
+
+    /**
+     * Historial del usuario, de la orden más nueva a la más vieja, paginado por cursor.
+     * @throws IllegalArgumentException si el cursor o el tamaño son inválidos
+     */
+    OrderPage findOrdersByUser(String userId, String after, int limit);
+
+    /** Orden con sus items (con nombre de producto y subtotal). */
+    Optional<OrderDetail> findDetail(long id);
+}
@@ -0,0 +1,15 @@
+package com.example;
+
+/** No hay stock suficiente para una línea del pedido; la compra completa se revierte. */
+public class OutOfStockException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String productId;
+
+    public OutOfStockException(String productId) {
+        super("Sin stock suficiente para " + productId);
+        this.productId = productId;
+    }
+
+    public String getProductId() { return productId; }
+}
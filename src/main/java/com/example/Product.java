@@ -6,24 +6,31 @@ public class Product {
     private String name;
     private String descr;
     private String imageUrl;
-    private double price;
+    private long priceCents;
     private int stock;
 
-    // Oferta (pueden ser null si no hay)
-    private Double promoPrice;
+    // Oferta (Money.NONE / null si no hay)
+    private long promoCents = Money.NONE;
     private String validUntil; // yyyy-MM-dd
 
     public Product() {}
 
-    public Product(String id, String name, String descr, String imageUrl, double price, int stock) {
+    public Product(String id, String name, String descr, String imageUrl, long priceCents, int stock) {
         this.id = id;
         this.name = name;
         this.descr = descr;
         this.imageUrl = imageUrl;
-        this.price = price;
+        this.priceCents = priceCents;
         this.stock = stock;
     }
 
+    /** Copia superficial (para no exponer instancias compartidas del caché). */
+    public Product(Product o) {
+        this(o.id, o.name, o.descr, o.imageUrl, o.priceCents, o.stock);
+        this.promoCents = o.promoCents;
+        this.validUntil = o.validUntil;
+    }
+
     // ===== getters/setters base =====
     public String getId() { return id; }
     public void setId(String id) { this.id = (id == null) ? null : id.trim(); }
@@ -37,19 +44,35 @@ public class Product {
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
 
-    public double getPrice() { return price; }
-    public void setPrice(double price) { this.price = price; }
+    /** Precio en centavos. */
+    public long getPriceCents() { return priceCents; }
+    public void setPriceCents(long priceCents) { this.priceCents = priceCents; }
 
     public int getStock() { return stock; }
     public void setStock(int stock) { this.stock = stock; }
 
     // ===== oferta =====
-    public Double getPromoPrice() { return promoPrice; }
-    public void setPromoPrice(Double promoPrice) { this.promoPrice = promoPrice; }
+    public boolean hasPromo() { return promoCents != Money.NONE; }
+
+    /** Precio promocional en centavos, o {@link Money#NONE} si no hay oferta. */
+    public long getPromoCents() { return promoCents; }
+    public void setPromoCents(long promoCents) { this.promoCents = promoCents; }
 
     public String getValidUntil() { return validUntil; }
     public void setValidUntil(String validUntil) { this.validUntil = validUntil; }
 
+    /** Quita la oferta (precio y vigencia). */
+    public void clearPromo() {
+        this.promoCents = Money.NONE;
+        this.validUntil = null;
+    }
+
+    // ===== para las plantillas =====
+    /** "499.00" */
+    public String getPriceText() { return Money.format(priceCents); }
+    /** "399.00", o null si no hay oferta (así {{#promoText}} sirve de condición). */
+    public String getPromoText() { return hasPromo() ? Money.format(promoCents) : null; }
+
     @Override
     public String toString() {
         return "Product{" +
@@ -57,9 +80,9 @@ public class Product {
                 ", name='" + name + '\'' +
                 ", descr='" + descr + '\'' +
                 ", imageUrl='" + imageUrl + '\'' +
-                ", price=" + price +
+                ", price=" + getPriceText() +
                 ", stock=" + stock +
-                ", promoPrice=" + promoPrice +
+                ", promoPrice=" + getPromoText() +
                 ", validUntil='" + validUntil + '\'' +
                 '}';
     }
@@ -0,0 +1,315 @@
+package com.example;
+
+import static spark.Spark.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLTimeoutException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * API JSON de productos, ofertas y órdenes.
+ * Serializa con los TypeAdapters de {@link JsonAdapters} directo en la respuesta,
+ * y responde 304 sin serializar si el ETag (versión del catálogo) no cambió.
+ * La versión es un contador de cada proceso (vuelve a 0 al reiniciar y difiere entre
+ * nodos), así que el ETag lleva además el id de esta instancia, como en {@link ResponseCache}.
+ */
+public class ProductApi {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductApi.class);
+    private static final String JSON = "application/json; charset=utf-8";
+
+    /** Cuerpo JSON a escribir en la respuesta. */
+    @FunctionalInterface
+    interface JsonBody {
+        void write(JsonWriter w) throws IOException;
+    }
+
+    private final ProductRepository productDao;
+    private final OrderRepository orderDao;
+    private final CheckoutService checkout;
+    /** Distingue ETags entre arranques y entre nodos. */
+    private final String instance = Long.toString(System.currentTimeMillis(), 36) + "."
+            + Integer.toHexString(ThreadLocalRandom.current().nextInt());
+
+    public ProductApi(ProductRepository productDao, OrderRepository orderDao, CheckoutService checkout) {
+        this.productDao = productDao;
+        this.orderDao = orderDao;
+        this.checkout = checkout;
+    }
+
+    /** Registra las rutas /api/... en Spark. */
+    public void routes() {
+        // ?q= (opcional), ?size= y ?after= igual que la página de inicio
+        get("/api/products", json((req, res) -> {
+            String etag = etag(Integer.toHexString(String.valueOf(req.queryString()).hashCode()));
+            if (notModified(req, res, etag)) return "";
+
+            String size = req.queryParams("size");
+            int limit = size == null || size.isBlank() ? ProductPage.DEFAULT_SIZE : parseInt(size, "size");
+            ProductPage page = productDao.findPage(req.queryParams("q"), req.queryParams("after"), limit);
+            return writeJson(res, 200, w -> {
+                w.beginObject();
+                w.name("items").beginArray();
+                for (Product p : page.getItems()) JsonAdapters.PRODUCT.write(w, p);
+                w.endArray();
+                w.name("next").value(page.getNextCursor());
+                w.endObject();
+            });
+        }));
+
+        get("/api/products/:id", json((req, res) -> {
+            String id = req.params(":id");
+            String etag = etag(id);
+            if (notModified(req, res, etag)) return "";
+            return productDao.findById(id)
+                    .map(p -> writeJson(res, 200, w -> JsonAdapters.PRODUCT.write(w, p)))
+                    .orElseGet(() -> error(res, 404, "El producto no existe: " + id));
+        }));
+
+        // Cuerpo: {"promoPrice": 399.0, "validUntil": "2025-12-31"}
+        put("/api/offers/:id", json((req, res) -> {
+            String id = req.params(":id");
+            long promoCents = Money.NONE;
+            String validUntil = null;
+            try (JsonReader in = new JsonReader(new StringReader(req.body() == null ? "" : req.body()))) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    String field = in.nextName();
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if (field.equals("promoPrice")) {
+                        promoCents = Money.parse(in.nextString()); // texto del número: sin pasar por double
+                    } else if (field.equals("validUntil")) {
+                        validUntil = in.nextString().trim();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+            } catch (IllegalArgumentException e) {
+                return error(res, 400, "Precio promocional inválido.");
+            } catch (IOException | IllegalStateException e) {
+                return error(res, 400, "JSON inválido: se espera {\"promoPrice\": n, \"validUntil\": \"yyyy-MM-dd\"}");
+            }
+            if (promoCents == Money.NONE) return error(res, 400, "Precio promocional inválido.");
+            if (validUntil == null || !isIsoDate(validUntil)) return error(res, 400, "Fecha validUntil inválida.");
+            if (productDao.findById(id).isEmpty()) return error(res, 404, "El producto no existe: " + id);
+
+            productDao.saveOrUpdateOffer(id, promoCents, validUntil);
+            Product updated = productDao.findById(id).orElseThrow();
+            return writeJson(res, 200, w -> JsonAdapters.PRODUCT.write(w, updated));
+        }));
+
+        delete("/api/offers/:id", json((req, res) -> {
+            String id = req.params(":id");
+            if (productDao.findById(id).isEmpty()) return error(res, 404, "El producto no existe: " + id);
+            productDao.deleteOffer(id);
+            res.status(204);
+            return "";
+        }));
+
+        // Cuerpo: {"userId": "1", "items": [{"productId": "p1", "qty": 2}, ...]}
+        post("/api/orders", json((req, res) -> {
+            String userId = null;
+            List<CheckoutService.Line> lines = new ArrayList<>();
+            try (JsonReader in = new JsonReader(new StringReader(req.body() == null ? "" : req.body()))) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    String field = in.nextName();
+                    if (field.equals("userId")) {
+                        userId = in.nextString();
+                    } else if (field.equals("items")) {
+                        in.beginArray();
+                        while (in.hasNext()) lines.add(readLine(in));
+                        in.endArray();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+            } catch (IOException | IllegalStateException | NumberFormatException e) {
+                return error(res, 400, "JSON inválido: se espera {\"userId\": \"...\", \"items\": [{\"productId\": \"...\", \"qty\": n}]}");
+            }
+            if (userId == null || userId.isBlank()) return error(res, 400, "Falta userId.");
+
+            long orderId;
+            try {
+                orderId = checkout.checkout(userId, lines);
+            } catch (OutOfStockException e) {
+                return error(res, 409, e.getMessage());
+            }
+            Order order = orderDao.findById(orderId).orElseThrow();
+            res.header("Location", "/api/orders/" + orderId);
+            return writeJson(res, 201, w -> JsonAdapters.ORDER.write(w, order));
+        }));
+
+        get("/api/orders/:id", json((req, res) -> {
+            long id = parseLong(req.params(":id"));
+            return orderDao.findDetail(id)
+                    .map(d -> writeJson(res, 200, w -> {
+                        w.beginObject();
+                        w.name("order");
+                        JsonAdapters.ORDER.write(w, d.getOrder());
+                        w.name("items").beginArray();
+                        for (OrderItem it : d.getItems()) JsonAdapters.ORDER_ITEM.write(w, it);
+                        w.endArray();
+                        w.endObject();
+                    }))
+                    .orElseGet(() -> error(res, 404, "La orden no existe: " + id));
+        }));
+
+        // Historial del usuario: ?after=<cursor>&limit=n (máx. 100), más reciente primero
+        get("/api/users/:id/orders", json((req, res) -> {
+            String userId = req.params(":id");
+            String limitParam = req.queryParams("limit");
+            int limit = limitParam == null ? OrderPage.DEFAULT_SIZE : parseInt(limitParam, "limit");
+            OrderPage page = orderDao.findOrdersByUser(userId, req.queryParams("after"), limit);
+            return writeJson(res, 200, w -> {
+                w.beginObject();
+                w.name("items").beginArray();
+                for (Order o : page.getItems()) JsonAdapters.ORDER.write(w, o);
+                w.endArray();
+                w.name("next").value(page.getNextCursor());
+                w.endObject();
+            });
+        }));
+    }
+
+    /** ETag de una lectura del catálogo: instancia + versión + clave de la petición. */
+    String etag(String key) {
+        return "\"" + instance + "-c" + productDao.catalogVersion() + "-" + key + "\"";
+    }
+
+    private static CheckoutService.Line readLine(JsonReader in) throws IOException {
+        String productId = null;
+        int qty = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (field.equals("productId")) productId = in.nextString();
+            else if (field.equals("qty")) qty = in.nextInt();
+            else in.skipValue();
+        }
+        in.endObject();
+        if (productId == null) throw new IllegalStateException("Falta productId");
+        return new CheckoutService.Line(productId, qty);
+    }
+
+    /** Envuelve una ruta para que los errores de validación salgan como JSON 400. */
+    static Route json(Route route) {
+        return (req, res) -> {
+            try {
+                return route.handle(req, res);
+            } catch (IllegalArgumentException e) {
+                return error(res, 400, e.getMessage());
+            } catch (RejectedExecutionException e) {
+                // cola write-behind de ofertas llena
+                res.header("Retry-After", "1");
+                return error(res, 503, e.getMessage());
+            } catch (RuntimeException e) {
+                // Sin esto Spark responde su página HTML de error 500
+                if (timedOut(e)) {
+                    log.warn("{} {}: sin conexión a tiempo", req.requestMethod(), req.pathInfo(), e);
+                    res.header("Retry-After", "1");
+                    return error(res, 503, "El servidor está ocupado, intenta de nuevo en unos segundos.");
+                }
+                log.error("{} {}: error inesperado", req.requestMethod(), req.pathInfo(), e);
+                return error(res, 500, "Error interno, intenta de nuevo más tarde.");
+            }
+        };
+    }
+
+    /** true si la causa es un timeout de JDBC (p.ej. el del pool esperando conexión). */
+    static boolean timedOut(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTimeoutException) return true;
+        }
+        return false;
+    }
+
+    private static boolean notModified(Request req, Response res, String etag) {
+        res.header("ETag", etag);
+        res.header("Cache-Control", "no-cache");
+        String inm = req.headers("If-None-Match");
+        if (inm == null) return false;
+        for (String tag : inm.split(",")) {
+            String t = tag.trim();
+            if (t.equals(etag) || t.equals("*") || t.equals("W/" + etag)) {
+                res.status(304);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String writeJson(Response res, int status, JsonBody body) {
+        res.status(status);
+        res.type(JSON);
+        try {
+            JsonWriter w = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8)));
+            body.write(w);
+            w.flush();
+        } catch (IOException e) {
+            log.warn("No se pudo escribir la respuesta JSON", e);
+            throw new UncheckedIOException(e);
+        }
+        return "";
+    }
+
+    static String error(Response res, int status, String message) {
+        res.status(status);
+        res.type(JSON);
+        return errorBody(message);
+    }
+
+    private static String errorBody(String message) {
+        return JsonAdapters.GSON.toJson(java.util.Map.of("error", message));
+    }
+
+    private static boolean isIsoDate(String s) {
+        try {
+            LocalDate.parse(s);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    static int parseInt(String s, String name) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parámetro inválido: " + name);
+        }
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Id inválido: " + s);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTML ya renderizado de cada tarjeta de producto (partials/productCard.mustache).
+ * La clave es el id; la entrada solo sirve si el producto tiene exactamente los mismos datos
+ * (su "versión"), así un cambio de precio u oferta vuelve a renderizar solo esa tarjeta.
+ */
+public class ProductCardCache {
+
+    private static final String TEMPLATE = "partials/productCard.mustache";
+
+    private static final class Entry {
+        final Product product;
+        final String html;
+
+        Entry(Product product, String html) {
+            this.product = product;
+            this.html = html;
+        }
+    }
+
+    private final Templates templates;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ProductCardCache(Templates templates, int maxEntries) {
+        this.templates = templates;
+        this.maxEntries = maxEntries;
+    }
+
+    /** HTML de las tarjetas en el mismo orden que la lista. */
+    public List<String> render(List<Product> products) {
+        List<String> out = new ArrayList<>(products.size());
+        for (Product p : products) out.add(render(p));
+        return out;
+    }
+
+    public String render(Product p) {
+        Entry e = cache.get(p.getId());
+        if (e != null && (e.product == p || sameContent(e.product, p))) {
+            hits.incrementAndGet();
+            return e.html;
+        }
+        misses.incrementAndGet();
+        String html = templates.renderToString(TEMPLATE, p);
+        // Límite simple: al pasarse se vacía (el catálogo visible entra de sobra)
+        if (cache.size() >= maxEntries) cache.clear();
+        cache.put(p.getId(), new Entry(p, html));
+        return html;
+    }
+
+    private static boolean sameContent(Product a, Product b) {
+        return a.getPriceCents() == b.getPriceCents()
+                && a.getStock() == b.getStock()
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDescr(), b.getDescr())
+                && Objects.equals(a.getImageUrl(), b.getImageUrl())
+                && a.getPromoCents() == b.getPromoCents()
+                && Objects.equals(a.getValidUntil(), b.getValidUntil());
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+}
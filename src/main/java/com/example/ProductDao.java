@@ -1,167 +1,434 @@
 package com.example;
 
 import java.sql.*;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
 
 /**
- * DAO para products + ofertas (tabla product_offers).
- * Usa H2 y MERGE para UPSERT.
+ * Backend JDBC de {@link ProductRepository}: products + ofertas (tabla product_offers).
+ * Usa H2 y MERGE para UPSERT. Pide una conexión al DataSource por operación.
+ * Las lecturas salen de un {@link CatalogCache} (vía {@link CatalogView}).
+ * Con {@link #enableWriteBehind} las ofertas se escriben en segundo plano y las
+ * lecturas muestran las pendientes; con {@link #enableExpiry} las vencidas se retiran
+ * de la BD al vencer. Cada escritura anota el cambio en catalog_changes en la misma
+ * transacción; con {@link #enableFollower} las lecturas salen de una réplica local que
+ * sigue ese registro, y el nodo ve lo que escriben los demás.
  */
-public class ProductDao {
+public class ProductDao implements ProductRepository {
+
+    private static final int STREAM_FETCH_SIZE = 500;
+    /** Más productos cambiados que esto en un lote: recargar la foto entera sale más barato que parchearla. */
+    private static final int MAX_PATCH = 1_000;
+    private static final Metrics.Timer T_FIND_ALL = Metrics.daoTimer("ProductDao", "findAll");
+    private static final Metrics.Timer T_STREAM_ALL = Metrics.daoTimer("ProductDao", "streamAll");
+    private static final Metrics.Timer T_FIND_PAGE = Metrics.daoTimer("ProductDao", "findPage");
+    private static final Metrics.Timer T_FIND_ALL_FILTERED = Metrics.daoTimer("ProductDao", "findAllFiltered");
+    private static final Metrics.Timer T_FIND_BY_ID = Metrics.daoTimer("ProductDao", "findById");
+    private static final Metrics.Timer T_UPDATE = Metrics.daoTimer("ProductDao", "update");
+    private static final Metrics.Timer T_SAVE_OFFER = Metrics.daoTimer("ProductDao", "saveOrUpdateOffer");
+    private static final Metrics.Timer T_DELETE_OFFER = Metrics.daoTimer("ProductDao", "deleteOffer");
+
+    private final DataSource ds;
+    private final Clock clock;
+    private final CatalogView catalog;
+    private volatile OfferWriteBehind writeBehind;
+    private volatile OfferExpiryScheduler expiry;
+    private volatile CatalogFollower follower;
 
-    private final Connection conn;
+    public ProductDao(DataSource ds) {
+        this(ds, Clock.systemDefaultZone());
+    }
+
+    ProductDao(DataSource ds, Clock clock) {
+        this.ds = ds;
+        this.clock = clock;
+        this.catalog = new CatalogView(this::loadAll, clock);
+    }
 
+    /** Usa una conexión ya abierta (tests/herramientas); no la cierra. */
     public ProductDao(Connection conn) {
-        this.conn = conn;
-        ensureOfferSchema();
+        this(new SingleConnectionDataSource(conn));
     }
 
-    /** Crea tabla de ofertas si no existe (no modifica Db.java). */
-    private void ensureOfferSchema() {
-        final String sql = """
-        CREATE TABLE IF NOT EXISTS product_offers(
-          product_id  VARCHAR(40) PRIMARY KEY,
-          promo_price DECIMAL(12,2) NOT NULL,
-          valid_until DATE NOT NULL,
-          CONSTRAINT fk_offer_product FOREIGN KEY (product_id) REFERENCES products(id)
-        )
-        """;
-        try (Statement st = conn.createStatement()) {
-            st.execute(sql);
+    /**
+     * Lista todos los productos (con oferta vigente si existe) desde el caché.
+     * La lista es inmutable y sus productos son compartidos: no modificarlos.
+     */
+    @Override
+    public List<Product> findAll() {
+        long t0 = System.nanoTime();
+        try {
+            return withPending(view().all());
+        } finally {
+            T_FIND_ALL.stop(t0);
+        }
+    }
+
+    /** Versión de la foto vigente del catálogo; cambia cada vez que se recarga o se encola una oferta. */
+    @Override
+    public long catalogVersion() {
+        OfferWriteBehind wb = writeBehind;
+        return view().version() + (wb == null ? 0 : wb.version());
+    }
+
+    /**
+     * Activa el modo write-behind: saveOrUpdateOffer/deleteOffer encolan y vuelven enseguida.
+     * Quien lo activa debe cerrar la cola al terminar para no perder escrituras.
+     */
+    public OfferWriteBehind enableWriteBehind(OfferWriteBehind.Config config) {
+        OfferWriteBehind wb = new OfferWriteBehind(ds, config, this::offersChanged);
+        writeBehind = wb;
+        return wb;
+    }
+
+    /**
+     * Activa el retiro de ofertas vencidas: cada oferta guardada agenda su vencimiento y al
+     * vencer se archiva, se borra y se parchean esos productos en la foto del catálogo.
+     * Quien lo activa debe cerrarlo al terminar.
+     */
+    public OfferExpiryScheduler enableExpiry(OfferExpiryScheduler.Config config) {
+        OfferExpiryScheduler s = new OfferExpiryScheduler(ds, config, clock, this::offersChanged);
+        expiry = s;
+        return s.start();
+    }
+
+    /**
+     * Activa la réplica local: carga el catálogo, sigue catalog_changes y desde entonces las
+     * lecturas salen de la réplica. Tras cada escritura propia se lee el registro enseguida,
+     * así este nodo ve lo que acaba de escribir. Quien lo activa debe cerrarlo al terminar.
+     */
+    public CatalogFollower enableFollower(CatalogFollower.Config config) {
+        CatalogFollower f = new CatalogFollower(ds, new InMemoryProductRepository(clock), config, clock).start();
+        follower = f;
+        return f;
+    }
+
+    /** Lecturas: la réplica si hay seguidor, si no el caché propio. */
+    private CatalogView view() {
+        CatalogFollower f = follower;
+        return f == null ? catalog : f.replica().view();
+    }
+
+    /** Con seguidor, aplica ya lo confirmado (incluida la escritura recién hecha). */
+    private void catchUp() {
+        CatalogFollower f = follower;
+        if (f != null) f.poll();
+    }
+
+    /** Ofertas escritas por la cola o retiradas al vencer: esas filas se parchean en la foto. */
+    private void offersChanged(List<String> ids) {
+        if (ids.size() > MAX_PATCH) {
+            catalog.invalidateSnapshot();
+            catchUp();
+        } else {
+            refresh(ids);
+        }
+    }
+
+    /**
+     * Recarga todo el catálogo y reconstruye el índice de búsqueda tras cambios masivos
+     * hechos fuera de este DAO (p.ej. una importación). Para pocos productos, {@link #refresh}.
+     */
+    @Override
+    public void reloadCatalog() {
+        catalog.invalidate();
+        catchUp();
+    }
+
+    /**
+     * Relee de la BD solo los productos {@code ids} y los reemplaza en la foto del catálogo,
+     * p.ej. el stock tras un checkout. No recarga el catálogo ni toca el índice de búsqueda.
+     */
+    public void refresh(Collection<String> ids) {
+        if (follower == null) catalog.patch(() -> loadRows(ids));
+        catchUp();
+    }
+
+    private List<Product> loadRows(Collection<String> ids) {
+        try (Connection conn = ds.getConnection()) {
+            return loadRows(conn, ids);
         } catch (SQLException e) {
-            throw new RuntimeException("No se pudo asegurar el esquema de ofertas", e);
+            throw new RuntimeException("Error consultando productos " + ids, e);
         }
     }
 
-    /** Lista todos los productos, uniendo oferta si existe. */
-    public List<Product> findAll() {
+    /** Filas de products (con su oferta, si tiene) de los ids dados; los que no existen no vienen. */
+    static List<Product> loadRows(Connection c, Collection<String> ids) throws SQLException {
         final String sql = """
-        SELECT p.id, p.name, p.descr, p.image_url, p.price, p.stock,
-               o.promo_price, o.valid_until
+        SELECT p.id, p.name, p.descr, p.image_url, p.price_cents, p.stock,
+               o.promo_price_cents, o.valid_until
         FROM products p
         LEFT JOIN product_offers o ON o.product_id = p.id
-        ORDER BY p.name
+        WHERE p.id = ANY(?)
         """;
-        List<Product> out = new ArrayList<>();
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) out.add(mapRow(rs));
-            return out;
-        } catch (SQLException e) {
-            throw new RuntimeException("Error consultando productos", e);
+        List<Product> rows = new ArrayList<>(ids.size());
+        Array arr = c.createArrayOf("VARCHAR", ids.toArray(new String[0]));
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setArray(1, arr);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) rows.add(mapRow(rs));
+            }
+        } finally {
+            arr.free();
         }
+        return rows;
     }
 
-    /** Lista con filtro de texto en nombre/descr (case-insensitive). */
-    public List<Product> findAllFiltered(String q) {
-        String base = """
-        SELECT p.id, p.name, p.descr, p.image_url, p.price, p.stock,
-               o.promo_price, o.valid_until
-        FROM products p
-        LEFT JOIN product_offers o ON o.product_id = p.id
-        """;
-        boolean hasQ = q != null && !q.isBlank();
-        String where = hasQ ? "WHERE LOWER(p.name) LIKE ? OR LOWER(p.descr) LIKE ?" : "";
-        String order = " ORDER BY p.name";
+    /** Contadores de aciertos/fallos/desalojos del caché del catálogo (o de la réplica). */
+    public CatalogCache catalogStats() {
+        return view().cache;
+    }
 
+    /** Lee todo el catálogo de la BD (para el caché). */
+    private List<Product> loadAll() {
         List<Product> out = new ArrayList<>();
-        try (PreparedStatement ps = conn.prepareStatement(base + where + order)) {
-            if (hasQ) {
-                String like = "%" + q.toLowerCase().trim() + "%";
-                ps.setString(1, like);
-                ps.setString(2, like);
-            }
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) out.add(mapRow(rs));
+        streamAll(STREAM_FETCH_SIZE, out::add);
+        return out;
+    }
+
+    /**
+     * Recorre el catálogo en BD fila por fila, ordenado por nombre e id,
+     * sin armar una lista intermedia (el driver trae {@code fetchSize} filas por vez).
+     */
+    public void streamAll(int fetchSize, Consumer<Product> sink) {
+        long t0 = System.nanoTime();
+        try {
+            final String sql = """
+            SELECT p.id, p.name, p.descr, p.image_url, p.price_cents, p.stock,
+                   o.promo_price_cents, o.valid_until
+            FROM products p
+            LEFT JOIN product_offers o ON o.product_id = p.id
+            ORDER BY p.name, p.id
+            """;
+            try (Connection conn = ds.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setFetchSize(fetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) sink.accept(mapRow(rs));
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Error consultando productos", e);
             }
-            return out;
-        } catch (SQLException e) {
-            throw new RuntimeException("Error consultando productos con filtro", e);
+        } finally {
+            T_STREAM_ALL.stop(t0);
+        }
+    }
+
+    /**
+     * Página de productos por cursor (keyset): sin q, en orden (nombre, id);
+     * con q, en orden de relevancia de la búsqueda. {@code after} es el
+     * cursor devuelto por la página anterior (null para la primera).
+     */
+    @Override
+    public ProductPage findPage(String q, String after, int limit) {
+        long t0 = System.nanoTime();
+        try {
+            ProductPage page = view().page(q, after, limit);
+            List<Product> items = withPending(page.getItems());
+            return items == page.getItems() ? page : new ProductPage(items, page.getNextCursor());
+        } finally {
+            T_FIND_PAGE.stop(t0);
         }
     }
 
-    /** Busca por id y trae oferta si existe. */
+    /**
+     * Búsqueda por texto en nombre/descr usando el índice invertido
+     * (sin acentos, por prefijo de palabra, ordenada por relevancia).
+     * Con q nulo o en blanco devuelve todo el catálogo.
+     */
+    @Override
+    public List<Product> findAllFiltered(String q) {
+        long t0 = System.nanoTime();
+        try {
+            return withPending(view().search(q));
+        } finally {
+            T_FIND_ALL_FILTERED.stop(t0);
+        }
+    }
+
+    /** Busca por id (desde el caché) y trae oferta vigente si existe. Devuelve una copia. */
+    @Override
     public Optional<Product> findById(String id) {
-        final String sql = """
-        SELECT p.id, p.name, p.descr, p.image_url, p.price, p.stock,
-               o.promo_price, o.valid_until
-        FROM products p
-        LEFT JOIN product_offers o ON o.product_id = p.id
-        WHERE p.id = ?
-        """;
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return Optional.of(mapRow(rs));
-                return Optional.empty();
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error buscando producto " + id, e);
+        long t0 = System.nanoTime();
+        try {
+            Product p = view().byId(id);
+            if (p == null) return Optional.empty();
+            Product pending = withPending(p);
+            return Optional.of(pending == p ? new Product(p) : pending);
+        } finally {
+            T_FIND_BY_ID.stop(t0);
         }
     }
 
     /** Actualiza datos base del producto (name/descr/image/price/stock). */
+    @Override
     public void update(Product p) {
-        final String sql = """
-        UPDATE products
-           SET name=?, descr=?, image_url=?, price=?, stock=?
-         WHERE id=?
-        """;
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, p.getName());
-            ps.setString(2, p.getDescr());
-            ps.setString(3, p.getImageUrl());
-            ps.setBigDecimal(4, java.math.BigDecimal.valueOf(p.getPrice()));
-            ps.setInt(5, p.getStock());
-            ps.setString(6, p.getId());
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Error actualizando producto " + p.getId(), e);
+        long t0 = System.nanoTime();
+        try {
+            final String sql = """
+            UPDATE products
+               SET name=?, descr=?, image_url=?, price_cents=?, stock=?
+             WHERE id=?
+            """;
+            try {
+                int rows = writeAndRecord(sql, CatalogChanges.PRODUCT, p.getId(), ps -> {
+                    ps.setString(1, p.getName());
+                    ps.setString(2, p.getDescr());
+                    ps.setString(3, p.getImageUrl());
+                    ps.setLong(4, p.getPriceCents());
+                    ps.setInt(5, p.getStock());
+                    ps.setString(6, p.getId());
+                });
+                // Un id inexistente no cambia nada: no hay que agregarlo al índice
+                if (rows > 0) catalog.updated(p);
+                catchUp();
+            } catch (SQLException e) {
+                throw new RuntimeException("Error actualizando producto " + p.getId(), e);
+            }
+        } finally {
+            T_UPDATE.stop(t0);
         }
     }
 
     /** Crea/actualiza oferta usando MERGE (UPSERT) en H2. */
-    public void saveOrUpdateOffer(String productId, double promoPrice, String validUntilIso) {
-        final String sql = """
-        MERGE INTO product_offers(product_id, promo_price, valid_until)
-        KEY(product_id)
-        VALUES (?, ?, ?)
-        """;
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, productId);
-            ps.setBigDecimal(2, java.math.BigDecimal.valueOf(promoPrice));
-            ps.setDate(3, java.sql.Date.valueOf(validUntilIso)); // yyyy-MM-dd
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Error guardando oferta para " + productId, e);
+    @Override
+    public void saveOrUpdateOffer(String productId, long promoCents, String validUntilIso) {
+        long t0 = System.nanoTime();
+        try {
+            java.sql.Date until = java.sql.Date.valueOf(validUntilIso); // yyyy-MM-dd
+            OfferWriteBehind wb = writeBehind;
+            if (wb != null) {
+                wb.upsert(productId, promoCents, validUntilIso);
+                track(until);
+                return;
+            }
+            final String sql = """
+            MERGE INTO product_offers(product_id, promo_price_cents, valid_until)
+            KEY(product_id)
+            VALUES (?, ?, ?)
+            """;
+            try {
+                writeAndRecord(sql, CatalogChanges.OFFER, productId, ps -> {
+                    ps.setString(1, productId);
+                    ps.setLong(2, promoCents);
+                    ps.setDate(3, until);
+                });
+                refresh(List.of(productId));
+                track(until);
+            } catch (SQLException e) {
+                throw new RuntimeException("Error guardando oferta para " + productId, e);
+            }
+        } finally {
+            T_SAVE_OFFER.stop(t0);
         }
     }
 
     /** Elimina la oferta (si existe) para el producto dado. */
+    @Override
     public void deleteOffer(String productId) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "DELETE FROM product_offers WHERE product_id = ?")) {
-            ps.setString(1, productId);
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Error al eliminar oferta de " + productId, e);
+        long t0 = System.nanoTime();
+        try {
+            OfferWriteBehind wb = writeBehind;
+            if (wb != null) {
+                wb.delete(productId);
+                return;
+            }
+            try {
+                writeAndRecord("DELETE FROM product_offers WHERE product_id = ?", CatalogChanges.OFFER, productId,
+                        ps -> ps.setString(1, productId));
+                refresh(List.of(productId));
+            } catch (SQLException e) {
+                throw new RuntimeException("Error al eliminar oferta de " + productId, e);
+            }
+        } finally {
+            T_DELETE_OFFER.stop(t0);
+        }
+    }
+
+    /** Completa los parámetros de una sentencia. */
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    /**
+     * Ejecuta la sentencia y anota el cambio en catalog_changes, en una misma transacción.
+     * Devuelve las filas afectadas.
+     */
+    private int writeAndRecord(String sql, String kind, String productId, Binder binder) throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                binder.bind(ps);
+                int rows = ps.executeUpdate();
+                if (rows > 0) CatalogChanges.record(conn, kind, productId);
+                conn.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void track(java.sql.Date validUntil) {
+        OfferExpiryScheduler s = expiry;
+        if (s != null) s.track(validUntil.toLocalDate());
+    }
+
+    /** Aplica a una lista del caché las ofertas encoladas y aún no escritas. */
+    private List<Product> withPending(List<Product> list) {
+        OfferWriteBehind wb = writeBehind;
+        if (wb == null || !wb.hasPending()) return list;
+        List<Product> out = null;
+        for (int i = 0; i < list.size(); i++) {
+            Product p = list.get(i);
+            Product q = withPending(p);
+            if (q != p) {
+                if (out == null) out = new ArrayList<>(list);
+                out.set(i, q);
+            }
+        }
+        return out == null ? list : Collections.unmodifiableList(out);
+    }
+
+    /** Copia del producto con su oferta pendiente, o el mismo producto si no hay ninguna. */
+    private Product withPending(Product p) {
+        OfferWriteBehind wb = writeBehind;
+        OfferWriteBehind.Pending o = wb == null ? null : wb.pending(p.getId());
+        if (o == null) return p;
+        Product copy = new Product(p);
+        if (o.isDelete() || o.validUntil.compareTo(LocalDate.now(clock).toString()) < 0) {
+            copy.clearPromo();
+        } else {
+            copy.setPromoCents(o.promoCents);
+            copy.setValidUntil(o.validUntil);
         }
+        return copy;
     }
 
     // ===== util =====
-    private Product mapRow(ResultSet rs) throws SQLException {
+    static Product mapRow(ResultSet rs) throws SQLException {
         Product p = new Product();
         p.setId(rs.getString("id"));
         p.setName(rs.getString("name"));
         p.setDescr(rs.getString("descr"));
         p.setImageUrl(rs.getString("image_url"));
-        p.setPrice(rs.getBigDecimal("price").doubleValue());
+        p.setPriceCents(rs.getLong("price_cents"));
         p.setStock(rs.getInt("stock"));
 
-        java.math.BigDecimal promo = (java.math.BigDecimal) rs.getObject("promo_price");
-        if (promo != null) p.setPromoPrice(promo.doubleValue());
+        long promo = rs.getLong("promo_price_cents");
+        if (!rs.wasNull()) p.setPromoCents(promo);
 
         Date until = rs.getDate("valid_until");
         if (until != null) p.setValidUntil(until.toLocalDate().toString());
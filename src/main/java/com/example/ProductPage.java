@@ -0,0 +1,76 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Página de productos con cursor (keyset) para pedir la siguiente.
+ * El cursor codifica la clave de orden del último elemento: (puntaje, nombre, id).
+ * Antes de pasar a Base64 queda como {@code puntaje|largoDelId|id + nombre}: el id va
+ * con su largo delante, así un '|' en el id o en el nombre no corre los campos.
+ */
+public class ProductPage {
+
+    public static final int DEFAULT_SIZE = 24;
+    public static final int MAX_SIZE = 100;
+
+    private final List<Product> items;
+    private final String nextCursor;
+
+    public ProductPage(List<Product> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Product> getItems() { return items; }
+    /** null si no hay más resultados. */
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasNext() { return nextCursor != null; }
+
+    /**
+     * Cursor en su forma canónica (para claves de caché): null si viene vacío;
+     * IllegalArgumentException si no es un cursor válido.
+     */
+    public static String normalizeCursor(String text) {
+        Cursor c = Cursor.decode(text);
+        return c == null ? null : c.encode();
+    }
+
+    /** Clave de orden decodificada de un cursor. */
+    static final class Cursor {
+        final int score;
+        final String id;
+        final String name;
+
+        Cursor(int score, String id, String name) {
+            this.score = score;
+            this.id = id;
+            this.name = name;
+        }
+
+        String encode() {
+            String raw = score + "|" + id.length() + "|" + id + name;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** Devuelve null si el texto es nulo o vacío; IllegalArgumentException si está mal formado. */
+        static Cursor decode(String text) {
+            if (text == null || text.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(text.trim()), StandardCharsets.UTF_8);
+                int a = raw.indexOf('|');
+                int b = a < 0 ? -1 : raw.indexOf('|', a + 1);
+                if (b < 0) throw new IllegalArgumentException("Cursor inválido.");
+                int score = Integer.parseInt(raw.substring(0, a));
+                int idLength = Integer.parseInt(raw.substring(a + 1, b));
+                if (idLength < 1 || idLength > raw.length() - b - 1) throw new IllegalArgumentException("Cursor inválido.");
+                int idEnd = b + 1 + idLength;
+                return new Cursor(score, raw.substring(b + 1, idEnd), raw.substring(idEnd));
+            } catch (IllegalArgumentException e) {
+                // incluye NumberFormatException y Base64 inválido
+                throw new IllegalArgumentException("Cursor inválido.");
+            }
+        }
+    }
+}
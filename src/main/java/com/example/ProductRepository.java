@@ -0,0 +1,48 @@
+package com.example;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Catálogo de productos y sus ofertas. Backends: {@link ProductDao} (JDBC/H2)
+ * e {@link InMemoryProductRepository} (en memoria).
+ * Las lecturas nunca muestran ofertas vencidas.
+ */
+public interface ProductRepository {
+
+    /** Todo el catálogo en orden (nombre, id). Lista inmutable de productos compartidos: no modificarlos. */
+    List<Product> findAll();
+
+    /** Cambia cada vez que cambia lo que devuelven las lecturas (para ETags). */
+    long catalogVersion();
+
+    /**
+     * Recarga todo lo cacheado (foto e índice de búsqueda) tras cambios masivos hechos por
+     * fuera del repositorio, p.ej. una importación.
+     */
+    void reloadCatalog();
+
+    /**
+     * Página por cursor (keyset): sin q, en orden (nombre, id); con q, por relevancia.
+     * @throws IllegalArgumentException si el cursor o el tamaño son inválidos
+     */
+    ProductPage findPage(String q, String after, int limit);
+
+    /** Búsqueda por texto en nombre/descr; con q nulo o en blanco devuelve todo. */
+    List<Product> findAllFiltered(String q);
+
+    /** Copia del producto (con su oferta vigente, si hay). */
+    Optional<Product> findById(String id);
+
+    /** Actualiza datos base del producto (name/descr/image/price/stock). */
+    void update(Product p);
+
+    /**
+     * Crea o reemplaza la oferta del producto (precio en centavos).
+     * @throws IllegalArgumentException si la fecha no es yyyy-MM-dd
+     */
+    void saveOrUpdateOffer(String productId, long promoCents, String validUntilIso);
+
+    /** Elimina la oferta (si existe) del producto. */
+    void deleteOffer(String productId);
+}
@@ -0,0 +1,406 @@
+package com.example;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre name y descr de los productos.
+ * Normaliza acentos ("Sofía" → "sofia"), busca por prefijo de palabra
+ * (todas las palabras de la consulta deben aparecer) y ordena por relevancia:
+ * pesa más el nombre que la descripción y la palabra exacta que el prefijo.
+ *
+ * <p>Costo por consulta acotado:
+ * <ul>
+ *   <li>Cada término lista sus productos ya ordenados por (peso, nombre, id). Una página
+ *       de una consulta de una palabra mezcla esas listas desde el cursor y corta en
+ *       limit: O(limit · log expansiones), sin recorrer todos los aciertos.</li>
+ *   <li>Con varias palabras se recorre solo la lista de la más rara y cada candidato se
+ *       verifica contra sus propios términos: O(aciertos de la palabra más rara).</li>
+ *   <li>Un prefijo se expande a lo sumo a {@link #MAX_EXPANSIONS} términos del índice
+ *       (los primeros en orden alfabético, la palabra exacta incluida); con menos de
+ *       {@link #MIN_PREFIX} letras solo cuenta la palabra exacta.</li>
+ * </ul>
+ */
+public class ProductSearchIndex {
+
+    private static final int IN_NAME = 1;
+    private static final int IN_DESCR = 2;
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCR_WEIGHT = 1;
+    /** Letras mínimas para buscar por prefijo; "a" o "1" solo encuentran la palabra exacta. */
+    static final int MIN_PREFIX = 2;
+    /** Términos del índice a los que se expande un prefijo como máximo. */
+    static final int MAX_EXPANSIONS = 64;
+
+    /** Resultado: id del producto y su puntaje. */
+    public static final class Hit {
+        public final String id;
+        public final String name;
+        public final int score;
+
+        Hit(String id, String name, int score) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+        }
+    }
+
+    /** Producto en la lista de un término, con el peso de los campos donde aparece. */
+    private static final class Posting {
+        final String id;
+        final String name;
+        final int weight;
+
+        Posting(String id, String name, int weight) {
+            this.id = id;
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+
+    /** Orden de una lista: peso desc, nombre, id (el de {@link #BY_RANK} con factor fijo). */
+    private static final Comparator<Posting> POSTING_ORDER = (a, b) -> {
+        if (a.weight != b.weight) return Integer.compare(b.weight, a.weight);
+        int c = a.name.compareTo(b.name);
+        return c != 0 ? c : a.id.compareTo(b.id);
+    };
+
+    private static final class Doc {
+        final String name;
+        /** Ordenados, con su peso en la misma posición. */
+        final String[] terms;
+        final int[] weights;
+
+        Doc(String name, String[] terms, int[] weights) {
+            this.name = name;
+            this.terms = terms;
+            this.weights = weights;
+        }
+    }
+
+    /** Términos del índice que cubre una palabra de la consulta. */
+    private static final class Expansion {
+        final String term;
+        final List<String> keys = new ArrayList<>();
+        final List<NavigableSet<Posting>> lists = new ArrayList<>();
+        long size;
+
+        Expansion(String term) {
+            this.term = term;
+        }
+
+        /** Factor de puntaje de un término del índice: 2 si es la palabra exacta. */
+        int factor(String key) {
+            return key.length() == term.length() ? 2 : 1;
+        }
+
+        /** Puntaje del producto para esta palabra (máximo sobre sus términos cubiertos), 0 si no la tiene. */
+        int score(Doc d) {
+            // los términos del producto están ordenados: los cubiertos van seguidos desde term
+            int i = Arrays.binarySearch(d.terms, term);
+            if (i < 0) {
+                if (term.length() < MIN_PREFIX) return 0;
+                i = -i - 1;
+            }
+            String last = keys.get(keys.size() - 1);
+            int best = 0;
+            for (; i < d.terms.length && d.terms[i].startsWith(term) && d.terms[i].compareTo(last) <= 0; i++) {
+                best = Math.max(best, factor(d.terms[i]) * d.weights[i]);
+                if (term.length() < MIN_PREFIX) break;
+            }
+            return best;
+        }
+    }
+
+    /** término → productos que lo tienen, en {@link #POSTING_ORDER} */
+    private final TreeMap<String, TreeSet<Posting>> postings = new TreeMap<>();
+    private final Map<String, Doc> docs = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProductSearchIndex() {}
+
+    public ProductSearchIndex(Collection<Product> products) {
+        for (Product p : products) put(p);
+    }
+
+    /** Agrega o reindexa un producto. */
+    public void put(Product p) {
+        Map<String, Integer> fields = new TreeMap<>();
+        for (String t : tokenize(p.getName())) fields.merge(t, IN_NAME, (a, b) -> a | b);
+        for (String t : tokenize(p.getDescr())) fields.merge(t, IN_DESCR, (a, b) -> a | b);
+        String[] terms = new String[fields.size()];
+        int[] weights = new int[fields.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : fields.entrySet()) {
+            int f = e.getValue();
+            terms[i] = e.getKey();
+            weights[i++] = ((f & IN_NAME) != 0 ? NAME_WEIGHT : 0) + ((f & IN_DESCR) != 0 ? DESCR_WEIGHT : 0);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(p.getId());
+            for (int j = 0; j < terms.length; j++) {
+                postings.computeIfAbsent(terms[j], k -> new TreeSet<>(POSTING_ORDER))
+                        .add(new Posting(p.getId(), p.getName(), weights[j]));
+            }
+            docs.put(p.getId(), new Doc(p.getName(), terms, weights));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String id) {
+        Doc old = docs.remove(id);
+        if (old == null) return;
+        for (int i = 0; i < old.terms.length; i++) {
+            TreeSet<Posting> list = postings.get(old.terms[i]);
+            if (list != null) {
+                list.remove(new Posting(id, old.name, old.weights[i]));
+                if (list.isEmpty()) postings.remove(old.terms[i]);
+            }
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca productos cuyo nombre o descripción contenga palabras que empiecen
+     * con cada término de la consulta. Ordena por puntaje desc, luego nombre e id.
+     */
+    public List<Hit> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            List<Expansion> exps = expand(terms);
+            if (exps == null) return List.of();
+            List<Hit> hits = new ArrayList<>();
+            candidates(exps, (id, name, score) -> hits.add(new Hit(id, name, score)));
+            hits.sort(BY_RANK);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Una página de {@link #search}: los primeros {@code limit} aciertos estrictamente después
+     * de {@code after} (null = desde el principio), en el mismo orden. Con una palabra mezcla
+     * las listas ya ordenadas y corta en limit; con varias guarda los mejores candidatos de la
+     * palabra más rara en un montículo de tamaño limit.
+     */
+    public List<Hit> searchPage(String query, Hit after, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit < 1) return List.of();
+
+        lock.readLock().lock();
+        try {
+            List<Expansion> exps = expand(terms);
+            if (exps == null) return List.of();
+            if (exps.size() == 1) return merge(exps.get(0), after, limit);
+
+            // el peor de los elegidos queda al tope
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, BY_RANK.reversed());
+            candidates(exps, (id, name, score) -> {
+                if (after != null && compare(score, name, id, after) <= 0) return;
+                if (best.size() == limit) {
+                    if (compare(score, name, id, best.peek()) >= 0) return;
+                    best.poll();
+                }
+                best.add(new Hit(id, name, score));
+            });
+            List<Hit> page = new ArrayList<>(best);
+            page.sort(BY_RANK);
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Expansiones de cada palabra de la consulta, o null si alguna no aparece en el índice. */
+    private List<Expansion> expand(List<String> terms) {
+        List<Expansion> out = new ArrayList<>(terms.size());
+        for (String term : new LinkedHashSet<>(terms)) {
+            Expansion x = new Expansion(term);
+            NavigableMap<String, TreeSet<Posting>> range = term.length() < MIN_PREFIX
+                    ? postings.subMap(term, true, term, true)
+                    : postings.subMap(term, true, term + Character.MAX_VALUE, false);
+            for (Map.Entry<String, TreeSet<Posting>> e : range.entrySet()) {
+                if (x.keys.size() == MAX_EXPANSIONS) break;
+                x.keys.add(e.getKey());
+                x.lists.add(e.getValue());
+                x.size += e.getValue().size();
+            }
+            if (x.keys.isEmpty()) return null;
+            out.add(x);
+        }
+        return out;
+    }
+
+    @FunctionalInterface
+    private interface HitSink {
+        void accept(String id, String name, int score);
+    }
+
+    /**
+     * Productos que tienen todas las palabras, con su puntaje: recorre las listas de la
+     * palabra más rara y verifica el resto sobre los términos de cada producto.
+     */
+    private void candidates(List<Expansion> exps, HitSink sink) {
+        Expansion driver = exps.get(0);
+        for (Expansion x : exps) if (x.size < driver.size) driver = x;
+        Set<String> seen = driver.lists.size() > 1 ? new HashSet<>() : null;
+        for (NavigableSet<Posting> list : driver.lists) {
+            for (Posting p : list) {
+                if (seen != null && !seen.add(p.id)) continue;
+                Doc d = docs.get(p.id);
+                int total = 0;
+                for (Expansion x : exps) {
+                    int s = x.score(d);
+                    if (s == 0) {
+                        total = 0;
+                        break;
+                    }
+                    total += s;
+                }
+                if (total > 0) sink.accept(p.id, d.name, total);
+            }
+        }
+    }
+
+    /** Cursor de la mezcla: una lista del índice con su factor. */
+    private static final class Cursor {
+        final Iterator<Posting> it;
+        final int factor;
+        Posting head;
+
+        Cursor(Iterator<Posting> it, int factor) {
+            this.it = it;
+            this.factor = factor;
+            this.head = it.next();
+        }
+
+        int score() {
+            return factor * head.weight;
+        }
+    }
+
+    private static int compare(Cursor a, Cursor b) {
+        if (a.score() != b.score()) return Integer.compare(b.score(), a.score());
+        int c = a.head.name.compareTo(b.head.name);
+        return c != 0 ? c : a.head.id.compareTo(b.head.id);
+    }
+
+    /**
+     * Una palabra: mezcla las listas de sus términos (cada una ya en orden de puntaje) desde
+     * {@code after}. Un producto con varios términos cubiertos aparece en varias listas; cuenta
+     * solo la aparición con su puntaje real (el máximo), que es la primera de la mezcla.
+     */
+    private List<Hit> merge(Expansion x, Hit after, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(x.lists.size(), ProductSearchIndex::compare);
+        for (int i = 0; i < x.lists.size(); i++) {
+            NavigableSet<Posting> list = x.lists.get(i);
+            int factor = x.factor(x.keys.get(i));
+            NavigableSet<Posting> tail = list;
+            if (after != null) {
+                // puntaje = factor · peso: saltar lo que va antes del cursor o es el cursor
+                if (after.score % factor == 0) {
+                    tail = list.tailSet(new Posting(after.id, after.name, after.score / factor), false);
+                } else {
+                    tail = list.tailSet(new Posting("", "", after.score / factor), true);
+                }
+            }
+            if (!tail.isEmpty()) heads.add(new Cursor(tail.iterator(), factor));
+        }
+        List<Hit> page = new ArrayList<>(Math.min(limit, 64));
+        String lastId = null;
+        while (page.size() < limit && !heads.isEmpty()) {
+            Cursor c = heads.poll();
+            Posting p = c.head;
+            int score = c.score();
+            if (c.it.hasNext()) {
+                c.head = c.it.next();
+                heads.add(c);
+            }
+            // misma (puntaje, nombre, id) en dos listas: llegan seguidas
+            if (p.id.equals(lastId)) continue;
+            if (score != x.score(docs.get(p.id))) continue;
+            page.add(new Hit(p.id, p.name, score));
+            lastId = p.id;
+        }
+        return page;
+    }
+
+    /** Orden de resultados: puntaje desc, nombre asc, id asc. */
+    static final Comparator<Hit> BY_RANK = (a, b) -> compare(a.score, a.name, a.id, b);
+
+    /** {@link #BY_RANK} de un acierto todavía sin armar contra {@code h}. */
+    private static int compare(int score, String name, String id, Hit h) {
+        if (score != h.score) return Integer.compare(h.score, score);
+        int c = name.compareTo(h.name);
+        return c != 0 ? c : id.compareTo(h.id);
+    }
+
+    /** Minúsculas sin acentos, separando por todo lo que no sea letra o dígito. */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        String folded = fold(text);
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    static String fold(String s) {
+        String n = Normalizer.normalize(s, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(n.length());
+        for (int i = 0; i < n.length(); i++) {
+            char ch = n.charAt(i);
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) sb.append(ch);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,267 @@
+package com.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Caché de páginas HTML del catálogo ya renderizadas, en bytes planos y en gzip.
+ * La clave la arma quien llama (ruta + q normalizado + página); cada entrada guarda la
+ * versión del catálogo con que se armó y deja de servir en cuanto esa versión cambia
+ * (ofertas, productos, checkout). Responde 304 con ETag / Last-Modified, así un visitante
+ * anónimo cuesta una copia de memoria o solo cabeceras.
+ *
+ * <p>Las partes de la clave que vienen del cliente llegan ya normalizadas y validadas
+ * ({@link #normalizeQuery}, {@link ProductPage#normalizeCursor}). Con {@code maxEntries}
+ * páginas se desaloja la usada hace más tiempo, no todo el caché.
+ */
+public class ResponseCache {
+
+    /** Parámetros; se leen de propiedades de sistema "http.cache.*". */
+    public static class Config {
+        /** Páginas distintas en memoria (LRU); 0 desactiva el caché. */
+        public int maxEntries = 1_000;
+        /** max-age de Cache-Control; con 0 el navegador revalida siempre (barato: 304). */
+        public int maxAgeSeconds = 0;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.maxEntries = Integer.getInteger("http.cache.maxEntries", c.maxEntries);
+            c.maxAgeSeconds = Integer.getInteger("http.cache.maxAgeSeconds", c.maxAgeSeconds);
+            return c;
+        }
+    }
+
+    static final class Entry {
+        final long version;
+        final String etag;
+        /** Epoch millis truncado a segundos (lo que admite Last-Modified). */
+        final long lastModified;
+        final byte[] plain;
+        final byte[] gzip;
+
+        Entry(long version, String etag, long lastModified, byte[] plain, byte[] gzip) {
+            this.version = version;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.plain = plain;
+            this.gzip = gzip;
+        }
+    }
+
+    private static final String HTML = "text/html; charset=utf-8";
+    /** Largo máximo de q; más largo responde 400 en vez de sumar una clave al caché. */
+    public static final int MAX_QUERY_LENGTH = 100;
+
+    private final Config config;
+    private final LongSupplier version;
+    private final Clock clock;
+    private final String cacheControl;
+    /** Distingue ETags entre arranques: la versión del catálogo vuelve a 0 al reiniciar. */
+    private final String boot;
+    /** LRU en orden de acceso; se toca solo con {@code lock} tomado (el render va afuera). */
+    private final LinkedHashMap<String, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** @param version versión del catálogo (p.ej. {@code productDao::catalogVersion}) */
+    public ResponseCache(Config config, LongSupplier version) {
+        this(config, version, Clock.systemUTC());
+    }
+
+    ResponseCache(Config config, LongSupplier version, Clock clock) {
+        this.config = config;
+        this.version = version;
+        this.clock = clock;
+        this.cacheControl = "public, max-age=" + config.maxAgeSeconds
+                + (config.maxAgeSeconds == 0 ? ", must-revalidate" : "");
+        this.boot = Long.toString(clock.millis(), 36);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= config.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Sirve la página {@code key} desde el caché o la arma con {@code render} y la guarda.
+     * Escribe directo en la respuesta y devuelve "" para que Spark no agregue cuerpo.
+     */
+    public String serve(Request req, Response res, String key, Supplier<String> render) {
+        Entry e = lookup(key, render);
+        res.type(HTML);
+        res.header("ETag", e.etag);
+        res.header("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(e.lastModified), ZoneOffset.UTC)));
+        res.header("Cache-Control", cacheControl);
+        res.header("Vary", "Accept-Encoding");
+        if (isNotModified(req, e)) {
+            notModified.incrementAndGet();
+            res.status(304);
+            return "";
+        }
+        boolean gzip = acceptsGzip(req.headers("Accept-Encoding"));
+        byte[] body = gzip ? e.gzip : e.plain;
+        // Ya comprimido: se escribe en la respuesta cruda para que Spark no lo vuelva a comprimir
+        if (gzip) res.header("Content-Encoding", "gzip");
+        res.raw().setContentLength(body.length);
+        try {
+            OutputStream out = res.raw().getOutputStream();
+            out.write(body);
+            out.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Error escribiendo " + key, ex);
+        }
+        return "";
+    }
+
+    /** Entrada vigente para la versión actual del catálogo; la arma si falta o quedó vieja. */
+    Entry lookup(String key, Supplier<String> render) {
+        // La versión se lee antes de renderizar: si hay una escritura a mitad, la entrada nace vieja
+        long v = version.getAsLong();
+        Entry e = get(key);
+        if (e != null && e.version == v) {
+            hits.incrementAndGet();
+            return e;
+        }
+        misses.incrementAndGet();
+        byte[] plain = render.get().getBytes(StandardCharsets.UTF_8);
+        long now = clock.millis() / 1000 * 1000;
+        // Last-Modified tiene resolución de segundos: una versión nueva nunca repite el de la anterior
+        if (e != null && now <= e.lastModified) now = e.lastModified + 1000;
+        String etag = "\"" + boot + "-" + v + "-" + Integer.toHexString(key.hashCode()) + "\"";
+        Entry fresh = new Entry(v, etag, now, plain, gzip(plain));
+        if (config.maxEntries > 0) {
+            lock.lock();
+            try {
+                entries.put(key, fresh);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return fresh;
+    }
+
+    private Entry get(String key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isNotModified(Request req, Entry e) {
+        String inm = req.headers("If-None-Match");
+        if (inm != null) {
+            // Con If-None-Match se ignora If-Modified-Since (RFC 9110)
+            for (String tag : inm.split(",")) {
+                String t = tag.trim();
+                if (t.equals(e.etag) || t.equals("*") || t.equals("W/" + e.etag)) return true;
+            }
+            return false;
+        }
+        String ims = req.headers("If-Modified-Since");
+        if (ims == null) return false;
+        try {
+            long since = ZonedDateTime.parse(ims, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return e.lastModified <= since;
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    /** true si Accept-Encoding incluye gzip sin q=0. */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] p = part.trim().split(";");
+            String coding = p[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) continue;
+            boolean zero = p.length > 1 && p[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            return !zero;
+        }
+        return false;
+    }
+
+    static byte[] gzip(byte[] plain) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(plain.length / 4 + 64);
+        // Se comprime una vez por versión del catálogo: vale la pena el nivel máximo
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gz.write(plain);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Normaliza q para la clave y la vista: sin espacios extra; null si queda vacío.
+     * IllegalArgumentException si pasa de {@link #MAX_QUERY_LENGTH} caracteres.
+     */
+    public static String normalizeQuery(String q) {
+        if (q == null) return null;
+        String s = q.trim().replaceAll("\\s+", " ");
+        if (s.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Búsqueda demasiado larga (máximo " + MAX_QUERY_LENGTH + " caracteres).");
+        }
+        return s.isEmpty() ? null : s;
+    }
+
+    /** Descarta todas las páginas (p.ej. tras cambiar plantillas en caliente). */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===== métricas =====
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEvictions() { return evictions.get(); }
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getNotModified() { return notModified.get(); }
+
+    @Override
+    public String toString() {
+        return "ResponseCache{size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", notModified=" + getNotModified() + ", evictions=" + getEvictions() + "}";
+    }
+}
@@ -0,0 +1,315 @@
+package com.example;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+/**
+ * Resúmenes de ventas por producto: por hora, por día y acumulado (tablas sales_hourly,
+ * sales_daily y sales_totals, V9). {@link #record} los suma con la conexión de quien inserta
+ * en order_items, en la misma transacción; las lecturas van por clave primaria, así que
+ * cuestan lo mismo con cien órdenes que con millones.
+ *
+ * <p>Por cada venta se guarda también lo que habría costado a precio de lista: la diferencia
+ * es lo descontado por ofertas, y {@code promoUnits} las unidades vendidas por debajo de lista.
+ *
+ * <p>El tramo de una venta sale de {@code orders.created_at}, que pone la BD: el mismo reloj
+ * que usó la carga inicial de V9, aunque el proceso corra en otra máquina u otra zona horaria.
+ */
+public class SalesAnalytics {
+
+    private static final Metrics.Timer T_RECORD = Metrics.daoTimer("SalesAnalytics", "record");
+    private static final Metrics.Timer T_SERIES = Metrics.daoTimer("SalesAnalytics", "series");
+    private static final Metrics.Timer T_TOTALS = Metrics.daoTimer("SalesAnalytics", "totals");
+    private static final Metrics.Timer T_TOP = Metrics.daoTimer("SalesAnalytics", "top");
+
+    /** Tramos consultables y su límite para que una serie no crezca sin tope. */
+    public enum Granularity {
+        HOUR("sales_hourly", 24 * 7),
+        DAY("sales_daily", 366);
+
+        final String table;
+        /** Máximo de tramos por consulta. */
+        public final int maxBuckets;
+
+        Granularity(String table, int maxBuckets) {
+            this.table = table;
+            this.maxBuckets = maxBuckets;
+        }
+    }
+
+    /** Fila de un resumen: un producto en un tramo (o en total, con start null). */
+    public static final class Bucket {
+        public final String productId;
+        /** Inicio del tramo en ISO (yyyy-MM-ddTHH:mm o yyyy-MM-dd); null en el acumulado. */
+        public final String start;
+        public final long units;
+        public final long promoUnits;
+        public final long revenueCents;
+        public final long listRevenueCents;
+        public final long minPriceCents;
+        public final long maxPriceCents;
+
+        Bucket(String productId, String start, long units, long promoUnits, long revenueCents,
+               long listRevenueCents, long minPriceCents, long maxPriceCents) {
+            this.productId = productId;
+            this.start = start;
+            this.units = units;
+            this.promoUnits = promoUnits;
+            this.revenueCents = revenueCents;
+            this.listRevenueCents = listRevenueCents;
+            this.minPriceCents = minPriceCents;
+            this.maxPriceCents = maxPriceCents;
+        }
+
+        /** Lo que se dejó de cobrar frente al precio de lista. */
+        public long discountCents() {
+            return listRevenueCents - revenueCents;
+        }
+    }
+
+    /** Acumulado de un producto en una transacción, antes de tocar las tablas. */
+    private static final class Delta {
+        long units, promoUnits, revenue, listRevenue;
+        long minPrice = Long.MAX_VALUE, maxPrice = Long.MIN_VALUE;
+    }
+
+    private static final String COLUMNS =
+            "units, promo_units, revenue_cents, list_revenue_cents, min_price_cents, max_price_cents";
+    private static final String ADD = """
+            SET units = units + ?, promo_units = promo_units + ?, revenue_cents = revenue_cents + ?,
+                list_revenue_cents = list_revenue_cents + ?,
+                min_price_cents = LEAST(min_price_cents, ?), max_price_cents = GREATEST(max_price_cents, ?)
+            """;
+
+    private final DataSource ds;
+
+    public SalesAnalytics(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /**
+     * Suma las líneas de la orden a los resúmenes de su hora, su día y el total, usando la
+     * conexión (y la transacción) de quien las inserta. Se agrupan por producto y en orden
+     * de id, el mismo orden en que el checkout bloquea products.
+     */
+    public void record(Connection c, long orderId, List<OrderItem> items) throws SQLException {
+        long t0 = System.nanoTime();
+        try {
+            Map<String, Delta> byProduct = new TreeMap<>();
+            for (OrderItem it : items) {
+                Delta d = byProduct.computeIfAbsent(it.getProductId(), k -> new Delta());
+                d.units += it.getQty();
+                d.revenue = Math.addExact(d.revenue, it.getSubtotalCents());
+                d.minPrice = Math.min(d.minPrice, it.getPriceCents());
+                d.maxPrice = Math.max(d.maxPrice, it.getPriceCents());
+            }
+            listPrices(c, byProduct, items);
+
+            LocalDateTime hour = createdAt(c, orderId).truncatedTo(ChronoUnit.HOURS);
+            Timestamp hourKey = Timestamp.valueOf(hour);
+            Date dayKey = Date.valueOf(hour.toLocalDate());
+            for (Map.Entry<String, Delta> e : byProduct.entrySet()) {
+                add(c, "sales_hourly", e.getKey(), hourKey, e.getValue());
+                add(c, "sales_daily", e.getKey(), dayKey, e.getValue());
+                add(c, "sales_totals", e.getKey(), null, e.getValue());
+            }
+        } finally {
+            T_RECORD.stop(t0);
+        }
+    }
+
+    /** Día de hoy según la BD: el reloj con que se arman los tramos. */
+    public LocalDate today() {
+        try (Connection c = ds.getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT CURRENT_DATE")) {
+            rs.next();
+            return rs.getDate(1).toLocalDate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error leyendo la fecha de la BD", e);
+        }
+    }
+
+    /** Instante de la orden según la BD (el mismo que agrupa la carga inicial de V9). */
+    private static LocalDateTime createdAt(Connection c, long orderId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT created_at FROM orders WHERE id = ?")) {
+            ps.setLong(1, orderId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new IllegalArgumentException("La orden no existe: " + orderId);
+                return rs.getTimestamp(1).toLocalDateTime();
+            }
+        }
+    }
+
+    /**
+     * Importe a precio de lista y unidades vendidas por debajo. El checkout ya trae el precio
+     * de lista en cada línea ({@link OrderItem#getListPriceCents()}); solo las que no lo
+     * traen (inserciones sueltas) lo leen de products.
+     */
+    private static void listPrices(Connection c, Map<String, Delta> byProduct, List<OrderItem> items)
+            throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            for (OrderItem it : items) {
+                long list = it.getListPriceCents();
+                if (list == Money.NONE) {
+                    if (ps == null) ps = c.prepareStatement("SELECT price_cents FROM products WHERE id = ?");
+                    ps.setString(1, it.getProductId());
+                    list = it.getPriceCents(); // sin fila (no debería pasar por la FK): sin descuento
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) list = rs.getLong(1);
+                    }
+                }
+                Delta d = byProduct.get(it.getProductId());
+                d.listRevenue = Math.addExact(d.listRevenue, Money.times(list, it.getQty()));
+                if (it.getPriceCents() < list) d.promoUnits += it.getQty();
+            }
+        } finally {
+            if (ps != null) ps.close();
+        }
+    }
+
+    /**
+     * UPDATE sumando; si no hay fila, INSERT. Si otra transacción la insertó entre medio
+     * (clave duplicada), se vuelve a sumar: H2 deshace solo la sentencia fallida.
+     */
+    private static void add(Connection c, String table, String productId, Object bucket, Delta d)
+            throws SQLException {
+        String where = bucket == null ? " WHERE product_id = ?" : " WHERE product_id = ? AND bucket_start = ?";
+        if (update(c, "UPDATE " + table + " " + ADD + where, productId, bucket, d) > 0) return;
+        String insert = bucket == null
+                ? "INSERT INTO " + table + "(product_id, " + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)"
+                : "INSERT INTO " + table + "(product_id, bucket_start, " + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = c.prepareStatement(insert)) {
+            int i = 1;
+            ps.setString(i++, productId);
+            if (bucket != null) ps.setObject(i++, bucket);
+            setDelta(ps, i, d);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            if (!"23505".equals(e.getSQLState())) throw e;
+            update(c, "UPDATE " + table + " " + ADD + where, productId, bucket, d);
+        }
+    }
+
+    private static int update(Connection c, String sql, String productId, Object bucket, Delta d)
+            throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            int i = setDelta(ps, 1, d);
+            ps.setString(i++, productId);
+            if (bucket != null) ps.setObject(i, bucket);
+            return ps.executeUpdate();
+        }
+    }
+
+    /** Completa las 6 columnas del resumen desde el índice dado; devuelve el siguiente. */
+    private static int setDelta(PreparedStatement ps, int i, Delta d) throws SQLException {
+        ps.setLong(i++, d.units);
+        ps.setLong(i++, d.promoUnits);
+        ps.setLong(i++, d.revenue);
+        ps.setLong(i++, d.listRevenue);
+        ps.setLong(i++, d.minPrice);
+        ps.setLong(i++, d.maxPrice);
+        return i;
+    }
+
+    /**
+     * Serie de un producto entre {@code from} y {@code to} (días inclusive), solo con los
+     * tramos que tuvieron ventas, en orden.
+     * @throws IllegalArgumentException si el rango está invertido o supera {@code maxBuckets}
+     */
+    public List<Bucket> series(String productId, Granularity g, LocalDate from, LocalDate to) {
+        long buckets = ChronoUnit.DAYS.between(from, to) + 1;
+        if (g == Granularity.HOUR) buckets *= 24;
+        if (buckets < 1) throw new IllegalArgumentException("Rango inválido: from es posterior a to");
+        if (buckets > g.maxBuckets) {
+            throw new IllegalArgumentException("Rango demasiado largo: máximo " + g.maxBuckets + " tramos por "
+                    + g.name().toLowerCase(Locale.ROOT));
+        }
+        long t0 = System.nanoTime();
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT product_id, bucket_start, " + COLUMNS + " FROM "
+                     + g.table + " WHERE product_id = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start")) {
+            ps.setString(1, productId);
+            if (g == Granularity.HOUR) {
+                ps.setTimestamp(2, Timestamp.valueOf(from.atStartOfDay()));
+                ps.setTimestamp(3, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            } else {
+                ps.setDate(2, Date.valueOf(from));
+                ps.setDate(3, Date.valueOf(to.plusDays(1)));
+            }
+            List<Bucket> out = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String start = g == Granularity.HOUR
+                            ? rs.getTimestamp(2).toLocalDateTime().toString()
+                            : rs.getDate(2).toLocalDate().toString();
+                    out.add(mapRow(rs, start, 3));
+                }
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error leyendo ventas de " + productId, e);
+        } finally {
+            T_SERIES.stop(t0);
+        }
+    }
+
+    /** Acumulado del producto desde siempre; vacío si nunca se vendió. */
+    public Optional<Bucket> totals(String productId) {
+        long t0 = System.nanoTime();
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT product_id, " + COLUMNS + " FROM sales_totals WHERE product_id = ?")) {
+            ps.setString(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(mapRow(rs, null, 2)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error leyendo ventas de " + productId, e);
+        } finally {
+            T_TOTALS.stop(t0);
+        }
+    }
+
+    /** Productos más vendidos del día, por importe o por unidades (lee solo las primeras {@code limit} filas del índice). */
+    public List<Bucket> top(LocalDate day, boolean byUnits, int limit) {
+        if (limit < 1 || limit > 100) throw new IllegalArgumentException("limit debe estar entre 1 y 100");
+        long t0 = System.nanoTime();
+        String order = byUnits ? "units DESC, revenue_cents DESC" : "revenue_cents DESC, units DESC";
+        // bucket_start (fijo por el WHERE) encabeza el ORDER BY para que H2 recorra
+        // idx_sales_daily_top_* en orden y corte en limit, sin ordenar las filas del día (V10)
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT product_id, " + COLUMNS
+                     + " FROM sales_daily WHERE bucket_start = ? ORDER BY bucket_start, " + order
+                     + ", product_id FETCH FIRST ? ROWS ONLY")) {
+            ps.setDate(1, Date.valueOf(day));
+            ps.setInt(2, limit);
+            List<Bucket> out = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(mapRow(rs, day.toString(), 2));
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error leyendo el ranking de ventas", e);
+        } finally {
+            T_TOP.stop(t0);
+        }
+    }
+
+    private static Bucket mapRow(ResultSet rs, String start, int first) throws SQLException {
+        return new Bucket(rs.getString(1), start,
+                rs.getLong(first), rs.getLong(first + 1), rs.getLong(first + 2),
+                rs.getLong(first + 3), rs.getLong(first + 4), rs.getLong(first + 5));
+    }
+}
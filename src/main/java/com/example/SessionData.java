@@ -0,0 +1,58 @@
+package com.example;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import spark.Response;
+
+/** Codificación de atributos de sesión ("k=v&k2=v2") y cookies de sesión, común a los stores. */
+final class SessionData {
+
+    /** Las cookies de sesión solo viajan por HTTPS con -Dsession.secureCookie=true. */
+    private static final boolean SECURE = Boolean.getBoolean("session.secureCookie");
+
+    private SessionData() {}
+
+    static String encode(Map<String, String> data) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : data.entrySet()) {
+            if (sb.length() > 0) sb.append('&');
+            sb.append(URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8)).append('=')
+              .append(URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    /** Decodifica lo producido por {@link #encode}; descarta pares mal formados. */
+    static Map<String, String> decode(String s) {
+        Map<String, String> out = new LinkedHashMap<>();
+        if (s == null || s.isEmpty()) return out;
+        for (String pair : s.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            try {
+                out.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException ignored) {
+                // par mal codificado: se descarta
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Escribe la cookie con SameSite=Lax (la API de Spark no lo permite).
+     * {@code maxAgeSeconds} 0 la borra; negativo la deja como cookie de sesión del navegador.
+     */
+    static void setCookie(Response res, String name, String value, int maxAgeSeconds) {
+        StringBuilder sb = new StringBuilder(name.length() + value.length() + 64);
+        sb.append(name).append('=').append(value).append("; Path=/");
+        if (maxAgeSeconds >= 0) sb.append("; Max-Age=").append(maxAgeSeconds);
+        sb.append("; HttpOnly; SameSite=Lax");
+        if (SECURE) sb.append("; Secure");
+        res.raw().addHeader("Set-Cookie", sb.toString());
+    }
+}
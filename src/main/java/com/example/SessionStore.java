@@ -0,0 +1,46 @@
+package com.example;
+
+import java.time.Clock;
+
+import javax.sql.DataSource;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Atributos de sesión (hoy: el mensaje flash) detrás de una interfaz, para elegir dónde
+ * viven sin tocar las rutas. Ninguna implementación crea una sesión al leer: solo
+ * {@link #put} la crea, así un visitante anónimo no cuesta estado en el servidor.
+ * <ul>
+ *   <li>{@code cookie} (por defecto): cookie firmada con HMAC, sin estado en el servidor.</li>
+ *   <li>{@code jdbc}: tabla sessions compartida entre nodos, con caché local de vida corta.</li>
+ *   <li>{@code jetty}: sesiones en memoria de Jetty (un solo nodo).</li>
+ * </ul>
+ */
+public interface SessionStore {
+
+    /** Valor del atributo, o null. Nunca crea una sesión. */
+    String get(Request req, String key);
+
+    /** Guarda el atributo; la sesión se crea recién aquí si no existía. Llamar antes de redirigir. */
+    void put(Request req, Response res, String key, String value);
+
+    /** Lee y borra el atributo (mensajes flash); null si no estaba. Nunca crea una sesión. */
+    String take(Request req, Response res, String key);
+
+    /** Implementación elegida con -Dsession.store=cookie|jdbc|jetty. */
+    static SessionStore fromSystemProperties(DataSource ds) {
+        String kind = System.getProperty("session.store", "cookie");
+        switch (kind) {
+            case "cookie":
+                return new CookieSessionStore(CookieSessionStore.secretFromSystemProperties(),
+                        Integer.getInteger("session.maxAgeSeconds", 1800), Clock.systemUTC());
+            case "jdbc":
+                return new JdbcSessionStore(ds, JdbcSessionStore.Config.fromSystemProperties(), Clock.systemUTC());
+            case "jetty":
+                return new JettySessionStore();
+            default:
+                throw new IllegalArgumentException("session.store desconocido: " + kind + " (cookie, jdbc o jetty)");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource que siempre entrega la misma conexión y no la cierra en close().
+ * Pensado para tests y herramientas que ya administran su propia conexión.
+ */
+public class SingleConnectionDataSource implements DataSource {
+
+    private final Connection target;
+    private final Connection shared;
+
+    public SingleConnectionDataSource(Connection target) {
+        this.target = target;
+        this.shared = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, m, args) -> {
+                    switch (m.getName()) {
+                        case "close":
+                            // La conexión pertenece a quien la creó; solo limpiamos la transacción
+                            if (!target.getAutoCommit()) {
+                                target.rollback();
+                                target.setAutoCommit(true);
+                            }
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            try {
+                                return m.invoke(target, args);
+                            } catch (InvocationTargetException ite) {
+                                throw ite.getCause();
+                            }
+                    }
+                });
+    }
+
+    @Override public Connection getConnection() { return shared; }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override public PrintWriter getLogWriter() { return null; }
+    @Override public void setLogWriter(PrintWriter out) { }
+    @Override public void setLoginTimeout(int seconds) { }
+    @Override public int getLoginTimeout() { return 0; }
+    @Override public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(target)) return iface.cast(target);
+        throw new SQLException("No se puede desenvolver a " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) { return iface.isInstance(target); }
+}
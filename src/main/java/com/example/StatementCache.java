@@ -0,0 +1,158 @@
+package com.example;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché LRU de PreparedStatement de una conexión física del pool.
+ * El DAO sigue haciendo prepareStatement/close como siempre: close() solo limpia
+ * los parámetros y deja el statement listo para la próxima vez que se pida el mismo SQL,
+ * así H2 no vuelve a parsear ni planificar la consulta.
+ *
+ * <p>No es thread-safe: la usa solo el hilo que tiene la conexión prestada.
+ */
+class StatementCache {
+
+    /** Contadores compartidos por todas las conexiones del pool. */
+    static final class Stats {
+        final AtomicLong parses = new AtomicLong();
+        final AtomicLong reuses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+        /** Statements abiertos en los cachés (suma de {@link #size()} de cada conexión). */
+        final AtomicLong cached = new AtomicLong();
+    }
+
+    private static final class Cached {
+        final PreparedStatement real;
+        boolean inUse;
+        boolean evicted;
+
+        Cached(PreparedStatement real) { this.real = real; }
+    }
+
+    private final Connection physical;
+    private final Stats stats;
+    private final LinkedHashMap<String, Cached> lru;
+
+    StatementCache(Connection physical, int maxSize, Stats stats) {
+        this.physical = physical;
+        this.stats = stats;
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                if (size() <= maxSize) return false;
+                Cached c = eldest.getValue();
+                c.evicted = true;
+                stats.evictions.incrementAndGet();
+                stats.cached.decrementAndGet();
+                if (!c.inUse) closeQuietly(c.real);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * prepareStatement(sql) o prepareStatement(sql, autoGeneratedKeys) con caché.
+     * {@code owner} es el proxy de la conexión que se devuelve en getConnection().
+     */
+    PreparedStatement prepare(Connection owner, String sql, Integer autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "\u0000" + sql;
+        Cached c = lru.get(key);
+        if (c != null && !c.inUse) {
+            stats.reuses.incrementAndGet();
+        } else if (c != null) {
+            // El mismo SQL ya está abierto en esta conexión: uno aparte, sin caché
+            stats.parses.incrementAndGet();
+            return autoGeneratedKeys == null
+                    ? physical.prepareStatement(sql)
+                    : physical.prepareStatement(sql, autoGeneratedKeys);
+        } else {
+            stats.parses.incrementAndGet();
+            PreparedStatement real = autoGeneratedKeys == null
+                    ? physical.prepareStatement(sql)
+                    : physical.prepareStatement(sql, autoGeneratedKeys);
+            c = new Cached(real);
+            stats.cached.incrementAndGet();
+            lru.put(key, c);
+        }
+        c.inUse = true;
+        return lease(owner, c);
+    }
+
+    private PreparedStatement lease(Connection owner, Cached c) {
+        boolean[] closed = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, m, args) -> {
+                    switch (m.getName()) {
+                        case "close":
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                giveBack(c);
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed[0] || c.real.isClosed();
+                        case "getConnection":
+                            return owner;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            if (closed[0]) throw new SQLException("El statement ya está cerrado");
+                            try {
+                                return m.invoke(c.real, args);
+                            } catch (InvocationTargetException ite) {
+                                throw ite.getCause();
+                            }
+                    }
+                });
+    }
+
+    private void giveBack(Cached c) throws SQLException {
+        c.inUse = false;
+        if (c.evicted) {
+            closeQuietly(c.real);
+            return;
+        }
+        try {
+            // quien lo tome después no hereda parámetros ni límites del uso anterior
+            c.real.clearParameters();
+            c.real.clearBatch();
+            c.real.setFetchSize(0);
+            c.real.setMaxRows(0);
+            c.real.setQueryTimeout(0);
+        } catch (SQLException e) {
+            // statement inservible: fuera del caché
+            if (lru.values().remove(c)) stats.cached.decrementAndGet();
+            closeQuietly(c.real);
+        }
+    }
+
+    /** Cierra todo (al descartar la conexión física). */
+    void closeAll() {
+        stats.cached.addAndGet(-size());
+        for (Iterator<Cached> it = lru.values().iterator(); it.hasNext(); ) {
+            closeQuietly(it.next().real);
+            it.remove();
+        }
+    }
+
+    int size() { return lru.size(); }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+            // ya no se usa
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Archivo estático del classpath servido por una ruta propia (p.ej. {@code /styles.css}).
+ * No se usa {@code staticFiles} de Spark porque atiende antes que cualquier filtro y pone
+ * las mismas cabeceras a todos los archivos.
+ *
+ * <p>Solo la URL versionada con la huella vigente ({@code ?v=<crc32>}, la de
+ * {@link Templates#assetVersion}) se marca inmutable por un año. Sin {@code v}, o con una
+ * huella vieja, el navegador revalida con ETag y recibe 304 si no cambió.
+ */
+final class StaticAsset {
+
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    static final String REVALIDATE = "public, no-cache";
+
+    private final String contentType;
+    private final byte[] body;
+    private final String version;
+    private final String etag;
+
+    StaticAsset(String resource, String contentType) {
+        this.contentType = contentType;
+        try (InputStream in = StaticAsset.class.getResourceAsStream(resource)) {
+            if (in == null) throw new IllegalStateException("No se encontró el recurso " + resource);
+            this.body = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.version = Templates.assetVersion(resource);
+        this.etag = "\"" + version + "\"";
+    }
+
+    /** Cache-Control según el {@code v} pedido. */
+    String cacheControl(String v) {
+        return version.equals(v) ? IMMUTABLE : REVALIDATE;
+    }
+
+    /** Escribe el archivo (o 304) directo en la respuesta y devuelve "" para Spark. */
+    String serve(Request req, Response res) {
+        res.type(contentType);
+        res.header("Cache-Control", cacheControl(req.queryParams("v")));
+        res.header("ETag", etag);
+        String inm = req.headers("If-None-Match");
+        if (inm != null && (inm.contains(etag) || inm.trim().equals("*"))) {
+            res.status(304);
+            return "";
+        }
+        res.raw().setContentLength(body.length);
+        try {
+            OutputStream out = res.raw().getOutputStream();
+            out.write(body);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error escribiendo " + contentType, e);
+        }
+        return "";
+    }
+}
@@ -0,0 +1,98 @@
+package com.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+
+import spark.Response;
+
+/**
+ * Plantillas Mustache compiladas una sola vez al arrancar (src/main/resources/templates).
+ * Se renderizan directo al OutputStream de la respuesta en lugar de armar un String completo.
+ * Toda plantilla ve además {@code assetVersion}: la huella de styles.css, que va en la URL
+ * ({@code /styles.css?v=...}) para que el navegador pueda guardarla como inmutable.
+ */
+public class Templates {
+
+    /** Plantillas que se compilan al arrancar; si alguna falla, el servidor no levanta. */
+    static final String[] PRECOMPILED = {
+            "index.mustache",
+            "layout.mustache",
+            "product_detail.mustache",
+            "products.mustache",
+            "order_detail.mustache",
+            "partials/offerForm.mustache",
+            "partials/productCard.mustache"
+    };
+
+    private static final int BUFFER = 8 * 1024;
+
+    private final DefaultMustacheFactory factory = new DefaultMustacheFactory("templates");
+    private final Map<String, Mustache> compiled = new HashMap<>();
+    /** Valores comunes a todas las plantillas; el modelo de cada página tiene prioridad. */
+    private final Map<String, Object> globals = Map.of("assetVersion", assetVersion("/public/styles.css"));
+
+    public Templates() {
+        this(PRECOMPILED);
+    }
+
+    public Templates(String... names) {
+        for (String name : names) compiled.put(name, factory.compile(name));
+    }
+
+    /** Devuelve la plantilla compilada (compila y guarda si no estaba en la lista inicial). */
+    public Mustache get(String name) {
+        Mustache m = compiled.get(name);
+        return m != null ? m : factory.compile(name);
+    }
+
+    public void render(String name, Object scope, Writer out) {
+        get(name).execute(out, new Object[] {globals, scope});
+    }
+
+    public String renderToString(String name, Object scope) {
+        StringWriter sw = new StringWriter(1024);
+        render(name, scope, sw);
+        return sw.toString();
+    }
+
+    /**
+     * Escribe la plantilla directo en la respuesta HTTP (Jetty usa chunked al no haber Content-Length).
+     * Devuelve "" para que Spark no agregue cuerpo propio.
+     */
+    public String stream(Response res, String name, Object scope) {
+        res.type("text/html; charset=utf-8");
+        try {
+            Writer w = new BufferedWriter(
+                    new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8), BUFFER);
+            render(name, scope, w);
+            w.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error escribiendo " + name, e);
+        }
+        return "";
+    }
+
+    /** CRC32 en hex del recurso del classpath; cambia solo si cambia el archivo. */
+    static String assetVersion(String resource) {
+        try (InputStream in = Templates.class.getResourceAsStream(resource)) {
+            if (in == null) throw new IllegalStateException("No se encontró el recurso " + resource);
+            CRC32 crc = new CRC32();
+            crc.update(in.readAllBytes());
+            return Long.toHexString(crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -5,70 +5,120 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-public class UserDao {
-    private final Connection c;
+import javax.sql.DataSource;
 
-    public UserDao(Connection c) { this.c = c; }
+/** Backend JDBC de {@link UserRepository}. */
+public class UserDao implements UserRepository {
+    private static final Metrics.Timer T_FIND_ALL = Metrics.daoTimer("UserDao", "findAll");
+    private static final Metrics.Timer T_FIND_BY_ID = Metrics.daoTimer("UserDao", "findById");
+    private static final Metrics.Timer T_CREATE = Metrics.daoTimer("UserDao", "create");
+    private static final Metrics.Timer T_UPDATE = Metrics.daoTimer("UserDao", "update");
+    private static final Metrics.Timer T_DELETE = Metrics.daoTimer("UserDao", "delete");
 
-    public List<User> findAll() {
-        List<User> out = new ArrayList<>();
-        String sql = "SELECT id,name,email FROM users ORDER BY id";
-        try (PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                out.add(new User(
-                        rs.getString("id"),
-                        rs.getString("name"),
-                        rs.getString("email")));
-            }
-        } catch (SQLException e) { throw new RuntimeException(e); }
-        return out;
-    }
+    private final DataSource ds;
 
-    public Optional<User> findById(String id) {
-        String sql = "SELECT id,name,email FROM users WHERE id=?";
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.of(new User(
+    public UserDao(DataSource ds) { this.ds = ds; }
+
+    @Override
+    public List<User> findAll() {
+        long t0 = System.nanoTime();
+        try {
+            List<User> out = new ArrayList<>();
+            String sql = "SELECT id,name,email FROM users ORDER BY id";
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new User(
                             rs.getString("id"),
                             rs.getString("name"),
                             rs.getString("email")));
                 }
-            }
+            } catch (SQLException e) { throw new RuntimeException(e); }
+            return out;
+        } finally {
+            T_FIND_ALL.stop(t0);
+        }
+    }
+
+    @Override
+    public Optional<User> findById(String id) {
+        try (Connection c = ds.getConnection()) {
+            return findById(c, id);
         } catch (SQLException e) { throw new RuntimeException(e); }
-        return Optional.empty();
+    }
+
+    /** Igual que findById(id) pero dentro de una transacción abierta por quien llama. */
+    public Optional<User> findById(Connection c, String id) {
+        long t0 = System.nanoTime();
+        try {
+            String sql = "SELECT id,name,email FROM users WHERE id=?";
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.of(new User(
+                                rs.getString("id"),
+                                rs.getString("name"),
+                                rs.getString("email")));
+                    }
+                }
+            } catch (SQLException e) { throw new RuntimeException(e); }
+            return Optional.empty();
+        } finally {
+            T_FIND_BY_ID.stop(t0);
+        }
     }
 
     /** Inserta nuevo usuario; lanza RuntimeException si hay PK duplicada. */
+    @Override
     public void create(User u) {
-        String sql = "INSERT INTO users(id,name,email) VALUES(?,?,?)";
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, u.getId());
-            ps.setString(2, u.getName());
-            ps.setString(3, u.getEmail());
-            ps.executeUpdate();
-        } catch (SQLException e) { throw new RuntimeException(e); }
+        long t0 = System.nanoTime();
+        try {
+            String sql = "INSERT INTO users(id,name,email) VALUES(?,?,?)";
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, u.getId());
+                ps.setString(2, u.getName());
+                ps.setString(3, u.getEmail());
+                ps.executeUpdate();
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        } finally {
+            T_CREATE.stop(t0);
+        }
     }
 
     /** Actualiza nombre/email del usuario existente (por id). */
+    @Override
     public void update(User u) {
-        String sql = "UPDATE users SET name=?, email=? WHERE id=?";
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, u.getName());
-            ps.setString(2, u.getEmail());
-            ps.setString(3, u.getId());
-            ps.executeUpdate();
-        } catch (SQLException e) { throw new RuntimeException(e); }
+        long t0 = System.nanoTime();
+        try {
+            String sql = "UPDATE users SET name=?, email=? WHERE id=?";
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, u.getName());
+                ps.setString(2, u.getEmail());
+                ps.setString(3, u.getId());
+                ps.executeUpdate();
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        } finally {
+            T_UPDATE.stop(t0);
+        }
     }
 
     /** Borra por id; devuelve true si borró, false si no existía. */
+    @Override
     public boolean delete(String id) {
-        String sql = "DELETE FROM users WHERE id=?";
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, id);
-            return ps.executeUpdate() == 1;
-        } catch (SQLException e) { throw new RuntimeException(e); }
+        long t0 = System.nanoTime();
+        try {
+            String sql = "DELETE FROM users WHERE id=?";
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, id);
+                return ps.executeUpdate() == 1;
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        } finally {
+            T_DELETE.stop(t0);
+        }
     }
 }
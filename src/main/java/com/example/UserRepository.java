@@ -0,0 +1,22 @@
+package com.example;
+
+import java.util.List;
+import java.util.Optional;
+
+/** Usuarios. Backends: {@link UserDao} (JDBC/H2) e {@link InMemoryUserRepository}. */
+public interface UserRepository {
+
+    /** Todos, ordenados por id. */
+    List<User> findAll();
+
+    Optional<User> findById(String id);
+
+    /** Inserta un usuario nuevo; lanza RuntimeException si el id ya existe. */
+    void create(User u);
+
+    /** Actualiza nombre/email del usuario existente (por id). */
+    void update(User u);
+
+    /** Borra por id; devuelve true si borró, false si no existía. */
+    boolean delete(String id);
+}
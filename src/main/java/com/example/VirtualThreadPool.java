@@ -0,0 +1,114 @@
+package com.example;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+/**
+ * ThreadPool de Jetty que corre cada tarea en un hilo virtual (Java 21+).
+ * Una petición bloqueada en JDBC o en un cliente lento solo estaciona su hilo
+ * virtual; el acceso a la BD lo sigue acotando el semáforo del {@link ConnectionPool}.
+ *
+ * <p>La API de hilos virtuales se obtiene por reflexión para que el proyecto
+ * siga compilando con Java 17; en un JDK anterior {@link #isSupported()} es false.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPool.class);
+
+    private final ExecutorService executor;
+    private final AtomicInteger running = new AtomicInteger();
+
+    public VirtualThreadPool(String namePrefix) {
+        this.executor = newExecutor(namePrefix);
+    }
+
+    /**
+     * Activa el modo con hilos virtuales si se pidió con -Dserver.virtualThreads=true.
+     * Debe llamarse antes de mapear la primera ruta de Spark. Devuelve true si quedó activo.
+     */
+    public static boolean installIfEnabled() {
+        if (!Boolean.getBoolean("server.virtualThreads")) return false;
+        if (!isSupported()) {
+            log.warn("server.virtualThreads=true requiere Java 21+ (JVM actual: {}); se usan hilos de plataforma",
+                    System.getProperty("java.version"));
+            return false;
+        }
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool("http-vt-")));
+        log.info("Peticiones HTTP en hilos virtuales");
+        return true;
+    }
+
+    /** true si la JVM tiene hilos virtuales (Java 21+). */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /** Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory()). */
+    static ExecutorService newExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = java.util.concurrent.Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Hilos virtuales no disponibles en esta JVM", e);
+        }
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        executor.execute(() -> {
+            running.incrementAndGet();
+            try {
+                job.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            // esperar a que terminen las tareas en curso
+        }
+    }
+
+    /** Hilos virtuales vivos ahora mismo. */
+    @Override
+    public int getThreads() { return running.get(); }
+
+    /** No hay hilos ociosos: se crea uno por tarea. */
+    @Override
+    public int getIdleThreads() { return 0; }
+
+    /** Nunca se queda sin hilos; la contención real está en el pool de conexiones. */
+    @Override
+    public boolean isLowOnThreads() { return false; }
+
+    @Override
+    protected void doStop() throws Exception {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) executor.shutdownNow();
+    }
+}
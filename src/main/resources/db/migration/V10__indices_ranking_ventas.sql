@@ -0,0 +1,8 @@
+-- Ranking del día (SalesAnalytics.top): un índice por criterio con el mismo orden que el
+-- ORDER BY, así H2 lee las primeras filas del índice en vez de ordenar todo el día.
+-- Reemplazan a idx_sales_daily_day, que es prefijo de ambos.
+CREATE INDEX IF NOT EXISTS idx_sales_daily_top_revenue
+  ON sales_daily(bucket_start, revenue_cents DESC, units DESC, product_id);
+CREATE INDEX IF NOT EXISTS idx_sales_daily_top_units
+  ON sales_daily(bucket_start, units DESC, revenue_cents DESC, product_id);
+DROP INDEX IF EXISTS idx_sales_daily_day;
@@ -0,0 +1,34 @@
+-- Tablas base (antes Db.ensureSchema). IF NOT EXISTS: las BD creadas antes de
+-- las migraciones ya las tienen y solo se registran en schema_version.
+CREATE TABLE IF NOT EXISTS users(
+  id    VARCHAR(40) PRIMARY KEY,
+  name  VARCHAR(120) NOT NULL,
+  email VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS products(
+  id        VARCHAR(40) PRIMARY KEY,
+  name      VARCHAR(120) NOT NULL,
+  descr     VARCHAR(2000),
+  image_url VARCHAR(500),
+  price     DECIMAL(12,2) NOT NULL,
+  stock     INT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS orders(
+  id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  user_id    VARCHAR(40) NOT NULL,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  total      DECIMAL(12,2) NOT NULL,
+  CONSTRAINT fk_order_user FOREIGN KEY (user_id) REFERENCES users(id)
+);
+
+CREATE TABLE IF NOT EXISTS order_items(
+  id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  order_id   BIGINT NOT NULL,
+  product_id VARCHAR(40) NOT NULL,
+  qty        INT NOT NULL,
+  price      DECIMAL(12,2) NOT NULL,
+  CONSTRAINT fk_item_order FOREIGN KEY (order_id)  REFERENCES orders(id),
+  CONSTRAINT fk_item_prod  FOREIGN KEY (product_id) REFERENCES products(id)
+);
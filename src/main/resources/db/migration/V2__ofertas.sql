@@ -0,0 +1,7 @@
+-- Ofertas por producto (antes ProductDao.ensureOfferSchema, en cada constructor del DAO)
+CREATE TABLE IF NOT EXISTS product_offers(
+  product_id  VARCHAR(40) PRIMARY KEY,
+  promo_price DECIMAL(12,2) NOT NULL,
+  valid_until DATE NOT NULL,
+  CONSTRAINT fk_offer_product FOREIGN KEY (product_id) REFERENCES products(id)
+);
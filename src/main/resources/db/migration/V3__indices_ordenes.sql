@@ -0,0 +1,3 @@
+-- Historial por usuario (más reciente primero) e items por orden
+CREATE INDEX IF NOT EXISTS idx_orders_user_id ON orders(user_id, id);
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items(order_id, id);
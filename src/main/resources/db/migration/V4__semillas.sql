@@ -0,0 +1,14 @@
+-- Datos mínimos solo en una instalación nueva (tablas vacías)
+INSERT INTO users(id, name, email)
+SELECT * FROM (VALUES
+  ('1', 'Rafael', 'rafael@example.com'),
+  ('2', 'Sofía',  'sofia@example.com')
+) AS s(id, name, email)
+WHERE NOT EXISTS (SELECT 1 FROM users);
+
+INSERT INTO products(id, name, descr, image_url, price, stock)
+SELECT * FROM (VALUES
+  ('p1', 'Figura Goku',   'SSJ Blue 15cm', CAST(NULL AS VARCHAR(500)),  499.00, 10),
+  ('p2', 'Carta Pikachu', 'Holo 1st ed',   CAST(NULL AS VARCHAR(500)), 1299.00,  5)
+) AS s(id, name, descr, image_url, price, stock)
+WHERE NOT EXISTS (SELECT 1 FROM products);
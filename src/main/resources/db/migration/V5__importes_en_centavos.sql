@@ -0,0 +1,28 @@
+-- Importes como centavos enteros (BIGINT) en lugar de DECIMAL(12,2):
+-- el código los lee con getLong, sin BigDecimal ni double por fila.
+-- Se puede volver a correr sobre un esquema a medio aplicar (H2 confirma cada ALTER):
+-- si la columna vieja ya se borró se vuelve a agregar vacía, el UPDATE no toca nada
+-- (price_cents ya estaba completo) y se borra otra vez.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS price_cents BIGINT;
+ALTER TABLE products ADD COLUMN IF NOT EXISTS price DECIMAL(12,2);
+UPDATE products SET price_cents = CAST(ROUND(price * 100) AS BIGINT) WHERE price IS NOT NULL;
+ALTER TABLE products ALTER COLUMN price_cents SET NOT NULL;
+ALTER TABLE products DROP COLUMN IF EXISTS price;
+
+ALTER TABLE product_offers ADD COLUMN IF NOT EXISTS promo_price_cents BIGINT;
+ALTER TABLE product_offers ADD COLUMN IF NOT EXISTS promo_price DECIMAL(12,2);
+UPDATE product_offers SET promo_price_cents = CAST(ROUND(promo_price * 100) AS BIGINT) WHERE promo_price IS NOT NULL;
+ALTER TABLE product_offers ALTER COLUMN promo_price_cents SET NOT NULL;
+ALTER TABLE product_offers DROP COLUMN IF EXISTS promo_price;
+
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS total_cents BIGINT;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS total DECIMAL(12,2);
+UPDATE orders SET total_cents = CAST(ROUND(total * 100) AS BIGINT) WHERE total IS NOT NULL;
+ALTER TABLE orders ALTER COLUMN total_cents SET NOT NULL;
+ALTER TABLE orders DROP COLUMN IF EXISTS total;
+
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS price_cents BIGINT;
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS price DECIMAL(12,2);
+UPDATE order_items SET price_cents = CAST(ROUND(price * 100) AS BIGINT) WHERE price IS NOT NULL;
+ALTER TABLE order_items ALTER COLUMN price_cents SET NOT NULL;
+ALTER TABLE order_items DROP COLUMN IF EXISTS price;
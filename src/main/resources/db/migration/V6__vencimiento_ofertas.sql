@@ -0,0 +1,11 @@
+-- Vencimiento de ofertas (OfferExpiryScheduler): índice para encontrar las vencidas
+-- sin recorrer la tabla, y archivo de las que se retiran.
+CREATE INDEX IF NOT EXISTS idx_offers_valid_until ON product_offers(valid_until);
+
+CREATE TABLE IF NOT EXISTS product_offers_archive(
+  id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  product_id        VARCHAR(40) NOT NULL,
+  promo_price_cents BIGINT NOT NULL,
+  valid_until       DATE NOT NULL,
+  archived_at       TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,7 @@
+-- Sesiones compartidas entre nodos (JdbcSessionStore, -Dsession.store=jdbc)
+CREATE TABLE IF NOT EXISTS sessions(
+  id         VARCHAR(32) PRIMARY KEY,
+  data       VARCHAR(4000) NOT NULL,
+  expires_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_sessions_expires_at ON sessions(expires_at);
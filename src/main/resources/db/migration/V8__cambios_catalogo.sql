@@ -0,0 +1,10 @@
+-- Registro de cambios del catálogo (CDC): cada escritura de products/product_offers
+-- agrega aquí el id afectado en la misma transacción. CatalogFollower lo recorre por seq
+-- para mantener la réplica local de cada nodo.
+CREATE TABLE IF NOT EXISTS catalog_changes(
+  seq        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  kind       VARCHAR(16) NOT NULL,
+  product_id VARCHAR(40) NOT NULL,
+  changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_catalog_changes_changed_at ON catalog_changes(changed_at);
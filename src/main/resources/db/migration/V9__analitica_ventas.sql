@@ -0,0 +1,66 @@
+-- Resúmenes de ventas (SalesAnalytics): se suman en la misma transacción que order_items,
+-- así los reportes leen unas pocas filas por clave en vez de recorrer order_items.
+-- list_revenue_cents = unidades × precio de lista al vender; la diferencia con revenue_cents
+-- es lo descontado por ofertas.
+CREATE TABLE IF NOT EXISTS sales_hourly(
+  product_id         VARCHAR(40) NOT NULL,
+  bucket_start       TIMESTAMP NOT NULL,
+  units              BIGINT NOT NULL,
+  promo_units        BIGINT NOT NULL,
+  revenue_cents      BIGINT NOT NULL,
+  list_revenue_cents BIGINT NOT NULL,
+  min_price_cents    BIGINT NOT NULL,
+  max_price_cents    BIGINT NOT NULL,
+  PRIMARY KEY(product_id, bucket_start)
+);
+
+CREATE TABLE IF NOT EXISTS sales_daily(
+  product_id         VARCHAR(40) NOT NULL,
+  bucket_start       DATE NOT NULL,
+  units              BIGINT NOT NULL,
+  promo_units        BIGINT NOT NULL,
+  revenue_cents      BIGINT NOT NULL,
+  list_revenue_cents BIGINT NOT NULL,
+  min_price_cents    BIGINT NOT NULL,
+  max_price_cents    BIGINT NOT NULL,
+  PRIMARY KEY(product_id, bucket_start)
+);
+-- Ranking del día
+CREATE INDEX IF NOT EXISTS idx_sales_daily_day ON sales_daily(bucket_start);
+
+CREATE TABLE IF NOT EXISTS sales_totals(
+  product_id         VARCHAR(40) PRIMARY KEY,
+  units              BIGINT NOT NULL,
+  promo_units        BIGINT NOT NULL,
+  revenue_cents      BIGINT NOT NULL,
+  list_revenue_cents BIGINT NOT NULL,
+  min_price_cents    BIGINT NOT NULL,
+  max_price_cents    BIGINT NOT NULL
+);
+
+-- Carga inicial desde las órdenes existentes (una sola vez). El precio de lista histórico no
+-- se guardaba: se usa el actual, y cuenta como promo lo vendido por debajo de él.
+INSERT INTO sales_hourly
+SELECT oi.product_id, DATE_TRUNC('HOUR', o.created_at), SUM(oi.qty),
+       SUM(CASE WHEN oi.price_cents < p.price_cents THEN oi.qty ELSE 0 END),
+       SUM(oi.qty * oi.price_cents), SUM(oi.qty * p.price_cents),
+       MIN(oi.price_cents), MAX(oi.price_cents)
+FROM order_items oi
+JOIN orders o ON o.id = oi.order_id
+JOIN products p ON p.id = oi.product_id
+WHERE NOT EXISTS (SELECT 1 FROM sales_hourly)
+GROUP BY oi.product_id, DATE_TRUNC('HOUR', o.created_at);
+
+INSERT INTO sales_daily
+SELECT product_id, CAST(bucket_start AS DATE), SUM(units), SUM(promo_units),
+       SUM(revenue_cents), SUM(list_revenue_cents), MIN(min_price_cents), MAX(max_price_cents)
+FROM sales_hourly
+WHERE NOT EXISTS (SELECT 1 FROM sales_daily)
+GROUP BY product_id, CAST(bucket_start AS DATE);
+
+INSERT INTO sales_totals
+SELECT product_id, SUM(units), SUM(promo_units),
+       SUM(revenue_cents), SUM(list_revenue_cents), MIN(min_price_cents), MAX(max_price_cents)
+FROM sales_daily
+WHERE NOT EXISTS (SELECT 1 FROM sales_totals)
+GROUP BY product_id;
@@ -0,0 +1,118 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    CatalogCacheTest.MutableClock clock = new CatalogCacheTest.MutableClock();
+    AtomicLong dbLatencyMicros = new AtomicLong(1_000);
+
+    @Test
+    void cada_ip_tiene_su_cubeta_y_el_global_corta_a_todas() {
+        AdmissionControl.Config c = new AdmissionControl.Config();
+        c.writeRatePerClient = 1;
+        c.writeBurstPerClient = 3;
+        c.writeRate = 10;
+        c.writeBurst = 5;
+        c.maxConcurrentWrites = 100;
+        AdmissionControl ac = new AdmissionControl(c, dbLatencyMicros::get, clock);
+
+        for (int i = 0; i < 3; i++) assertNull(ac.admit("10.0.0.1", true));
+        AdmissionControl.Rejection r = ac.admit("10.0.0.1", true);
+        assertEquals(429, r.status);
+        assertEquals(AdmissionControl.Reason.CLIENT, r.reason);
+        assertEquals(1, r.retryAfterSeconds);
+        // Las lecturas tienen su propio presupuesto
+        assertNull(ac.admit("10.0.0.1", false));
+
+        // Otra IP entra hasta agotar el global (5 de ráfaga: quedan 2)
+        assertNull(ac.admit("10.0.0.2", true));
+        assertNull(ac.admit("10.0.0.2", true));
+        r = ac.admit("10.0.0.2", true);
+        assertEquals(AdmissionControl.Reason.GLOBAL, r.reason);
+
+        // Un segundo después: un token por IP y diez globales
+        clock.now = clock.now.plusSeconds(1);
+        assertNull(ac.admit("10.0.0.1", true));
+        assertNotNull(ac.admit("10.0.0.1", true));
+        assertEquals(2, ac.getRejected(true, AdmissionControl.Reason.CLIENT));
+        assertEquals(1, ac.getRejected(true, AdmissionControl.Reason.GLOBAL));
+        assertEquals(0, ac.getRejected(false, AdmissionControl.Reason.CLIENT));
+    }
+
+    @Test
+    void con_la_bd_lenta_las_escrituras_pasan_de_a_una_y_las_lecturas_siguen() {
+        AdmissionControl.Config c = new AdmissionControl.Config();
+        c.maxConcurrentWrites = 2;
+        c.dbLatencyThresholdMs = 100;
+        c.retryAfterSeconds = 3;
+        AdmissionControl ac = new AdmissionControl(c, dbLatencyMicros::get, clock);
+
+        assertNull(ac.admit("a", true));
+        assertNull(ac.admit("b", true));
+        AdmissionControl.Rejection r = ac.admit("c", true);
+        assertEquals(503, r.status);
+        assertEquals(3, r.retryAfterSeconds);
+        ac.done();
+        ac.done();
+
+        dbLatencyMicros.set(250_000);
+        assertNull(ac.admit("a", true));
+        assertEquals(AdmissionControl.Reason.SHED, ac.admit("b", true).reason);
+        assertTrue(ac.isShedding());
+        assertNull(ac.admit("b", false));
+        ac.done();
+
+        dbLatencyMicros.set(20_000);
+        assertNull(ac.admit("a", true));
+        assertNull(ac.admit("b", true));
+        assertFalse(ac.isShedding());
+        assertEquals(2, ac.getWritesInFlight());
+        assertEquals(2, ac.getRejected(true, AdmissionControl.Reason.SHED));
+    }
+
+    @Test
+    void con_el_mapa_lleno_salen_las_ips_inactivas_y_no_se_reinicia_a_las_limitadas() {
+        AdmissionControl.Config c = new AdmissionControl.Config();
+        c.writeRatePerClient = 1;
+        c.writeBurstPerClient = 2;
+        c.maxClients = 3;
+        AdmissionControl ac = new AdmissionControl(c, dbLatencyMicros::get, clock);
+
+        // "a" agota su ráfaga y sigue escribiendo; "b" y "c" escriben una vez
+        assertNull(ac.admit("a", true));
+        ac.done();
+        assertNull(ac.admit("a", true));
+        ac.done();
+        assertNotNull(ac.admit("a", true));
+        clock.now = clock.now.plusSeconds(1);
+        assertNull(ac.admit("a", true));
+        ac.done();
+        assertNull(ac.admit("b", true));
+        ac.done();
+        assertNull(ac.admit("c", true));
+        ac.done();
+
+        // Un segundo después "b" y "c" ya recargaron su cubeta: salen ellas, no "a"
+        clock.now = clock.now.plusSeconds(1);
+        assertNull(ac.admit("d", true));
+        ac.done();
+        assertEquals(2, ac.getEvictedClients());
+        assertEquals(2, ac.getClients());
+        assertNull(ac.admit("a", true));
+        ac.done();
+        assertNotNull(ac.admit("a", true), "a conserva su límite");
+
+        // Todas activas: sale solo la más cercana a llenarse ("d" o "e"), no el mapa entero
+        assertNull(ac.admit("e", true));
+        ac.done();
+        assertNull(ac.admit("f", true));
+        ac.done();
+        assertEquals(3, ac.getEvictedClients());
+        assertEquals(3, ac.getClients());
+        assertNotNull(ac.admit("a", true));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.time.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogCacheTest {
+
+    /** Reloj que se puede adelantar a mano. */
+    static class MutableClock extends Clock {
+        Instant now = Instant.parse("2025-03-10T12:00:00Z");
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+
+    MutableClock clock = new MutableClock();
+    AtomicInteger loads = new AtomicInteger();
+
+    CatalogCache cacheWithOffer(String validUntil) {
+        return new CatalogCache(() -> {
+            loads.incrementAndGet();
+            Product p = new Product("p1", "Figura", null, null, 10000, 1);
+            p.setPromoCents(8000);
+            p.setValidUntil(validUntil);
+            return List.of(p, new Product("p2", "Carta", null, null, 5000, 1));
+        }, clock);
+    }
+
+    @Test
+    void la_foto_caduca_cuando_vence_la_oferta() {
+        CatalogCache cache = cacheWithOffer("2025-03-11");
+
+        assertEquals(8000, cache.get().byId.get("p1").getPromoCents());
+        cache.get();
+        assertEquals(1, loads.get());
+
+        // Último día de vigencia: sigue en caché
+        clock.now = Instant.parse("2025-03-11T23:59:00Z");
+        cache.get();
+        assertEquals(1, loads.get());
+
+        // Al día siguiente la foto se rearma sin la oferta, sin recargar
+        CatalogCache.Snapshot before = cache.get();
+        clock.now = Instant.parse("2025-03-12T00:00:00Z");
+        CatalogCache.Snapshot after = cache.get();
+        assertFalse(after.byId.get("p1").hasPromo());
+        assertTrue(before.byId.get("p1").hasPromo()); // la foto anterior no se toca
+        assertTrue(after.version > before.version);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    void patch_reemplaza_solo_las_filas_dadas() {
+        CatalogCache cache = cacheWithOffer("2025-04-01");
+        cache.patch(() -> fail("sin foto no se lee nada"));
+        CatalogCache.Snapshot s1 = cache.get();
+
+        Product p2 = new Product("p2", "Carta", null, null, 5000, 0);
+        p2.setPromoCents(4000);
+        p2.setValidUntil("2025-03-20");
+        cache.patch(() -> List.of(p2, new Product("p3", "Álbum", null, null, 100, 1)));
+
+        CatalogCache.Snapshot s2 = cache.get();
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getPatches());
+        assertTrue(s2.version > s1.version);
+        assertEquals(List.of("p2", "p1", "p3"), s2.products.stream().map(Product::getId).toList());
+        assertEquals(4000, s2.byId.get("p2").getPromoCents());
+        assertSame(s1.byId.get("p1"), s2.byId.get("p1"));
+        // La oferta nueva vence antes que la de p1: la foto caduca con ella
+        assertEquals(Instant.parse("2025-03-21T00:00:00Z").toEpochMilli(), s2.expiresAtMillis);
+    }
+
+    @Test
+    void invalidate_fuerza_recarga() {
+        CatalogCache cache = cacheWithOffer("2025-04-01");
+        long v1 = cache.get().version;
+        cache.invalidate();
+        long v2 = cache.get().version;
+        assertTrue(v2 > v1);
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogFollowerTest {
+
+    CatalogCacheTest.MutableClock clock = new CatalogCacheTest.MutableClock();
+    ConnectionPool pool;
+    CatalogFollower.Config cfg = new CatalogFollower.Config();
+
+    @BeforeEach
+    void setup() throws Exception {
+        pool = new ConnectionPool("jdbc:h2:mem:cdc" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "sa", "", new ConnectionPool.Config());
+        try (Connection c = pool.getConnection()) {
+            Migrations.migrate(c); // productos p1 y p2
+        }
+        cfg.intervalMs = 3_600_000; // en los tests se llama a poll() a mano
+        cfg.gapTimeoutMs = 1_000;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            st.execute("SHUTDOWN");
+        }
+        pool.close();
+    }
+
+    @Test
+    void la_replica_de_otro_nodo_recibe_ofertas_y_cambios_de_producto() {
+        ProductDao nodeA = new ProductDao(pool, clock);
+        ProductDao nodeB = new ProductDao(pool, clock);
+        try (CatalogFollower follower = nodeB.enableFollower(cfg)) {
+            assertFalse(nodeB.findById("p1").orElseThrow().hasPromo());
+            long v0 = nodeB.catalogVersion();
+
+            nodeA.saveOrUpdateOffer("p1", 39_900, "2025-12-31");
+            Product renamed = nodeA.findById("p2").orElseThrow();
+            renamed.setName("Carta Charizard");
+            nodeA.update(renamed);
+
+            assertEquals(2, follower.poll());
+            assertEquals(39_900, nodeB.findById("p1").orElseThrow().getPromoCents());
+            assertEquals("p2", nodeB.findAllFiltered("charizard").get(0).getId());
+            assertNotEquals(v0, nodeB.catalogVersion());
+
+            nodeA.deleteOffer("p1");
+            follower.poll();
+            assertFalse(nodeB.findById("p1").orElseThrow().hasPromo());
+            assertEquals(0, follower.poll()); // nada nuevo
+        }
+    }
+
+    @Test
+    void espera_los_huecos_de_transacciones_lentas_y_descarta_las_deshechas() throws Exception {
+        ProductDao nodeA = new ProductDao(pool, clock);
+        ProductDao nodeB = new ProductDao(pool, clock);
+        try (CatalogFollower follower = nodeB.enableFollower(cfg);
+             Connection slow = pool.getConnection()) {
+            // Una transacción toma su seq y confirma después que otra posterior
+            slow.setAutoCommit(false);
+            try (PreparedStatement ps = slow.prepareStatement(
+                    "MERGE INTO product_offers(product_id, promo_price_cents, valid_until) KEY(product_id) VALUES ('p2', 99900, DATE '2025-12-31')")) {
+                ps.executeUpdate();
+            }
+            CatalogChanges.record(slow, CatalogChanges.OFFER, "p2");
+            nodeA.saveOrUpdateOffer("p1", 39_900, "2025-12-31");
+
+            follower.poll();
+            assertTrue(nodeB.findById("p1").orElseThrow().hasPromo());
+            assertEquals(1, follower.getPendingGaps());
+
+            slow.commit();
+            follower.poll();
+            assertEquals(99_900, nodeB.findById("p2").orElseThrow().getPromoCents());
+            assertEquals(0, follower.getPendingGaps());
+
+            // Una transacción deshecha deja un hueco que se abandona tras gapTimeoutMs
+            CatalogChanges.record(slow, CatalogChanges.OFFER, "p2");
+            slow.rollback();
+            nodeA.deleteOffer("p1");
+            follower.poll();
+            assertEquals(1, follower.getPendingGaps());
+            clock.now = clock.now.plusMillis(cfg.gapTimeoutMs);
+            follower.poll();
+            assertEquals(0, follower.getPendingGaps());
+            assertEquals(1, follower.getGapsSkipped());
+            assertFalse(nodeB.findById("p1").orElseThrow().hasPromo());
+        }
+    }
+}
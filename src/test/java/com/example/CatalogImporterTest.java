@@ -0,0 +1,95 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.io.StringReader;
+import java.sql.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogImporterTest {
+
+    Connection conn;
+    SingleConnectionDataSource ds;
+    ProductDao dao;
+
+    @BeforeEach
+    void setup() throws Exception {
+        conn = DriverManager.getConnection("jdbc:h2:mem:imp" + System.nanoTime() + ";MODE=PostgreSQL", "sa", "");
+        Migrations.migrate(conn);
+        ds = new SingleConnectionDataSource(conn);
+        dao = new ProductDao(ds);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    void csv_inserta_actualiza_y_crea_ofertas_por_lotes() throws Exception {
+        String csv = """
+                id,name,descr,image_url,price,stock,promo_price,valid_until
+                p1,Figura Goku,"SSJ Blue, 15cm",,450.00,8,,
+                n1,"Póster \"\"Sofía\"\"",Edición limitada,,99.90,3,79.90,2099-12-31
+                n2,Llavero,,,49,50,,
+
+                n3,Funko,,,199.5,1,150,2099-01-01
+                """;
+        CatalogImporter.Result r = new CatalogImporter(ds, 2).importCsv(new StringReader(csv));
+        assertEquals(4, r.products);
+        assertEquals(2, r.offers);
+        assertEquals(2, r.batches);
+
+        dao.reloadCatalog();
+        assertEquals(5, dao.findAll().size());
+        Product p1 = dao.findById("p1").orElseThrow();
+        assertEquals("SSJ Blue, 15cm", p1.getDescr());
+        assertEquals(45000, p1.getPriceCents());
+        Product n1 = dao.findById("n1").orElseThrow();
+        assertEquals("Póster \"Sofía\"", n1.getName());
+        assertEquals(7990, n1.getPromoCents());
+        assertEquals(List.of("n1"), dao.findAllFiltered("sofia").stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void jsonl_usa_el_formato_de_la_api() throws Exception {
+        String jsonl = """
+                {"id":"j1","name":"Carta Mewtwo","price":300.0,"stock":2}
+                {"id":"j2","name":"Carta Charizard","price":900.0,"stock":1,"promoPrice":850.0,"validUntil":"2099-05-01"}
+                """;
+        CatalogImporter.Result r = new CatalogImporter(ds, 1000).importJsonLines(new StringReader(jsonl));
+        assertEquals(2, r.products);
+        assertEquals(1, r.batches);
+        dao.reloadCatalog();
+        assertEquals(85000, dao.findById("j2").orElseThrow().getPromoCents());
+    }
+
+    @Test
+    void linea_invalida_aborta_con_numero_de_linea_y_conserva_lotes_previos() {
+        String csv = """
+                id,name,descr,image_url,price,stock
+                a1,Uno,,,10,1
+                a2,Dos,,,no-es-numero,1
+                """;
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new CatalogImporter(ds, 1).importCsv(new StringReader(csv)));
+        assertTrue(e.getMessage().contains("Línea 3"));
+        dao.reloadCatalog();
+        assertTrue(dao.findById("a1").isPresent());
+        assertTrue(dao.findById("a2").isEmpty());
+    }
+
+    @Test
+    void createAll_inserta_las_lineas_en_un_batch() {
+        long orderId = new OrderDao(ds).create("1", 0);
+        OrderItem a = new OrderItem(0, orderId, "p1", 2, 49900);
+        OrderItem b = new OrderItem(0, orderId, "p2", 1, 129900);
+        OrderItemDao items = new OrderItemDao(ds);
+        items.createAll(orderId, List.of(a, b));
+
+        List<OrderItem> saved = items.findByOrder(orderId);
+        assertEquals(2, saved.size());
+        assertEquals("Carta Pikachu", saved.get(1).getProductName());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutServiceTest {
+
+    ConnectionPool pool;
+    ProductDao productDao;
+    OrderItemDao orderItemDao;
+    CheckoutService checkout;
+
+    @BeforeEach
+    void setup() throws Exception {
+        ConnectionPool.Config cfg = new ConnectionPool.Config();
+        cfg.maxSize = 8;
+        pool = new ConnectionPool("jdbc:h2:mem:co" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "sa", "", cfg);
+        try (Connection c = pool.getConnection()) {
+            Migrations.migrate(c); // users 1 y 2, productos p1 (stock 10) y p2 (stock 5)
+        }
+        productDao = new ProductDao(pool);
+        UserDao userDao = new UserDao(pool);
+        OrderDao orderDao = new OrderDao(pool);
+        orderItemDao = new OrderItemDao(pool);
+        checkout = new CheckoutService(pool, userDao, orderDao, orderItemDao, productDao);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            st.execute("SHUTDOWN");
+        }
+        pool.close();
+    }
+
+    private int stock(String id) {
+        return productDao.findById(id).orElseThrow().getStock();
+    }
+
+    private long count(String table) throws SQLException {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    void checkout_descuenta_stock_y_usa_precio_de_oferta() {
+        productDao.saveOrUpdateOffer("p1", 39900, LocalDate.now().plusDays(1).toString());
+        productDao.findAllFiltered("goku"); // foto e índice cargados
+        long misses = productDao.catalogStats().getMisses();
+
+        long orderId = checkout.checkout("1", List.of(
+                new CheckoutService.Line("p1", 2),
+                new CheckoutService.Line("p2", 1),
+                new CheckoutService.Line("p1", 1)));
+
+        assertEquals(7, stock("p1"));
+        assertEquals(4, stock("p2"));
+        // El stock nuevo llega parcheando la foto: sin recargar el catálogo
+        assertEquals(misses, productDao.catalogStats().getMisses());
+
+        List<OrderItem> items = orderItemDao.findByOrder(orderId);
+        assertEquals(2, items.size());
+        // 3 x 399.00 (oferta) + 1 x 1299.00
+        assertEquals(249600, new OrderDao(pool).findById(orderId).orElseThrow().getTotalCents());
+    }
+
+    @Test
+    void oferta_vencida_no_aplica() {
+        productDao.saveOrUpdateOffer("p1", 100, LocalDate.now().minusDays(1).toString());
+        long orderId = checkout.checkout("1", List.of(new CheckoutService.Line("p1", 1)));
+        assertEquals(49900, orderItemDao.findByOrder(orderId).get(0).getPriceCents());
+    }
+
+    @Test
+    void sin_stock_revierte_todo() throws Exception {
+        assertThrows(OutOfStockException.class, () -> checkout.checkout("1", List.of(
+                new CheckoutService.Line("p1", 1),
+                new CheckoutService.Line("p2", 6))));
+        assertEquals(10, stock("p1"));
+        assertEquals(5, stock("p2"));
+        assertEquals(0, count("orders"));
+        assertEquals(0, count("order_items"));
+    }
+
+    @Test
+    void usuario_o_producto_inexistente() {
+        assertThrows(IllegalArgumentException.class,
+                () -> checkout.checkout("nadie", List.of(new CheckoutService.Line("p1", 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> checkout.checkout("1", List.of(new CheckoutService.Line("zz", 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> checkout.checkout("1", List.of(new CheckoutService.Line("p1", 0))));
+        assertEquals(10, stock("p1"));
+    }
+
+    @Test
+    void reintenta_conflictos_de_bloqueo_pero_no_el_timeout_del_pool() {
+        assertTrue(CheckoutService.isRetryable(new SQLException("deadlock", "40001")));
+        assertTrue(CheckoutService.isRetryable(new SQLException("lock", "HYT00", 50200)));
+        assertFalse(CheckoutService.isRetryable(new SQLTimeoutException("Timeout esperando conexión")));
+    }
+
+    @Test
+    void compradores_concurrentes_no_sobrevenden() throws Exception {
+        int buyers = 200;
+        ExecutorService exec = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger sinStock = new AtomicInteger();
+        List<Future<?>> fs = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            String user = (i % 2 == 0) ? "1" : "2";
+            // mitad compra p2+p1, mitad p1+p2: el orden fijo de bloqueo evita deadlocks
+            List<CheckoutService.Line> lines = (i % 2 == 0)
+                    ? List.of(new CheckoutService.Line("p2", 1), new CheckoutService.Line("p1", 1))
+                    : List.of(new CheckoutService.Line("p1", 1), new CheckoutService.Line("p2", 1));
+            fs.add(exec.submit(() -> {
+                start.await();
+                try {
+                    checkout.checkout(user, lines);
+                    ok.incrementAndGet();
+                } catch (OutOfStockException e) {
+                    sinStock.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : fs) f.get(60, TimeUnit.SECONDS);
+        exec.shutdown();
+
+        assertEquals(5, ok.get());
+        assertEquals(buyers - 5, sinStock.get());
+        assertEquals(0, stock("p2"));
+        assertEquals(5, stock("p1"));
+        assertEquals(5, count("orders"));
+        assertEquals(10, count("order_items"));
+    }
+}
@@ -0,0 +1,192 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    ConnectionPool pool;
+
+    @BeforeEach
+    void setup() {
+        ConnectionPool.Config cfg = new ConnectionPool.Config();
+        cfg.minSize = 1;
+        cfg.maxSize = 2;
+        cfg.acquireTimeoutMs = 200;
+        pool = new ConnectionPool("jdbc:h2:mem:pool" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "", cfg);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void close_devuelve_la_conexion_al_pool_y_la_reutiliza() throws Exception {
+        try (Connection c = pool.getConnection()) {
+            assertEquals(1, pool.getActive());
+            assertTrue(c.isValid(1));
+        }
+        assertEquals(0, pool.getActive());
+        assertEquals(1, pool.getIdle());
+
+        try (Connection c = pool.getConnection()) {
+            assertEquals(1, pool.getTotal());
+            assertFalse(c.isClosed());
+        }
+        assertEquals(2, pool.getAcquireLatency().count());
+    }
+
+    @Test
+    void timeout_si_el_pool_esta_agotado() throws Exception {
+        List<Connection> held = new ArrayList<>();
+        held.add(pool.getConnection());
+        held.add(pool.getConnection());
+
+        assertThrows(SQLTimeoutException.class, () -> pool.getConnection());
+        assertEquals(1, pool.getTimeouts());
+
+        for (Connection c : held) c.close();
+        try (Connection c = pool.getConnection()) {
+            assertFalse(c.isClosed());
+        }
+    }
+
+    @Test
+    void la_espera_reciente_sube_con_el_pool_agotado_y_decae_sola() throws Exception {
+        ConnectionPool.Config cfg = new ConnectionPool.Config();
+        cfg.minSize = 1;
+        cfg.maxSize = 1;
+        cfg.acquireTimeoutMs = 200;
+        cfg.latencyHalfLifeMs = 50;
+        try (ConnectionPool small = new ConnectionPool("jdbc:h2:mem:wait" + System.nanoTime(), "sa", "", cfg);
+             Connection held = small.getConnection()) {
+            assertTrue(held.isValid(1));
+            // Tiempo prestada no cuenta: solo la espera de quien pide
+            Thread.sleep(100);
+            assertTrue(small.getRecentLatencyMicros() < 1_000);
+
+            assertThrows(SQLTimeoutException.class, small::getConnection);
+            long afterTimeout = small.getRecentLatencyMicros();
+            assertTrue(afterTimeout >= 200_000 / 8 / 2, "espera reciente " + afterTimeout);
+
+            // Sin pedidos nuevos baja sola (vida media de 50 ms)
+            Thread.sleep(300);
+            assertTrue(small.getRecentLatencyMicros() < afterTimeout / 16);
+        }
+    }
+
+    @Test
+    void conexion_devuelta_no_se_puede_usar() throws Exception {
+        Connection c = pool.getConnection();
+        c.close();
+        assertTrue(c.isClosed());
+        assertThrows(SQLException.class, c::createStatement);
+    }
+
+    @Test
+    void transaccion_abierta_se_revierte_al_devolver() throws Exception {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE t(id INT)");
+        }
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            c.setAutoCommit(false);
+            st.execute("INSERT INTO t VALUES (1)");
+        }
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM t")) {
+            assertTrue(c.getAutoCommit());
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void hilos_concurrentes_nunca_superan_el_maximo() throws Exception {
+        ExecutorService exec = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            results.add(exec.submit(() -> {
+                try (Connection c = pool.getConnection(); Statement st = c.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT 1")) {
+                    rs.next();
+                    return pool.getActive();
+                } catch (SQLTimeoutException e) {
+                    return 0;
+                }
+            }));
+        }
+        for (Future<Integer> f : results) assertTrue(f.get() <= 2);
+        exec.shutdown();
+        assertTrue(pool.getTotal() <= 2);
+    }
+
+    @Test
+    void mismo_sql_se_prepara_una_sola_vez() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            try (Connection c = pool.getConnection();
+                 PreparedStatement ps = c.prepareStatement("SELECT ? + 1")) {
+                ps.setInt(1, i);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    assertEquals(i + 1, rs.getInt(1));
+                }
+                assertSame(c, ps.getConnection());
+            }
+        }
+        assertEquals(1, pool.getStatementParses());
+        assertEquals(4, pool.getStatementReuses());
+        assertEquals(1, pool.getStatementsCached());
+
+        // Los límites que puso un uso no pasan al siguiente
+        try (Connection c = pool.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT ? + 1")) {
+                ps.setMaxRows(5);
+                ps.setQueryTimeout(7);
+                ps.setFetchSize(3);
+            }
+            try (PreparedStatement ps = c.prepareStatement("SELECT ? + 1")) {
+                assertEquals(0, ps.getMaxRows());
+                assertEquals(0, ps.getQueryTimeout());
+                assertNotEquals(3, ps.getFetchSize()); // H2 informa su valor por defecto
+                assertThrows(SQLException.class, ps::executeQuery); // sin el parámetro de antes
+            }
+        }
+        assertEquals(1, pool.getStatementParses());
+
+        // Al cerrar el pool se cierran también los statements de cada conexión
+        pool.close();
+        assertEquals(0, pool.getStatementsCached());
+    }
+
+    @Test
+    void cache_de_statements_acotado_y_sin_compartir_uno_abierto() throws Exception {
+        ConnectionPool.Config cfg = new ConnectionPool.Config();
+        cfg.minSize = 1;
+        cfg.maxSize = 1;
+        cfg.statementCacheSize = 2;
+        try (ConnectionPool small = new ConnectionPool("jdbc:h2:mem:stmt" + System.nanoTime(), "sa", "", cfg);
+             Connection c = small.getConnection()) {
+            try (PreparedStatement a = c.prepareStatement("SELECT 1");
+                 PreparedStatement b = c.prepareStatement("SELECT 1")) {
+                // el mismo SQL abierto dos veces: el segundo no sale del caché
+                assertNotSame(a, b);
+                assertTrue(a.executeQuery().next());
+                assertTrue(b.executeQuery().next());
+            }
+            c.prepareStatement("SELECT 2").close();
+            c.prepareStatement("SELECT 3").close();
+            assertEquals(1, small.getStatementEvictions());
+
+            PreparedStatement closed = c.prepareStatement("SELECT 3");
+            closed.close();
+            assertTrue(closed.isClosed());
+            assertThrows(SQLException.class, closed::executeQuery);
+        }
+    }
+}
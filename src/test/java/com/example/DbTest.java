@@ -0,0 +1,72 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbTest {
+
+    @Test
+    void los_perfiles_arman_la_url_y_respetan_lo_que_trae_db_url() {
+        Db.Config durable = Db.Config.profile("durable");
+        assertEquals("jdbc:h2:./data/collectibles;MODE=PostgreSQL;CACHE_SIZE=32768;WRITE_DELAY=0;TRACE_LEVEL_FILE=1;"
+                + "LOCK_TIMEOUT=5000;RETENTION_TIME=45000;MAX_COMPACT_TIME=2000;AUTO_COMPACT_FILL_RATE=90", durable.jdbcUrl());
+
+        Db.Config server = Db.Config.profile("server");
+        server.serverHost = "db1";
+        assertTrue(server.jdbcUrl().startsWith("jdbc:h2:tcp://db1:9092/./data/collectibles;MODE=PostgreSQL;"));
+        assertEquals(20, server.pool.maxSize);
+
+        // Con db.url explícita solo se agregan los ajustes que no trae
+        Db.Config custom = Db.Config.profile("embedded");
+        custom.url = "jdbc:h2:mem:x;MODE=PostgreSQL;write_delay=0";
+        String url = custom.jdbcUrl();
+        assertTrue(url.startsWith("jdbc:h2:mem:x;MODE=PostgreSQL;write_delay=0;CACHE_SIZE=65536;TRACE_LEVEL_FILE=0;"));
+        assertFalse(url.contains("WRITE_DELAY=500"));
+
+        assertThrows(IllegalArgumentException.class, () -> Db.Config.profile("rapido"));
+    }
+
+    @Test
+    void el_informe_muestra_los_valores_que_usa_h2() throws Exception {
+        Db.Config c = Db.Config.profile("durable");
+        c.url = "jdbc:h2:mem:db" + System.nanoTime();
+        c.lockTimeoutMs = 1_234;
+        String url = c.jdbcUrl();
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            Map<String, String> eff = Db.effectiveSettings(conn);
+            assertEquals("0", eff.get("WRITE_DELAY"));
+            assertEquals("32768", eff.get("CACHE_SIZE"));
+            assertEquals("1234", eff.get("LOCK_TIMEOUT"));
+
+            String report = Db.report(c, url, eff);
+            assertTrue(report.startsWith("Base de datos (perfil durable)"));
+            assertTrue(report.contains("MAX_COMPACT_TIME=2000"));
+        }
+    }
+
+    @Test
+    void el_servidor_tcp_crea_su_bd_en_local_y_no_acepta_bases_nuevas() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("h2srv");
+        Db.Config c = Db.Config.profile("server");
+        c.path = dir.resolve("catalogo").toString();
+        try (java.net.ServerSocket free = new java.net.ServerSocket(0)) {
+            c.serverPort = free.getLocalPort();
+        }
+        Object server = Db.startServer(c);
+        try {
+            try (Connection conn = DriverManager.getConnection(c.jdbcUrl(), c.user, c.password)) {
+                assertTrue(conn.isValid(1));
+            }
+            // Una ruta que no existe no se crea por TCP
+            Db.Config other = Db.Config.profile("server");
+            other.serverPort = c.serverPort;
+            other.path = dir.resolve("otra").toString();
+            assertThrows(SQLException.class, () -> DriverManager.getConnection(other.jdbcUrl(), "sa", "").close());
+        } finally {
+            server.getClass().getMethod("stop").invoke(server);
+        }
+    }
+}
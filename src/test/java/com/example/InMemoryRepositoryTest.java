@@ -0,0 +1,21 @@
+package com.example;
+
+/** Contrato de repositorios sobre el backend en memoria. */
+class InMemoryRepositoryTest extends RepositoryContract {
+
+    @Override
+    void createRepositories() {
+        InMemoryProductRepository catalog = new InMemoryProductRepository();
+        catalog.insert(new Product("p1", "Figura Goku", "SSJ Blue 15cm", null, 49900, 10));
+        catalog.insert(new Product("p2", "Carta Pikachu", "Holo 1st ed", null, 129900, 5));
+
+        InMemoryUserRepository userRepo = new InMemoryUserRepository();
+        userRepo.create(new User("1", "Rafael", "rafael@example.com"));
+        userRepo.create(new User("2", "Sofía", "sofia@example.com"));
+
+        products = catalog;
+        users = userRepo;
+        orderItems = new InMemoryOrderItemRepository(catalog);
+        orders = new InMemoryOrderRepository(userRepo, orderItems);
+    }
+}
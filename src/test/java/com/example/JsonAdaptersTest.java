@@ -0,0 +1,43 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonAdaptersTest {
+
+    @Test
+    void product_ida_y_vuelta() {
+        Product p = new Product("p1", "Figura \"Goku\"", "SSJ Blue", null, 49900, 10);
+        p.setPromoCents(39950);
+        p.setValidUntil("2030-01-31");
+
+        String json = JsonAdapters.GSON.toJson(p);
+        assertEquals("{\"id\":\"p1\",\"name\":\"Figura \\\"Goku\\\"\",\"descr\":\"SSJ Blue\",\"imageUrl\":null,"
+                + "\"price\":499.00,\"stock\":10,\"promoPrice\":399.50,\"validUntil\":\"2030-01-31\"}", json);
+
+        Product back = JsonAdapters.GSON.fromJson(json, Product.class);
+        assertEquals(p.toString(), back.toString());
+    }
+
+    @Test
+    void product_sin_oferta_omite_campos_de_oferta() {
+        String json = JsonAdapters.GSON.toJson(new Product("p2", "Carta", null, null, 1000, 1));
+        assertFalse(json.contains("promoPrice"));
+        assertFalse(JsonAdapters.GSON.fromJson(json, Product.class).hasPromo());
+    }
+
+    @Test
+    void order_e_item_conservan_decimales_exactos() {
+        Order o = new Order(7, "1", 179850, LocalDateTime.of(2025, 3, 1, 10, 30));
+        Order back = JsonAdapters.GSON.fromJson(JsonAdapters.GSON.toJson(o), Order.class);
+        assertEquals(179850, back.getTotalCents());
+        assertEquals(o.getCreatedAt(), back.getCreatedAt());
+
+        OrderItem it = new OrderItem(1, 7, "p1", 3, 49950);
+        String json = JsonAdapters.GSON.toJson(it);
+        assertTrue(json.contains("\"subtotal\":1498.50"));
+        assertEquals(149850, JsonAdapters.GSON.fromJson(json, OrderItem.class).getSubtotalCents());
+    }
+}
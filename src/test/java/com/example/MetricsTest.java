@@ -0,0 +1,46 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @BeforeAll
+    static void rutas() {
+        Metrics.routePatterns(List.of(
+                new Metrics.RoutePattern("GET", "/"),
+                new Metrics.RoutePattern("GET", "/products/:id"),
+                new Metrics.RoutePattern("GET", "/api/*")));
+    }
+
+    @Test
+    void agrupa_por_patron_de_ruta() {
+        assertEquals("/products/:id", Metrics.routeOf("GET", "/products/p1"));
+        assertEquals("/products/:id", Metrics.routeOf("GET", "/products/p2/"));
+        assertEquals("/", Metrics.routeOf("GET", "/"));
+        assertEquals("/products/:id", Metrics.routeOf("GET", "//products//p3"));
+        assertEquals("/api/*", Metrics.routeOf("GET", "/api/orders/7"));
+        assertEquals("/api/*", Metrics.routeOf("GET", "/api"));
+        assertEquals(Metrics.UNMATCHED, Metrics.routeOf("GET", "/products/p1/reviews"));
+        assertEquals(Metrics.UNMATCHED, Metrics.routeOf("GET", "/productsx/p1"));
+        assertEquals(Metrics.UNMATCHED, Metrics.routeOf("POST", "/products/p1"));
+        assertEquals(Metrics.UNMATCHED, Metrics.routeOf("GET", "/css/app.css"));
+    }
+
+    @Test
+    void exporta_contadores_e_histogramas_en_formato_prometheus() {
+        Metrics.record("GET", "/products/p1", 200, 2_000_000);
+        Metrics.record("GET", "/products/p2", 404, 300_000);
+        Metrics.daoTimer("TestDao", "find").stop(System.nanoTime());
+
+        String text = Metrics.scrape();
+        assertTrue(text.contains("http_requests_total{method=\"GET\",route=\"/products/:id\",status=\"200\"} 1"));
+        assertTrue(text.contains("http_requests_total{method=\"GET\",route=\"/products/:id\",status=\"404\"} 1"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/products/:id\",le=\"0.001\"} 1"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/products/:id\",le=\"+Inf\"} 2"));
+        assertTrue(text.contains("dao_call_duration_seconds_count{dao=\"TestDao\",method=\"find\"} 1"));
+        assertTrue(text.contains("# TYPE http_requests_in_flight gauge"));
+    }
+}
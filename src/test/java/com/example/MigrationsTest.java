@@ -0,0 +1,116 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MigrationsTest {
+
+    Connection conn;
+
+    @BeforeEach
+    void setup() throws Exception {
+        conn = DriverManager.getConnection("jdbc:h2:mem:mig" + System.nanoTime() + ";MODE=PostgreSQL", "sa", "");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        conn.close();
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    void instalacion_nueva_aplica_todo_una_sola_vez() throws Exception {
+        assertEquals(Migrations.SCRIPTS.size(), Migrations.migrate(conn));
+        assertEquals(2, count("SELECT COUNT(*) FROM products"));
+        assertEquals(Migrations.SCRIPTS.size(), count("SELECT COUNT(*) FROM schema_version"));
+
+        // esquema al día: no aplica nada ni vuelve a sembrar
+        try (Statement st = conn.createStatement()) {
+            st.execute("DELETE FROM products WHERE id='p2'");
+        }
+        assertEquals(0, Migrations.migrate(conn));
+        assertEquals(1, count("SELECT COUNT(*) FROM products"));
+    }
+
+    @Test
+    void bd_anterior_a_las_migraciones_se_registra_sin_duplicar_datos() throws Exception {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE users(id VARCHAR(40) PRIMARY KEY, name VARCHAR(120) NOT NULL, email VARCHAR(255) NOT NULL)");
+            st.execute("INSERT INTO users VALUES ('9','Ana','ana@example.com')");
+        }
+        Migrations.migrate(conn);
+        assertEquals(1, count("SELECT COUNT(*) FROM users"));
+        assertEquals(1, count("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME='PRODUCT_OFFERS'"));
+    }
+
+    @Test
+    void script_modificado_despues_de_aplicarse_falla() throws Exception {
+        Migrations.migrate(conn);
+        List<Migrations.Script> scripts = new ArrayList<>(Migrations.load(Migrations.SCRIPTS));
+        Migrations.Script v2 = scripts.get(1);
+        String edited = v2.sql + "\n-- cambio\n";
+        scripts.set(1, new Migrations.Script(v2.version, v2.name, edited, Migrations.checksum(edited)));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> Migrations.migrate(conn, scripts));
+        assertTrue(e.getMessage().contains("V2__ofertas.sql"));
+    }
+
+    @Test
+    void v5_a_medio_aplicar_se_completa() throws Exception {
+        Migrations.migrate(conn, Migrations.load(Migrations.SCRIPTS.subList(0, 4)));
+        // El nodo se cayó después de migrar products y de agregar una columna de product_offers
+        List<String> v5 = Migrations.statements(Migrations.load(List.of("V5__importes_en_centavos.sql")).get(0).sql);
+        try (Statement st = conn.createStatement()) {
+            for (String stmt : v5.subList(0, 6)) st.execute(stmt);
+        }
+
+        assertEquals(Migrations.SCRIPTS.size() - 4, Migrations.migrate(conn));
+        assertEquals(129_900, count("SELECT price_cents FROM products WHERE id='p2'"));
+        assertEquals(0, count("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE COLUMN_NAME IN ('PRICE','PROMO_PRICE','TOTAL')"));
+    }
+
+    @Test
+    void dos_nodos_migrando_a_la_vez_aplican_cada_script_una_vez() throws Exception {
+        String url = "jdbc:h2:mem:migconc" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try (Connection a = DriverManager.getConnection(url, "sa", "");
+             Connection b = DriverManager.getConnection(url, "sa", "")) {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<Integer> fa = pool.submit(() -> { start.await(); return Migrations.migrate(a); });
+            Future<Integer> fb = pool.submit(() -> { start.await(); return Migrations.migrate(b); });
+            start.countDown();
+
+            assertEquals(Migrations.SCRIPTS.size(), fa.get(30, TimeUnit.SECONDS) + fb.get(30, TimeUnit.SECONDS));
+            try (Statement st = a.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT (SELECT COUNT(*) FROM schema_version), (SELECT COUNT(*) FROM products),"
+                         + " (SELECT COUNT(*) FROM schema_lock WHERE owner IS NOT NULL)")) {
+                rs.next();
+                assertEquals(Migrations.SCRIPTS.size(), rs.getLong(1));
+                assertEquals(2, rs.getLong(2));
+                assertEquals(0, rs.getLong(3));
+            }
+            try (Statement st = a.createStatement()) {
+                st.execute("SHUTDOWN");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void parte_sentencias_e_ignora_comentarios() {
+        assertEquals(List.of("CREATE TABLE a(x INT)", "INSERT INTO a\nVALUES (1)"),
+                Migrations.statements("-- comentario\nCREATE TABLE a(x INT);\n\nINSERT INTO a\nVALUES (1);\n"));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void parse_y_format_son_exactos() {
+        assertEquals(49900, Money.parse("499"));
+        assertEquals(49950, Money.parse("499.5"));
+        assertEquals(7990, Money.parse(" 79.90 "));
+        assertEquals(1, Money.parse("0.01"));
+        assertEquals("499.50", Money.format(49950));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-1.20", Money.format(-120));
+        // 0.1 + 0.2 en centavos no arrastra error binario
+        assertEquals("0.30", Money.format(Money.parse("0.1") + Money.parse("0.2")));
+        assertEquals(149850, Money.times(49950, 3));
+    }
+
+    @Test
+    void parse_rechaza_lo_que_no_es_un_importe() {
+        for (String bad : new String[]{null, "", "-1", "1.999", "1.", ".5", "1e3", "1,000", "abc", "12345678901"}) {
+            assertThrows(IllegalArgumentException.class, () -> Money.parse(bad), String.valueOf(bad));
+        }
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfferExpirySchedulerTest {
+
+    ConnectionPool pool;
+
+    @BeforeEach
+    void setup() throws Exception {
+        pool = new ConnectionPool("jdbc:h2:mem:exp" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "sa", "", new ConnectionPool.Config());
+        try (Connection c = pool.getConnection()) {
+            Migrations.migrate(c); // productos p1 y p2
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            st.execute("SHUTDOWN");
+        }
+        pool.close();
+    }
+
+    private void offer(String id, long cents, String validUntil) throws SQLException {
+        try (Connection c = pool.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "MERGE INTO product_offers(product_id, promo_price_cents, valid_until) KEY(product_id) VALUES (?,?,?)")) {
+            ps.setString(1, id);
+            ps.setLong(2, cents);
+            ps.setDate(3, java.sql.Date.valueOf(validUntil));
+            ps.executeUpdate();
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    void archiva_y_borra_en_lotes_solo_las_vencidas() throws Exception {
+        CatalogCacheTest.MutableClock clock = new CatalogCacheTest.MutableClock(); // 2025-03-10 UTC
+        offer("p1", 8000, "2025-03-09");
+        offer("p2", 900, "2025-03-11");
+        AtomicInteger events = new AtomicInteger();
+        OfferExpiryScheduler.Config cfg = new OfferExpiryScheduler.Config();
+        cfg.batchSize = 1;
+        OfferExpiryScheduler s = new OfferExpiryScheduler(pool, cfg, clock, ids -> events.incrementAndGet());
+        try {
+            assertEquals(1, s.sweep());
+            assertEquals(1, events.get());
+            assertEquals(1, s.getTracked()); // queda 2025-03-11
+            assertEquals(1, count("SELECT COUNT(*) FROM product_offers_archive WHERE product_id='p1' AND promo_price_cents=8000"));
+            assertEquals(1, count("SELECT COUNT(*) FROM product_offers"));
+
+            // Último día de vigencia de p2: nada que retirar, sin evento
+            clock.now = Instant.parse("2025-03-11T23:59:00Z");
+            assertEquals(0, s.sweep());
+            assertEquals(1, events.get());
+
+            // Vence a medianoche
+            clock.now = Instant.parse("2025-03-12T00:00:00Z");
+            assertEquals(s.expiresAt(LocalDate.parse("2025-03-11")), clock.millis());
+            assertEquals(1, s.sweep());
+            assertEquals(0, count("SELECT COUNT(*) FROM product_offers"));
+            assertEquals(2, s.getExpired());
+            assertEquals(0, s.getTracked());
+        } finally {
+            s.close();
+        }
+    }
+
+    @Test
+    void al_arrancar_retira_lo_vencido_e_invalida_el_catalogo() throws Exception {
+        offer("p1", 8000, LocalDate.now().minusDays(1).toString());
+        ProductDao dao = new ProductDao(pool);
+        long v0 = dao.catalogVersion();
+
+        OfferExpiryScheduler s = dao.enableExpiry(new OfferExpiryScheduler.Config());
+        try {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (s.getSweeps() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertEquals(1, s.getExpired());
+            assertEquals(0, count("SELECT COUNT(*) FROM product_offers"));
+            assertTrue(dao.catalogVersion() > v0);
+
+            // Una oferta nueva agenda su fecha
+            dao.saveOrUpdateOffer("p2", 900, LocalDate.now().plusDays(3).toString());
+            assertEquals(1, s.getTracked());
+        } finally {
+            s.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfferWriteBehindTest {
+
+    ConnectionPool pool;
+    ProductDao dao;
+    OfferWriteBehind queue;
+    final String tomorrow = LocalDate.now().plusDays(1).toString();
+
+    @BeforeEach
+    void setup() throws Exception {
+        pool = new ConnectionPool("jdbc:h2:mem:wb" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "sa", "", new ConnectionPool.Config());
+        try (Connection c = pool.getConnection()) {
+            Migrations.migrate(c); // productos p1 y p2
+        }
+        dao = new ProductDao(pool);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (queue != null) queue.close();
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            st.execute("SHUTDOWN");
+        }
+        pool.close();
+    }
+
+    private OfferWriteBehind enable(int capacity, long flushIntervalMs) {
+        OfferWriteBehind.Config cfg = new OfferWriteBehind.Config();
+        cfg.capacity = capacity;
+        cfg.flushIntervalMs = flushIntervalMs;
+        cfg.enqueueTimeoutMs = 2_000;
+        return queue = dao.enableWriteBehind(cfg);
+    }
+
+    private Long promoInDb(String id) throws SQLException {
+        try (Connection c = pool.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT promo_price_cents FROM product_offers WHERE product_id=?")) {
+            ps.setString(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    @Test
+    void lecturas_ven_lo_pendiente_y_se_escribe_solo_el_ultimo_valor() throws Exception {
+        enable(100, 60_000); // sin vaciado periódico durante el test
+        long v0 = dao.catalogVersion();
+
+        dao.saveOrUpdateOffer("p1", 45000, tomorrow);
+        dao.saveOrUpdateOffer("p1", 39900, tomorrow);
+        dao.saveOrUpdateOffer("p2", 99900, tomorrow);
+        dao.deleteOffer("p2");
+
+        assertNull(promoInDb("p1"));
+        assertEquals(39900, dao.findById("p1").orElseThrow().getPromoCents());
+        assertFalse(dao.findById("p2").orElseThrow().hasPromo());
+        assertEquals(39900, dao.findPage(null, null, 10).getItems().stream()
+                .filter(p -> p.getId().equals("p1")).findFirst().orElseThrow().getPromoCents());
+        assertTrue(dao.catalogVersion() > v0);
+        assertEquals(2, queue.getCoalesced());
+
+        queue.close(); // vacía la cola
+        assertEquals(39900L, promoInDb("p1"));
+        assertNull(promoInDb("p2"));
+        assertEquals(0, queue.getPending());
+        assertEquals(1, queue.getBatches());
+        assertEquals(39900, dao.findById("p1").orElseThrow().getPromoCents());
+
+        assertThrows(RejectedExecutionException.class, () -> dao.saveOrUpdateOffer("p1", 100, tomorrow));
+    }
+
+    @Test
+    void cola_llena_espera_a_que_se_vacie() throws Exception {
+        enable(1, 60_000);
+        dao.saveOrUpdateOffer("p1", 39900, tomorrow);
+        dao.saveOrUpdateOffer("p1", 38900, tomorrow); // mismo producto: no ocupa lugar
+        dao.saveOrUpdateOffer("p2", 99900, tomorrow); // espera el vaciado de p1
+        assertEquals(38900L, promoInDb("p1"));
+        assertEquals(99900, dao.findById("p2").orElseThrow().getPromoCents());
+    }
+
+    @Test
+    void fila_invalida_se_descarta_sin_perder_el_resto_del_lote() throws Exception {
+        enable(100, 60_000);
+        dao.saveOrUpdateOffer("p1", 39900, tomorrow);
+        dao.saveOrUpdateOffer("no-existe", 100, tomorrow); // viola la FK
+        queue.close();
+        assertEquals(39900L, promoInDb("p1"));
+        assertEquals(1, queue.getDropped());
+        assertEquals(0, queue.getPending());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderDaoTest {
+
+    ConnectionPool pool;
+    OrderDao orderDao;
+    OrderItemDao orderItemDao;
+
+    @BeforeEach
+    void setup() throws Exception {
+        pool = new ConnectionPool("jdbc:h2:mem:ord" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "sa", "", new ConnectionPool.Config());
+        try (Connection c = pool.getConnection()) {
+            Migrations.migrate(c); // users 1 y 2, productos p1 y p2
+        }
+        orderDao = new OrderDao(pool);
+        orderItemDao = new OrderItemDao(pool);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            st.execute("SHUTDOWN");
+        }
+        pool.close();
+    }
+
+    @Test
+    void historial_por_usuario_paginado_del_mas_nuevo_al_mas_viejo() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) ids.add(orderDao.create("1", 1000));
+        orderDao.create("2", 9900);
+
+        OrderPage first = orderDao.findOrdersByUser("1", null, 2);
+        assertEquals(List.of(ids.get(4), ids.get(3)), first.getItems().stream().map(Order::getId).toList());
+        assertTrue(first.isHasNext());
+
+        OrderPage second = orderDao.findOrdersByUser("1", first.getNextCursor(), 2);
+        assertEquals(List.of(ids.get(2), ids.get(1)), second.getItems().stream().map(Order::getId).toList());
+
+        OrderPage last = orderDao.findOrdersByUser("1", second.getNextCursor(), 2);
+        assertEquals(List.of(ids.get(0)), last.getItems().stream().map(Order::getId).toList());
+        assertFalse(last.isHasNext());
+
+        assertThrows(IllegalArgumentException.class, () -> orderDao.findOrdersByUser("1", "abc", 2));
+    }
+
+    @Test
+    void historial_usa_el_indice_por_usuario() throws Exception {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "EXPLAIN SELECT id FROM orders WHERE user_id='1' AND id<100 ORDER BY id DESC LIMIT 3")) {
+            rs.next();
+            assertTrue(rs.getString(1).toUpperCase().contains("IDX_ORDERS_USER_ID"), rs.getString(1));
+        }
+    }
+
+    @Test
+    void detalle_trae_orden_e_items_con_nombre_de_producto() {
+        long id = orderDao.create("1", 209700);
+        orderItemDao.createAll(id, List.of(
+                new OrderItem(0, id, "p1", 2, 39900),
+                new OrderItem(0, id, "p2", 1, 129900)));
+        long empty = orderDao.create("2", 0);
+
+        OrderDetail d = orderDao.findDetail(id).orElseThrow();
+        assertEquals("1", d.getOrder().getUserId());
+        assertEquals(209700, d.getOrder().getTotalCents());
+        assertEquals(2, d.getItems().size());
+        assertEquals("Figura Goku", d.getItems().get(0).getProductName());
+        assertEquals(79800, d.getItems().get(0).getSubtotalCents());
+        assertEquals("Carta Pikachu", d.getItems().get(1).getProductName());
+
+        assertTrue(orderDao.findDetail(empty).orElseThrow().getItems().isEmpty());
+        assertTrue(orderDao.findDetail(999_999).isEmpty());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductApiTest {
+
+    @Test
+    void etag_de_otra_instancia_no_coincide_aunque_la_version_sea_la_misma() {
+        // Dos arranques (o dos nodos) con el catálogo en la misma versión local
+        InMemoryProductRepository before = new InMemoryProductRepository();
+        InMemoryProductRepository after = new InMemoryProductRepository();
+        for (InMemoryProductRepository r : new InMemoryProductRepository[] {before, after}) {
+            r.insert(new Product("p1", "Figura Goku", "SSJ Blue 15cm", null, 49900, 10));
+        }
+        assertEquals(before.catalogVersion(), after.catalogVersion());
+
+        ProductApi old = new ProductApi(before, null, null);
+        ProductApi restarted = new ProductApi(after, null, null);
+        assertEquals(old.etag("p1"), old.etag("p1"));
+        assertNotEquals(old.etag("p1"), restarted.etag("p1"));
+
+        // En la misma instancia cambia con cada escritura
+        String tag = restarted.etag("p1");
+        after.saveOrUpdateOffer("p1", 39_900, "2099-12-31");
+        assertNotEquals(tag, restarted.etag("p1"));
+    }
+
+    @Test
+    void timeout_del_pool_se_reconoce_aunque_venga_envuelto() {
+        // Así llega desde CheckoutService: RuntimeException con el SQLException como causa
+        RuntimeException checkout = new RuntimeException("Error en checkout",
+                new java.sql.SQLTimeoutException("Timeout de 5000 ms esperando conexión (max=10)"));
+        assertTrue(ProductApi.timedOut(checkout));
+        assertFalse(ProductApi.timedOut(new RuntimeException("No se pudo completar la compra (contención en BD)",
+                new java.sql.SQLException("Deadlock", "40P01"))));
+        assertFalse(ProductApi.timedOut(new IllegalStateException()));
+    }
+}
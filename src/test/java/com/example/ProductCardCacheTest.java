@@ -0,0 +1,57 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCardCacheTest {
+
+    static Templates templates;
+    ProductCardCache cards;
+
+    @BeforeAll
+    static void compile() {
+        templates = new Templates();
+    }
+
+    @BeforeEach
+    void setup() {
+        cards = new ProductCardCache(templates, 100);
+    }
+
+    @Test
+    void reutiliza_html_mientras_el_producto_no_cambia() {
+        Product p1 = new Product("p1", "Figura Goku", "SSJ Blue 15cm", null, 49900, 10);
+        String html = cards.render(p1);
+        assertTrue(html.contains("Figura Goku"));
+        assertTrue(html.contains("Sin oferta vigente"));
+
+        // Misma versión (otra instancia con los mismos datos) → acierto
+        assertSame(html, cards.render(new Product(p1)));
+        assertEquals(1, cards.getHits());
+
+        // Cambia la oferta → se vuelve a renderizar
+        Product withOffer = new Product(p1);
+        withOffer.setPromoCents(39900);
+        withOffer.setValidUntil("2099-01-01");
+        String updated = cards.render(withOffer);
+        assertNotSame(html, updated);
+        assertTrue(updated.contains("Quitar oferta"));
+        assertEquals(2, cards.getMisses());
+    }
+
+    @Test
+    void index_incluye_las_tarjetas_sin_escapar() {
+        List<String> html = cards.render(List.of(new Product("p2", "Carta <Pikachu>", null, null, 129900, 5)));
+        StringWriter out = new StringWriter();
+        templates.render("index.mustache", Map.of("cards", html, "q", "", "year", 2025), out);
+
+        String page = out.toString();
+        assertTrue(page.contains("<article class=\"card\">"));
+        assertTrue(page.contains("Carta &lt;Pikachu&gt;"));
+        assertFalse(page.contains("No hay productos disponibles."));
+    }
+}
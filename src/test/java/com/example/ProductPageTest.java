@@ -0,0 +1,38 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPageTest {
+
+    @Test
+    void cursor_ida_y_vuelta_con_barras_en_el_id_y_el_nombre() {
+        ProductPage.Cursor c = new ProductPage.Cursor(7, "lote|12|a", "Carta | Holo|1st");
+        ProductPage.Cursor back = ProductPage.Cursor.decode(c.encode());
+        assertEquals(7, back.score);
+        assertEquals("lote|12|a", back.id);
+        assertEquals("Carta | Holo|1st", back.name);
+
+        // Nombre vacío y caracteres fuera de ASCII
+        back = ProductPage.Cursor.decode(new ProductPage.Cursor(0, "|", "").encode());
+        assertEquals("|", back.id);
+        assertEquals("", back.name);
+        assertEquals("Álbum ñ", ProductPage.Cursor.decode(new ProductPage.Cursor(0, "p1", "Álbum ñ").encode()).name);
+
+        // La forma canónica no cambia al normalizarla de nuevo
+        assertEquals(c.encode(), ProductPage.normalizeCursor(" " + c.encode() + " "));
+        assertNull(ProductPage.normalizeCursor(""));
+    }
+
+    @Test
+    void cursor_mal_formado_es_argumento_invalido() {
+        for (String raw : new String[] {"0|p1|Goku", "0|99|p1", "x|2|p1", "0|-1|p1", "0|0|", "0|2147483647|p1", "sin barras"}) {
+            String text = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> ProductPage.Cursor.decode(text), raw);
+        }
+        assertThrows(IllegalArgumentException.class, () -> ProductPage.normalizeCursor("%%%"));
+    }
+}
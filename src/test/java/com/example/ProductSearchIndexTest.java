@@ -0,0 +1,102 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    ProductSearchIndex idx;
+
+    @BeforeEach
+    void setup() {
+        idx = new ProductSearchIndex(List.of(
+                new Product("p1", "Figura Goku", "SSJ Blue 15cm", null, 499, 10),
+                new Product("p2", "Carta Pikachu", "Holo 1st ed", null, 1299, 5),
+                new Product("p3", "Póster Sofía", "Edición válida hasta agotar", null, 99, 3),
+                new Product("p4", "Llavero", "Figura pequeña de Goku", null, 49, 50)
+        ));
+    }
+
+    private static List<String> ids(List<ProductSearchIndex.Hit> hits) {
+        return hits.stream().map(h -> h.id).toList();
+    }
+
+    @Test
+    void ignora_acentos_y_mayusculas() {
+        assertEquals(List.of("p3"), ids(idx.search("SOFIA")));
+        assertEquals(List.of("p3"), ids(idx.search("valida")));
+        assertEquals(List.of("p3"), ids(idx.search("póster")));
+    }
+
+    @Test
+    void busca_por_prefijo_y_exige_todos_los_terminos() {
+        assertEquals(List.of("p2"), ids(idx.search("pika")));
+        assertEquals(List.of("p1"), ids(idx.search("goku blue")));
+        assertTrue(idx.search("goku zzz").isEmpty());
+    }
+
+    @Test
+    void nombre_pesa_mas_que_descripcion() {
+        assertEquals(List.of("p1", "p4"), ids(idx.search("goku")));
+    }
+
+    @Test
+    void put_reindexa_y_remove_quita() {
+        Product p2 = new Product("p2", "Carta Charizard", "Holo", null, 1299, 5);
+        idx.put(p2);
+        assertTrue(idx.search("pikachu").isEmpty());
+        assertEquals(List.of("p2"), ids(idx.search("chari")));
+
+        idx.remove("p2");
+        assertTrue(idx.search("chari").isEmpty());
+        assertEquals(3, idx.size());
+    }
+
+    @Test
+    void searchPage_recorre_un_catalogo_grande_en_el_mismo_orden_que_search() {
+        List<Product> many = new java.util.ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // nombres repetidos y puntajes distintos: el desempate por nombre e id importa
+            // "figurita" y "figuras": un producto cubierto por varios términos del mismo prefijo
+            String name = (i % 3 == 0 ? "Figura " : i % 7 == 0 ? "Figurita " : "Carta ") + (i % 50);
+            many.add(new Product("x" + i, name, i % 2 == 0 ? "figura coleccionable" : "coleccionable figuras", null, 100, 1));
+        }
+        ProductSearchIndex big = new ProductSearchIndex(many);
+
+        for (String q : new String[] {"figura", "fig", "figura colec", "carta 1"}) {
+            List<ProductSearchIndex.Hit> all = big.search(q);
+            List<ProductSearchIndex.Hit> walked = new java.util.ArrayList<>();
+            ProductSearchIndex.Hit after = null;
+            while (true) {
+                List<ProductSearchIndex.Hit> page = big.searchPage(q, after, 97);
+                if (page.isEmpty()) break;
+                walked.addAll(page);
+                after = page.get(page.size() - 1);
+            }
+            assertFalse(all.isEmpty(), q);
+            assertEquals(ids(all), ids(walked), q);
+            assertEquals(all.stream().map(h -> h.score).toList(), walked.stream().map(h -> h.score).toList(), q);
+        }
+        assertEquals(List.of("p1", "p4"), ids(idx.searchPage("goku", null, 5)));
+        assertEquals(List.of("p4"), ids(idx.searchPage("goku", idx.searchPage("goku", null, 1).get(0), 5)));
+    }
+
+    @Test
+    void prefijo_corto_solo_busca_la_palabra_exacta_y_la_expansion_tiene_tope() {
+        idx.put(new Product("p5", "Carta 1", "Set 1", null, 10, 1));
+        // "1" no expande a "1st" ni a "15cm"
+        assertEquals(List.of("p5"), ids(idx.search("1")));
+        assertEquals(List.of("p2"), ids(idx.search("1s")));
+
+        ProductSearchIndex many = new ProductSearchIndex();
+        for (int i = 0; i < ProductSearchIndex.MAX_EXPANSIONS + 10; i++) {
+            many.put(new Product("c" + i, String.format("carta%03d", i), "", null, 10, 1));
+        }
+        // Solo los primeros MAX_EXPANSIONS términos (en orden alfabético) cuentan
+        assertEquals(ProductSearchIndex.MAX_EXPANSIONS, many.search("carta").size());
+        assertEquals(ProductSearchIndex.MAX_EXPANSIONS, many.searchPage("carta", null, 1000).size());
+        assertEquals(List.of("c70"), ids(many.search("carta070")));
+    }
+}
@@ -0,0 +1,212 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contrato común de los repositorios: cada backend lo extiende y solo arma sus instancias.
+ * Corre contra JDBC ({@link ProductDaoTest}) y en memoria ({@link InMemoryRepositoryTest}).
+ */
+abstract class RepositoryContract {
+
+    ProductRepository products;
+    UserRepository users;
+    OrderRepository orders;
+    OrderItemRepository orderItems;
+
+    /**
+     * Crea repositorios nuevos con los datos de V4__semillas.sql: usuarios 1 y 2,
+     * p1 (Figura Goku, 499, stock 10) y p2 (Carta Pikachu, 1299, stock 5).
+     */
+    abstract void createRepositories() throws Exception;
+
+    @BeforeEach
+    void setupRepositories() throws Exception {
+        createRepositories();
+    }
+
+    // ===== productos y ofertas =====
+
+    @Test
+    void findAll_regresa_productos_ordenados_por_nombre() {
+        List<Product> all = products.findAll();
+        assertEquals(2, all.size());
+        assertEquals("Carta Pikachu", all.get(0).getName());
+        assertEquals("Figura Goku", all.get(1).getName());
+    }
+
+    @Test
+    void findAllFiltered_funciona_con_query_y_con_nulo_o_blanco() {
+        List<Product> goku = products.findAllFiltered("gOkU");
+        assertEquals(1, goku.size());
+        assertEquals("p1", goku.get(0).getId());
+
+        assertEquals(2, products.findAllFiltered(null).size());
+        assertEquals(2, products.findAllFiltered("   ").size());
+    }
+
+    @Test
+    void findById_encuentra_y_no_encuentra() {
+        Optional<Product> p1 = products.findById("p1");
+        assertTrue(p1.isPresent());
+        assertEquals("Figura Goku", p1.get().getName());
+
+        assertTrue(products.findById("nope").isEmpty());
+    }
+
+    @Test
+    void update_actualiza_campos_base() {
+        Product p2 = products.findById("p2").orElseThrow();
+        p2.setName("Carta Pikachu (Updated)");
+        p2.setStock(7);
+        products.update(p2);
+
+        Product again = products.findById("p2").orElseThrow();
+        assertEquals("Carta Pikachu (Updated)", again.getName());
+        assertEquals(7, again.getStock());
+        assertEquals("p2", products.findAllFiltered("updated").get(0).getId());
+    }
+
+    @Test
+    void update_de_id_inexistente_no_deja_un_fantasma_en_la_busqueda() {
+        products.findPage("goku", null, 1); // índice ya construido
+        // Mismo puntaje que p1 y antes por id: si quedara en el índice ocuparía la página
+        products.update(new Product("p0", "Figura Goku", "", null, 1, 1));
+
+        ProductPage page = products.findPage("goku", null, 1);
+        assertEquals(List.of("p1"), page.getItems().stream().map(Product::getId).toList());
+        assertFalse(page.isHasNext());
+        assertTrue(products.findById("p0").isEmpty());
+    }
+
+    @Test
+    void saveOrUpdateOffer_inserta_y_actualiza_oferta() {
+        String todayPlus2 = LocalDate.now().plusDays(2).toString();
+
+        products.saveOrUpdateOffer("p1", 39900, todayPlus2);
+        Product p1 = products.findById("p1").orElseThrow();
+        assertEquals(39900, p1.getPromoCents());
+        assertEquals(todayPlus2, p1.getValidUntil());
+
+        String todayPlus5 = LocalDate.now().plusDays(5).toString();
+        products.saveOrUpdateOffer("p1", 37950, todayPlus5);
+
+        Product p1Upd = products.findById("p1").orElseThrow();
+        assertEquals(37950, p1Upd.getPromoCents());
+        assertEquals(todayPlus5, p1Upd.getValidUntil());
+    }
+
+    @Test
+    void saveOrUpdateOffer_rechaza_fecha_invalida_y_producto_inexistente() {
+        assertThrows(IllegalArgumentException.class, () -> products.saveOrUpdateOffer("p1", 100, "mañana"));
+        String until = LocalDate.now().plusDays(1).toString();
+        assertThrows(RuntimeException.class, () -> products.saveOrUpdateOffer("nope", 100, until));
+        assertFalse(products.findById("p1").orElseThrow().hasPromo());
+    }
+
+    @Test
+    void deleteOffer_elimina_si_existe() {
+        String until = LocalDate.now().plusDays(3).toString();
+        products.saveOrUpdateOffer("p1", 39900, until);
+
+        // existe oferta
+        Product withOffer = products.findById("p1").orElseThrow();
+        assertEquals(39900, withOffer.getPromoCents());
+
+        // borrar
+        products.deleteOffer("p1");
+
+        // ya no hay oferta
+        Product withoutOffer = products.findById("p1").orElseThrow();
+        assertFalse(withoutOffer.hasPromo());
+        assertNull(withoutOffer.getValidUntil());
+    }
+
+    @Test
+    void oferta_vencida_no_se_muestra() {
+        products.saveOrUpdateOffer("p1", 39900, LocalDate.now().minusDays(1).toString());
+        Product p1 = products.findById("p1").orElseThrow();
+        assertFalse(p1.hasPromo());
+        assertNull(p1.getValidUntil());
+    }
+
+    @Test
+    void catalogVersion_cambia_con_cada_escritura() {
+        long v0 = products.catalogVersion();
+        assertEquals(v0, products.catalogVersion());
+        products.saveOrUpdateOffer("p2", 99900, LocalDate.now().plusDays(1).toString());
+        assertNotEquals(v0, products.catalogVersion());
+        assertEquals(99900, products.findAll().get(0).getPromoCents());
+    }
+
+    @Test
+    void findPage_pagina_por_cursor_en_orden_de_nombre() {
+        ProductPage first = products.findPage(null, null, 1);
+        assertEquals(1, first.getItems().size());
+        assertEquals("p2", first.getItems().get(0).getId());
+        assertTrue(first.isHasNext());
+
+        ProductPage second = products.findPage(null, first.getNextCursor(), 1);
+        assertEquals("p1", second.getItems().get(0).getId());
+        assertFalse(second.isHasNext());
+
+        assertThrows(IllegalArgumentException.class, () -> products.findPage(null, "%%%", 1));
+        assertThrows(IllegalArgumentException.class, () -> products.findPage(null, null, 0));
+    }
+
+    // ===== usuarios =====
+
+    @Test
+    void usuarios_alta_cambio_y_baja() {
+        users.create(new User("3", "Ana", "ana@example.com"));
+        assertThrows(RuntimeException.class, () -> users.create(new User("3", "Otra", "otra@example.com")));
+
+        users.update(new User("3", "Ana María", "ana@example.com"));
+        assertEquals("Ana María", users.findById("3").orElseThrow().getName());
+        assertEquals(List.of("1", "2", "3"), users.findAll().stream().map(User::getId).toList());
+
+        assertTrue(users.delete("3"));
+        assertFalse(users.delete("3"));
+        assertTrue(users.findById("3").isEmpty());
+    }
+
+    // ===== órdenes =====
+
+    @Test
+    void ordenes_historial_paginado_y_detalle_con_items() {
+        long o1 = orders.create("1", 99800);
+        long o2 = orders.create("1", 129900);
+        long o3 = orders.create("1", 49900);
+        orders.create("2", 100);
+        orderItems.createAll(o1, List.of(
+                new OrderItem(0, o1, "p1", 2, 49900),
+                new OrderItem(0, o1, "p2", 1, 129900)));
+
+        OrderPage first = orders.findOrdersByUser("1", null, 2);
+        assertEquals(List.of(o3, o2), first.getItems().stream().map(Order::getId).toList());
+        OrderPage rest = orders.findOrdersByUser("1", first.getNextCursor(), 2);
+        assertEquals(List.of(o1), rest.getItems().stream().map(Order::getId).toList());
+        assertNull(rest.getNextCursor());
+
+        OrderDetail detail = orders.findDetail(o1).orElseThrow();
+        assertEquals("1", detail.getOrder().getUserId());
+        assertEquals(99800, detail.getOrder().getTotalCents());
+        assertEquals(2, detail.getItems().size());
+        assertEquals("Figura Goku", detail.getItems().get(0).getProductName());
+        assertEquals(99800, detail.getItems().get(0).getSubtotalCents());
+        assertEquals(2, orderItems.findByOrder(o1).size());
+
+        assertTrue(orders.findDetail(o2).orElseThrow().getItems().isEmpty());
+        assertTrue(orders.findDetail(-1).isEmpty());
+        assertTrue(orders.findById(-1).isEmpty());
+    }
+
+    @Test
+    void orden_de_usuario_inexistente_falla() {
+        assertThrows(RuntimeException.class, () -> orders.create("nadie", 1000));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    AtomicLong version;
+    AtomicInteger renders;
+    ResponseCache cache;
+
+    @BeforeEach
+    void setup() {
+        version = new AtomicLong();
+        renders = new AtomicInteger();
+        cache = new ResponseCache(new ResponseCache.Config(), version::get);
+    }
+
+    String render() {
+        renders.incrementAndGet();
+        return "<p>catálogo v" + version.get() + "</p>";
+    }
+
+    @Test
+    void sirve_de_memoria_hasta_que_cambia_la_version_del_catalogo() throws Exception {
+        ResponseCache.Entry first = cache.lookup("/|q", this::render);
+        assertSame(first, cache.lookup("/|q", this::render));
+        assertEquals(1, renders.get());
+        assertEquals(1, cache.getHits());
+
+        // El gzip guardado es la misma página
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(first.gzip))) {
+            assertEquals("<p>catálogo v0</p>", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // Otra clave es otra página
+        cache.lookup("/|otra", this::render);
+        assertEquals(2, renders.get());
+
+        // Escritura en el catálogo → se vuelve a renderizar, con otro ETag y Last-Modified posterior
+        version.incrementAndGet();
+        ResponseCache.Entry second = cache.lookup("/|q", this::render);
+        assertEquals(3, renders.get());
+        assertNotEquals(first.etag, second.etag);
+        assertTrue(second.lastModified > first.lastModified);
+        assertEquals("<p>catálogo v1</p>", new String(second.plain, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void normaliza_q_y_negocia_gzip() {
+        assertEquals("goku ssj", ResponseCache.normalizeQuery("  goku \t  ssj "));
+        assertNull(ResponseCache.normalizeQuery("   "));
+        assertNull(ResponseCache.normalizeQuery(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> ResponseCache.normalizeQuery("x".repeat(ResponseCache.MAX_QUERY_LENGTH + 1)));
+
+        assertTrue(ResponseCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseCache.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertFalse(ResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCache.acceptsGzip("identity"));
+        assertFalse(ResponseCache.acceptsGzip(null));
+    }
+
+    @Test
+    void al_llenarse_desaloja_la_pagina_usada_hace_mas_tiempo() {
+        ResponseCache.Config c = new ResponseCache.Config();
+        c.maxEntries = 2;
+        ResponseCache small = new ResponseCache(c, version::get);
+        small.lookup("a", this::render);
+        small.lookup("b", this::render);
+        small.lookup("a", this::render);
+        small.lookup("c", this::render);
+
+        // "b" era la menos usada; "a" sigue en memoria
+        assertEquals(2, small.size());
+        assertEquals(1, small.getEvictions());
+        small.lookup("a", this::render);
+        assertEquals(3, renders.get());
+        small.lookup("b", this::render);
+        assertEquals(4, renders.get());
+
+        // Estáticos: inmutable solo con la huella vigente
+        StaticAsset css = new StaticAsset("/public/styles.css", "text/css");
+        assertEquals(StaticAsset.IMMUTABLE, css.cacheControl(Templates.assetVersion("/public/styles.css")));
+        assertEquals(StaticAsset.REVALIDATE, css.cacheControl(null));
+        assertEquals(StaticAsset.REVALIDATE, css.cacheControl("0"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesAnalyticsTest {
+
+    ConnectionPool pool;
+    SalesAnalytics sales;
+    OrderDao orders;
+    OrderItemDao items;
+
+    @BeforeEach
+    void setup() throws Exception {
+        pool = new ConnectionPool("jdbc:h2:mem:sales" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "sa", "", new ConnectionPool.Config());
+        try (Connection c = pool.getConnection()) {
+            Migrations.migrate(c); // p1 a 499.00, p2 a 1299.00
+        }
+        sales = new SalesAnalytics(pool);
+        orders = new OrderDao(pool);
+        items = new OrderItemDao(pool, sales);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            st.execute("SHUTDOWN");
+        }
+        pool.close();
+    }
+
+    /** Orden con created_at fijo: el tramo de sus ventas sale de ahí, no del reloj del proceso. */
+    private long orderAt(String userId, String createdAt) throws SQLException {
+        long id = orders.create(userId, 0);
+        try (Connection c = pool.getConnection();
+             PreparedStatement ps = c.prepareStatement("UPDATE orders SET created_at = ? WHERE id = ?")) {
+            ps.setTimestamp(1, Timestamp.valueOf(createdAt));
+            ps.setLong(2, id);
+            ps.executeUpdate();
+        }
+        return id;
+    }
+
+    @Test
+    void cada_orden_suma_a_la_hora_el_dia_y_el_total_con_el_descuento_de_la_oferta() throws Exception {
+        long o1 = orderAt("1", "2025-03-10 12:00:00");
+        items.createAll(o1, List.of(new OrderItem(0, 0, "p1", 2, 49_900), new OrderItem(0, 0, "p2", 1, 129_900)));
+        long o2 = orderAt("2", "2025-03-10 12:59:59");
+        items.create(o2, "p1", 3, 39_900); // con oferta
+
+        SalesAnalytics.Bucket total = sales.totals("p1").orElseThrow();
+        assertEquals(5, total.units);
+        assertEquals(3, total.promoUnits);
+        assertEquals(2 * 49_900 + 3 * 39_900, total.revenueCents);
+        assertEquals(5 * 49_900, total.listRevenueCents);
+        assertEquals(3 * 10_000, total.discountCents());
+        assertEquals(39_900, total.minPriceCents);
+        assertEquals(49_900, total.maxPriceCents);
+
+        LocalDate today = LocalDate.of(2025, 3, 10);
+        List<SalesAnalytics.Bucket> hours = sales.series("p1", SalesAnalytics.Granularity.HOUR, today, today);
+        assertEquals(1, hours.size());
+        assertEquals("2025-03-10T12:00", hours.get(0).start);
+        assertEquals(5, sales.series("p1", SalesAnalytics.Granularity.DAY, today, today).get(0).units);
+
+        List<SalesAnalytics.Bucket> byRevenue = sales.top(today, false, 10);
+        assertEquals(List.of("p1", "p2"), byRevenue.stream().map(b -> b.productId).toList());
+        assertTrue(sales.totals("p3").isEmpty());
+
+        // Con el precio de lista en la línea (checkout) se usa ese, sin leer products
+        OrderItem conLista = new OrderItem(0, 0, "p2", 1, 129_900);
+        conLista.setListPriceCents(149_900);
+        items.createAll(orderAt("1", "2025-03-10 13:00:00"), List.of(conLista));
+        SalesAnalytics.Bucket p2 = sales.totals("p2").orElseThrow();
+        assertEquals(1, p2.promoUnits);
+        assertEquals(129_900 + 149_900, p2.listRevenueCents);
+    }
+
+    @Test
+    void las_series_separan_tramos_y_limitan_el_rango() throws Exception {
+        items.create(orderAt("1", "2025-03-10 12:30:00"), "p2", 1, 129_900);
+        items.create(orderAt("1", "2025-03-10 14:05:00"), "p2", 2, 129_900);
+        items.create(orderAt("1", "2025-03-11 14:05:00"), "p2", 4, 129_900);
+
+        LocalDate day = LocalDate.of(2025, 3, 10);
+        List<SalesAnalytics.Bucket> hours = sales.series("p2", SalesAnalytics.Granularity.HOUR, day, day);
+        assertEquals(List.of("2025-03-10T12:00", "2025-03-10T14:00"), hours.stream().map(b -> b.start).toList());
+        List<SalesAnalytics.Bucket> days = sales.series("p2", SalesAnalytics.Granularity.DAY, day, day.plusDays(1));
+        assertEquals(List.of(3L, 4L), days.stream().map(b -> b.units).toList());
+        assertEquals(7, sales.totals("p2").orElseThrow().units);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> sales.series("p2", SalesAnalytics.Granularity.HOUR, day, day.plusDays(7)));
+        assertThrows(IllegalArgumentException.class,
+                () -> sales.series("p2", SalesAnalytics.Granularity.DAY, day.plusDays(1), day));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example;
+
+import org.junit.jupiter.api.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    CatalogCacheTest.MutableClock clock = new CatalogCacheTest.MutableClock();
+
+    @Test
+    void cookie_firmada_rechaza_alteraciones_y_vence() {
+        byte[] secret = "una-clave-de-prueba-larga".getBytes(StandardCharsets.UTF_8);
+        CookieSessionStore store = new CookieSessionStore(secret, 60, clock);
+        String cookie = store.sign(Map.of("flash", "Oferta guardada para Figura Goku"));
+
+        assertEquals(Map.of("flash", "Oferta guardada para Figura Goku"), store.verify(cookie));
+        // Otro nodo con la misma clave la acepta; con otra clave, no
+        assertFalse(new CookieSessionStore(secret, 60, clock).verify(cookie).isEmpty());
+        assertTrue(new CookieSessionStore("otra-clave-de-prueba-larga".getBytes(StandardCharsets.UTF_8), 60, clock)
+                .verify(cookie).isEmpty());
+
+        // Datos alterados con la firma original
+        String forged = store.sign(Map.of("flash", "otra cosa"));
+        String tampered = forged.substring(0, forged.indexOf('.')) + cookie.substring(cookie.indexOf('.'));
+        assertTrue(store.verify(tampered).isEmpty());
+        assertTrue(store.verify("basura").isEmpty());
+
+        clock.now = clock.now.plusSeconds(61);
+        assertTrue(store.verify(cookie).isEmpty());
+    }
+
+    @Test
+    void jdbc_comparte_sesiones_entre_nodos_con_cache_local() throws Exception {
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:ses" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "sa", "", new ConnectionPool.Config());
+        try (Connection c = pool.getConnection()) {
+            Migrations.migrate(c);
+        }
+        try {
+            JdbcSessionStore.Config cfg = new JdbcSessionStore.Config();
+            cfg.maxInactiveSeconds = 60;
+            JdbcSessionStore nodeA = new JdbcSessionStore(pool, cfg, clock);
+            JdbcSessionStore nodeB = new JdbcSessionStore(pool, cfg, clock);
+            String id = nodeA.newId();
+
+            nodeA.save(id, Map.of("flash", "hola"));
+            assertEquals("hola", nodeB.load(id).get("flash"));
+
+            // B lee de su caché mientras esté fresca
+            nodeB.load(id);
+            assertEquals(1, nodeB.getLoads());
+            assertEquals(1, nodeB.getNearHits());
+
+            // A la borra; B la ve vacía al vencer su caché
+            nodeA.save(id, Map.of());
+            clock.now = clock.now.plusMillis(cfg.nearCacheTtlMs);
+            assertTrue(nodeB.load(id).isEmpty());
+
+            // Sin escrituras, la sesión vence a los maxInactiveSeconds
+            nodeA.save(id, Map.of("flash", "chau"));
+            clock.now = clock.now.plusSeconds(61);
+            assertTrue(new JdbcSessionStore(pool, cfg, clock).load(id).isEmpty());
+        } finally {
+            try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+                st.execute("SHUTDOWN");
+            }
+            pool.close();
+        }
+    }
+
+    @Test
+    void jdbc_escribe_sin_pisar_a_otro_nodo_y_la_cache_local_es_lru() throws Exception {
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:ses" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "sa", "", new ConnectionPool.Config());
+        try (Connection c = pool.getConnection()) {
+            Migrations.migrate(c);
+        }
+        try {
+            JdbcSessionStore.Config cfg = new JdbcSessionStore.Config();
+            cfg.nearCacheMaxEntries = 2;
+            JdbcSessionStore nodeA = new JdbcSessionStore(pool, cfg, clock);
+            JdbcSessionStore nodeB = new JdbcSessionStore(pool, cfg, clock);
+            String id = nodeA.newId();
+
+            nodeA.put(id, "flash", "hola");
+            assertEquals(Map.of("flash", "hola"), nodeB.load(id)); // B la tiene en caché
+            nodeA.put(id, "user", "u1");
+
+            // B escribe con su caché todavía fresca (sin "user"): no debe borrar lo de A
+            nodeB.put(id, "cart", "3");
+            assertEquals(Map.of("flash", "hola", "user", "u1", "cart", "3"), nodeA.update(id, m -> null));
+
+            // El flash se entrega una sola vez aunque B lo vea en su caché
+            assertEquals("hola", nodeA.remove(id, "flash").get("flash"));
+            assertNull(nodeB.remove(id, "flash").get("flash"));
+
+            // LRU: al llenarse sale la menos usada, no se vacía todo
+            String other = nodeA.newId(), third = nodeA.newId();
+            nodeA.load(other);
+            nodeA.load(id);
+            nodeA.load(third);
+            long loads = nodeA.getLoads();
+            nodeA.load(id);
+            assertEquals(loads, nodeA.getLoads());
+            nodeA.load(other);
+            assertEquals(loads + 1, nodeA.getLoads());
+        } finally {
+            try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+                st.execute("SHUTDOWN");
+            }
+            pool.close();
+        }
+    }
+}